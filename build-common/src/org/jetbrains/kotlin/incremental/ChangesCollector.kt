@@ -61,7 +61,7 @@ class ChangesCollector {
         removedMembers.getSet(scope).add(name)
     }
 
-    private fun collectChangedMembers(scope: FqName, names: Collection<String>) {
+    fun collectChangedMembers(scope: FqName, names: Collection<String>) {
         if (names.isNotEmpty()) {
             changedMembers.getSet(scope).addAll(names)
         }
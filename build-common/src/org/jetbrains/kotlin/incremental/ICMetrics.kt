@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental
+
+import java.util.concurrent.TimeUnit
+
+// Structured metrics of one incremental build: time spent in each IC phase and counters (cache sizes, hits, files),
+// reported once per build via ICReporter.reportMetrics.
+// Keys are dot-separated, e.g. "caches.flush.lookups", so that related values can be grouped by a consumer.
+class ICMetrics {
+    private val timesNanos = LinkedHashMap<String, Long>()
+    private val counters = LinkedHashMap<String, Long>()
+
+    val timesMillis: Map<String, Long>
+        @Synchronized get() = timesNanos.mapValues { TimeUnit.NANOSECONDS.toMillis(it.value) }
+
+    val counterValues: Map<String, Long>
+        @Synchronized get() = LinkedHashMap(counters)
+
+    inline fun <T> measure(phase: String, fn: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            return fn()
+        } finally {
+            addTime(phase, System.nanoTime() - start)
+        }
+    }
+
+    @Synchronized
+    fun addTime(phase: String, nanos: Long) {
+        timesNanos[phase] = (timesNanos[phase] ?: 0L) + nanos
+    }
+
+    @Synchronized
+    fun add(counter: String, value: Long = 1) {
+        counters[counter] = (counters[counter] ?: 0L) + value
+    }
+
+    fun toJson(): String =
+        buildString {
+            append("{\"timesMs\":")
+            appendJsonObject(timesMillis)
+            append(",\"counters\":")
+            appendJsonObject(counterValues)
+            append("}")
+        }
+
+    override fun toString(): String =
+        "ICMetrics(times=${timesMillis.entries.joinToString { "${it.key}=${it.value}ms" }}, counters=$counterValues)"
+
+    private fun StringBuilder.appendJsonObject(values: Map<String, Long>) {
+        values.entries.joinTo(this, separator = ",", prefix = "{", postfix = "}") { (key, value) ->
+            "\"${key.replace("\\", "\\\\").replace("\"", "\\\"")}\":$value"
+        }
+    }
+}
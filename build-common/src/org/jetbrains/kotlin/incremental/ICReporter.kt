@@ -16,4 +16,6 @@ interface ICReporter {
     fun reportMarkDirtyClass(affectedFiles: Iterable<File>, classFqName: String)
     fun reportMarkDirtyMember(affectedFiles: Iterable<File>, scope: String, name: String)
     fun reportMarkDirty(affectedFiles: Iterable<File>, reason: String)
+
+    fun reportMetrics(metrics: ICMetrics) {}
 }
@@ -50,6 +50,11 @@ open class LookupStorage(
     @Volatile
     private var deletedCount: Int = 0
 
+    // statistics of the current build, not persisted
+    private var requestsCount = 0L
+    private var hitsCount = 0L
+    private var addedCount = 0L
+
     init {
         try {
             if (countersFile.exists()) {
@@ -66,7 +71,9 @@ open class LookupStorage(
     @Synchronized
     fun get(lookupSymbol: LookupSymbol): Collection<String> {
         val key = LookupSymbolKey(lookupSymbol.name, lookupSymbol.scope)
+        requestsCount++
         val fileIds = lookupMap[key] ?: return emptySet()
+        hitsCount++
 
         return fileIds.mapNotNull {
             // null means it's outdated
@@ -78,6 +85,7 @@ open class LookupStorage(
     fun addAll(lookups: MultiMap<LookupSymbol, String>, allPaths: Set<String>) {
         val pathToId = allPaths.sorted().keysToMap { addFileIfNeeded(File(it)) }
 
+        addedCount += lookups.size()
         for (lookupSymbol in lookups.keySet().sorted()) {
             val key = LookupSymbolKey(lookupSymbol.name, lookupSymbol.scope)
             val paths = lookups[lookupSymbol]
@@ -128,6 +136,14 @@ open class LookupStorage(
         }
     }
 
+    @Synchronized
+    fun collectMetrics(metrics: ICMetrics) {
+        metrics.add("lookups.files", (size - deletedCount).toLong())
+        metrics.add("lookups.requests", requestsCount)
+        metrics.add("lookups.hits", hitsCount)
+        metrics.add("lookups.added", addedCount)
+    }
+
     private fun addFileIfNeeded(file: File): Int {
         val existing = fileToId[file]
         if (existing != null) return existing
@@ -137,6 +137,8 @@ public class ClassBuilderFactories {
             // for bytecode 51.0+ (JDK 7+) JVM would crash with VerifyError.
             // It seems that for bytecode emitted by Kotlin compiler, it is safe to return "Object" here, because there will
             // be "checkcast" generated before making a call, anyway.
+            // Note that this also means that computing frames never resolves or loads classes (ASM's default implementation
+            // uses Class.forName), so no class hierarchy is needed here: it must stay a constant-time answer.
 
             return "java/lang/Object";
         }
@@ -135,9 +135,11 @@ class CoroutineTransformerMethodVisitor(
 
         UninitializedStoresProcessor(methodNode, shouldPreserveClassInitialization).run()
 
-        updateLvtAccordingToLiveness(methodNode, isForNamedFunction)
+        val livenessFrames = analyzeLiveness(methodNode)
+
+        updateLvtAccordingToLiveness(methodNode, isForNamedFunction, livenessFrames)
 
-        val spilledToVariableMapping = spillVariables(suspensionPoints, methodNode)
+        val spilledToVariableMapping = spillVariables(suspensionPoints, methodNode, livenessFrames)
 
         val suspendMarkerVarIndex = methodNode.maxLocals++
 
@@ -589,11 +591,16 @@ class CoroutineTransformerMethodVisitor(
         }
     }
 
-    private fun spillVariables(suspensionPoints: List<SuspensionPoint>, methodNode: MethodNode): List<List<SpilledVariableAndField>> {
+    private fun spillVariables(
+        suspensionPoints: List<SuspensionPoint>,
+        methodNode: MethodNode,
+        livenessFramesBeforeTypeAnalysis: List<VariableLivenessFrame>
+    ): List<List<SpilledVariableAndField>> {
         val instructions = methodNode.instructions
-        val frames =
-            if (useOldSpilledVarTypeAnalysis) performRefinedTypeAnalysis(methodNode, containingClassInternalName)
+        val spilledVariableFieldTypes =
+            if (useOldSpilledVarTypeAnalysis) null
             else performSpilledVariableFieldTypesAnalysis(methodNode, containingClassInternalName)
+        val frames = spilledVariableFieldTypes?.frames ?: performRefinedTypeAnalysis(methodNode, containingClassInternalName)
 
         fun AbstractInsnNode.index() = instructions.indexOf(this)
 
@@ -606,7 +613,10 @@ class CoroutineTransformerMethodVisitor(
             maxVarsCountByType[type] = count
         }
 
-        val livenessFrames = analyzeLiveness(methodNode)
+        // Type analysis may insert coercions of int-like values, liveness has to be recomputed if there were any
+        val livenessFrames =
+            if (spilledVariableFieldTypes?.hasInsertedCoercions == true) analyzeLiveness(methodNode)
+            else livenessFramesBeforeTypeAnalysis
 
         // References shall be cleaned up after uspill (during spill in next suspension point) to prevent memory leaks,
         val referencesToSpillBySuspensionPointIndex = arrayListOf<List<ReferenceToSpill>>()
@@ -701,6 +711,7 @@ class CoroutineTransformerMethodVisitor(
         }
 
         val predSuspensionPoints = suspensionPoints.associateWith { findSuspensionPointPredecessors(it) }
+        val suspensionPointIndices = suspensionPoints.withIndex().associate { (index, suspension) -> suspension to index }
 
         // Calculate all pairs SuspensionPoint -> C and P, where P is minimum of all preds' Cs
         fun countVariablesToSpill(index: Int): Int =
@@ -713,7 +724,7 @@ class CoroutineTransformerMethodVisitor(
             val preds = predSuspensionPoints[suspensionPoint]
             val predSpilledReferencesCount =
                 if (preds.isNullOrEmpty()) initialSpilledVariablesCount
-                else preds.maxOf { countVariablesToSpill(suspensionPoints.indexOf(it)) }
+                else preds.maxOf { countVariablesToSpill(suspensionPointIndices.getValue(it)) }
             referencesToCleanBySuspensionPointIndex += currentSpilledReferencesCount to predSpilledReferencesCount
         }
 
@@ -1162,13 +1173,10 @@ internal fun replaceFakeContinuationsWithRealOnes(methodNode: MethodNode, contin
  * This means, that function parameters do not longer span the whole function, including `this`.
  * This might and will break some bytecode processors, including old versions of R8. See KT-24510.
  */
-private fun updateLvtAccordingToLiveness(method: MethodNode, isForNamedFunction: Boolean) {
-    val liveness = analyzeLiveness(method)
-
-    fun List<LocalVariableNode>.findRecord(insnIndex: Int, variableIndex: Int): LocalVariableNode? {
+private fun updateLvtAccordingToLiveness(method: MethodNode, isForNamedFunction: Boolean, liveness: List<VariableLivenessFrame>) {
+    fun List<LocalVariableNode>.findRecord(insnIndex: Int): LocalVariableNode? {
         for (variable in this) {
-            if (variable.index == variableIndex &&
-                method.instructions.indexOf(variable.start) <= insnIndex &&
+            if (method.instructions.indexOf(variable.start) <= insnIndex &&
                 insnIndex < method.instructions.indexOf(variable.end)
             ) return variable
         }
@@ -1183,10 +1191,11 @@ private fun updateLvtAccordingToLiveness(method: MethodNode, isForNamedFunction:
         oldLvt += record
     }
     method.localVariables.clear()
+    val oldLvtByIndex = oldLvt.groupBy { it.index }
     // Skip `this` for suspend lamdba
     val start = if (isForNamedFunction) 0 else 1
     for (variableIndex in start until method.maxLocals) {
-        if (oldLvt.none { it.index == variableIndex }) continue
+        val records = oldLvtByIndex[variableIndex] ?: continue
         var startLabel: LabelNode? = null
         for (insnIndex in 0 until (method.instructions.size() - 1)) {
             val insn = method.instructions[insnIndex]
@@ -1195,7 +1204,7 @@ private fun updateLvtAccordingToLiveness(method: MethodNode, isForNamedFunction:
             }
             if (isAlive(insnIndex, variableIndex) && !isAlive(insnIndex + 1, variableIndex)) {
                 // No variable in LVT -> do not add one
-                val lvtRecord = oldLvt.findRecord(insnIndex, variableIndex) ?: continue
+                val lvtRecord = records.findRecord(insnIndex) ?: continue
                 if (lvtRecord.name == CONTINUATION_VARIABLE_NAME) continue
                 val endLabel = insn as? LabelNode ?: insn.findNextOrNull { it is LabelNode } as? LabelNode ?: continue
                 // startLabel can be null in case of parameters
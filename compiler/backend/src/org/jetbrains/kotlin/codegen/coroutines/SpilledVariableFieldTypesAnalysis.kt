@@ -23,7 +23,10 @@ import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
 // Note that type of some values is only possible to determine by their usages (e.g. ICONST_1, BALOAD both may push boolean or byte on stack)
 // In this case, coerce the type of the value.
 
-internal class IloadedValue(val insns: Set<VarInsnNode>) : BasicValue(Type.INT_TYPE)
+// Values other than the loaded ints are the same as computed by OptimizationBasicInterpreter,
+// and a loaded int has the type of its variable, so frames of this interpreter can be used for spilling as is,
+// unless some of the loads had to be coerced.
+internal class IloadedValue(val insns: Set<VarInsnNode>, type: Type = Type.INT_TYPE) : BasicValue(type)
 
 private class IntLikeCoerceInterpreter : OptimizationBasicInterpreter() {
     val needsToBeCoerced = mutableMapOf<VarInsnNode, Type>()
@@ -36,9 +39,10 @@ private class IntLikeCoerceInterpreter : OptimizationBasicInterpreter() {
 
     override fun copyOperation(insn: AbstractInsnNode, value: BasicValue?): BasicValue? =
         when {
-            insn.opcode == Opcodes.ILOAD -> IloadedValue(setOf(insn as VarInsnNode))
+            insn.opcode == Opcodes.ILOAD -> IloadedValue(setOf(insn as VarInsnNode), value?.type ?: Type.INT_TYPE)
             value == null -> null
-            else -> BasicValue(value.type)
+            value is IloadedValue -> newValue(value.type)
+            else -> value
         }
 
     override fun binaryOperation(insn: AbstractInsnNode, v: BasicValue, w: BasicValue): BasicValue? {
@@ -109,32 +113,40 @@ private class IntLikeCoerceInterpreter : OptimizationBasicInterpreter() {
 
     override fun merge(v: BasicValue, w: BasicValue): BasicValue =
         when {
-            v is IloadedValue && w is IloadedValue && v.type == w.type -> {
+            v is IloadedValue && w is IloadedValue && v.type.isIntOrIntLike() && w.type.isIntOrIntLike() -> {
                 val insns = v.insns + w.insns
                 insns.find { it in needsToBeCoerced }?.let {
                     val type = needsToBeCoerced[it]!!
                     coerce(v, type)
                     coerce(w, type)
                 }
-                IloadedValue(insns)
+                IloadedValue(insns, if (v.type == w.type) v.type else Type.INT_TYPE)
             }
-            v.type == w.type -> {
+            (v is IloadedValue || w is IloadedValue) && v.type == w.type -> {
                 if (w is IloadedValue) w else v
             }
             else -> super.merge(v, w)
         }
 }
 
+internal class SpilledVariableFieldTypes(val frames: Array<out Frame<BasicValue>?>, val hasInsertedCoercions: Boolean)
+
 internal fun performSpilledVariableFieldTypesAnalysis(
     methodNode: MethodNode,
     thisName: String
-): Array<out Frame<BasicValue>?> {
+): SpilledVariableFieldTypes {
     val interpreter = IntLikeCoerceInterpreter()
-    MethodAnalyzer(thisName, methodNode, interpreter).analyze()
+    val frames = MethodAnalyzer(thisName, methodNode, interpreter).analyze()
+    if (interpreter.needsToBeCoerced.isEmpty()) return SpilledVariableFieldTypes(frames, hasInsertedCoercions = false)
+
     for ((insn, type) in interpreter.needsToBeCoerced) {
         methodNode.instructions.insert(insn, withInstructionAdapter { coerceInt(type, this) })
     }
-    return MethodAnalyzer(thisName, methodNode, OptimizationBasicInterpreter()).analyze()
+    // coercions are new instructions, so frames have to be recomputed
+    return SpilledVariableFieldTypes(
+        MethodAnalyzer(thisName, methodNode, OptimizationBasicInterpreter()).analyze(),
+        hasInsertedCoercions = true
+    )
 }
 
 private fun coerceInt(to: Type, v: InstructionAdapter) {
@@ -154,6 +166,9 @@ private fun coerceInt(to: Type, v: InstructionAdapter) {
     }
 }
 
+private fun Type.isIntOrIntLike(): Boolean =
+    sort == Type.INT || isIntLike()
+
 private fun Type.isIntLike(): Boolean = when (sort) {
     Type.BOOLEAN, Type.BYTE, Type.CHAR, Type.SHORT -> true
     else -> false
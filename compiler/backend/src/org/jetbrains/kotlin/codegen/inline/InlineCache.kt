@@ -25,13 +25,23 @@ data class MethodId(val ownerInternalName: String, val method: Method)
 class InlineCache {
     val classBytes: SLRUMap<ClassId, ByteArray> = SLRUMap(30, 20)
     val methodNodeById: SLRUMap<MethodId, SMAPAndMethodNode> = SLRUMap(60, 50)
+    val bodyInfoById: SLRUMap<MethodId, InlineBodyInfo> = SLRUMap(60, 50)
 }
 
+// Facts about a compiled inline function body that do not depend on the call site, computed once per function.
+class InlineBodyInfo(
+    // see InlineCodegen.canSkipStackSpillingOnInline
+    val hasLoopsOrTryCatchBlocks: Boolean,
+    // not null if no return of the body needs to be normalized by MethodInliner; the size of the return variable it allocates
+    val returnVariableSizeIfNormalized: Int?
+)
+
+// SLRUMap is not thread-safe (`get` reorders entries too), so accesses are synchronized; the value is computed outside of the lock
 inline fun <K, V : Any> SLRUMap<K, V>.getOrPut(key: K, defaultValue: () -> V): V {
-    val value = get(key)
+    val value = synchronized(this) { get(key) }
     return if (value == null) {
         val answer = defaultValue()
-        put(key, answer)
+        synchronized(this) { put(key, answer) }
         answer
     } else {
         value
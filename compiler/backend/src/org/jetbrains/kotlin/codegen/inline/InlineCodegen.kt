@@ -150,45 +150,14 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
         }
     }
 
-    private fun canSkipStackSpillingOnInline(methodNode: MethodNode): Boolean {
+    private fun canSkipStackSpillingOnInline(methodNode: MethodNode, bodyInfo: InlineBodyInfo?): Boolean {
         // Stack spilling before inline function 'f' call is required if:
         //  - 'f' is a suspend function
         //  - 'f' has try-catch blocks
         //  - 'f' has loops
-        //
-        // Instead of checking for loops precisely, we just check if there are any backward jumps -
-        // that is, a jump from instruction #i to instruction #j where j < i
 
         if (functionDescriptor.isSuspend) return false
-        if (methodNode.tryCatchBlocks.isNotEmpty()) return false
-
-        fun isBackwardJump(fromIndex: Int, toLabel: LabelNode) =
-            methodNode.instructions.indexOf(toLabel) < fromIndex
-
-        val insns = methodNode.instructions.toArray()
-        for (i in insns.indices) {
-            val insn = insns[i]
-            when (insn) {
-                is JumpInsnNode ->
-                    if (isBackwardJump(i, insn.label)) return false
-
-                is LookupSwitchInsnNode -> {
-                    insn.dflt?.let {
-                        if (isBackwardJump(i, it)) return false
-                    }
-                    if (insn.labels.any { isBackwardJump(i, it) }) return false
-                }
-
-                is TableSwitchInsnNode -> {
-                    insn.dflt?.let {
-                        if (isBackwardJump(i, it)) return false
-                    }
-                    if (insn.labels.any { isBackwardJump(i, it) }) return false
-                }
-            }
-        }
-
-        return true
+        return !(bodyInfo?.hasLoopsOrTryCatchBlocks ?: methodNode.hasLoopsOrTryCatchBlocks())
     }
 
     private fun continuationValue(): StackValue {
@@ -209,6 +178,8 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
     protected fun inlineCall(nodeAndSmap: SMAPAndMethodNode, inlineDefaultLambda: Boolean, isCallOfFunctionInCorrespondingDefaultDispatch: Boolean): InlineResult {
         assert(delayedHiddenWriting == null) { "'putHiddenParamsIntoLocals' should be called after 'processAndPutHiddenParameters(true)'" }
         val node = nodeAndSmap.node
+        // default lambdas are extracted from the body, so the facts about the compiled body don't hold for it anymore
+        val bodyInfo = nodeAndSmap.bodyInfo.takeIf { !inlineDefaultLambda }
         if (inlineDefaultLambda) {
             for (lambda in extractDefaultLambdas(node)) {
                 invocationParamBuilder.buildParameters().getParameterByDeclarationSlot(lambda.offset).functionalArgument = lambda
@@ -236,7 +207,7 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
             "Method inlining " + sourceCompiler.callElementText,
             SourceMapCopier(sourceMapper, nodeAndSmap.classSMAP, callSite.takeIf { !isCallOfFunctionInCorrespondingDefaultDispatch }),
             info.callSiteInfo, if (functionDescriptor.isInlineOnly()) InlineOnlySmapSkipper(codegen) else null,
-            !isInlinedToInlineFunInKotlinRuntime()
+            !isInlinedToInlineFunInKotlinRuntime(), bodyInfo
         ) //with captured
 
         val remapper = LocalVarRemapper(parameters, initialFrameSize)
@@ -262,7 +233,7 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
         // needs to be inserted before the code that actually uses it.
         generateAssertFieldIfNeeded(info)
 
-        val shouldSpillStack = !canSkipStackSpillingOnInline(node)
+        val shouldSpillStack = !canSkipStackSpillingOnInline(node, bodyInfo)
         if (shouldSpillStack) {
             addInlineMarker(codegen.v, true)
         }
@@ -581,7 +552,10 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
                 result ?: throw IllegalStateException("Couldn't obtain compiled function body for $functionDescriptor")
             }
 
-            return SMAPAndMethodNode(cloneMethodNode(resultInCache.node), resultInCache.classSMAP)
+            // cached nodes are shared between the threads generating classes, cloning reads their instruction lists
+            val node = synchronized(resultInCache.node) { cloneMethodNode(resultInCache.node) }
+            val bodyInfo = state.inlineCache.bodyInfoById.getOrPut(methodId) { computeInlineBodyInfo(node) }
+            return SMAPAndMethodNode(node, resultInCache.classSMAP, bodyInfo)
         }
 
         private fun createDefaultFakeSMAP() = SMAPParser.parseOrCreateDefault(null, null, "fake", -1, -1)
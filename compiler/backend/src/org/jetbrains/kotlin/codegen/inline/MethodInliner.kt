@@ -57,7 +57,8 @@ class MethodInliner(
     private val sourceMapper: SourceMapCopier,
     private val inlineCallSiteInfo: InlineCallSiteInfo,
     private val inlineOnlySmapSkipper: InlineOnlySmapSkipper?, //non null only for root
-    private val shouldPreprocessApiVersionCalls: Boolean = false
+    private val shouldPreprocessApiVersionCalls: Boolean = false,
+    private val bodyInfo: InlineBodyInfo? = null //non null only for root if the body is the unchanged compiled one
 ) {
     private val languageVersionSettings = inliningContext.state.languageVersionSettings
     private val invokeCalls = ArrayList<InvokeCall>()
@@ -780,6 +781,13 @@ class MethodInliner(
             ApiVersionCallsPreprocessingMethodTransformer(targetApiVersion).transform("fake", node)
         }
 
+        // Returns of the compiled body were checked once for all call sites (see computeInlineBodyInfo):
+        // none of them has to be normalized, only the return variable is allocated as LocalReturnsNormalizer would do
+        bodyInfo?.returnVariableSizeIfNormalized?.let {
+            node.maxLocals += it
+            return
+        }
+
         val frames = analyzeMethodNodeWithInterpreter(node, BasicInterpreter())
 
         val localReturnsNormalizer = LocalReturnsNormalizer()
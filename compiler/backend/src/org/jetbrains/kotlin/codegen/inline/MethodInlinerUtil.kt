@@ -8,13 +8,11 @@ package org.jetbrains.kotlin.codegen.inline
 import org.jetbrains.kotlin.codegen.optimization.common.InsnSequence
 import org.jetbrains.kotlin.codegen.optimization.common.isMeaningful
 import org.jetbrains.kotlin.codegen.optimization.nullCheck.isCheckParameterIsNotNull
+import org.jetbrains.kotlin.codegen.pseudoInsns.parsePseudoInsnOrNull
 import org.jetbrains.kotlin.resolve.jvm.AsmTypes
 import org.jetbrains.kotlin.resolve.jvm.jvmSignature.JvmMethodParameterSignature
 import org.jetbrains.org.objectweb.asm.Opcodes
-import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode
-import org.jetbrains.org.objectweb.asm.tree.FieldInsnNode
-import org.jetbrains.org.objectweb.asm.tree.MethodNode
-import org.jetbrains.org.objectweb.asm.tree.VarInsnNode
+import org.jetbrains.org.objectweb.asm.tree.*
 import org.jetbrains.org.objectweb.asm.tree.analysis.*
 
 fun parameterOffsets(isStatic: Boolean, valueParameters: List<JvmMethodParameterSignature>): Array<Int> {
@@ -155,4 +153,65 @@ internal fun analyzeMethodNodeWithInterpreter(node: MethodNode, interpreter: Bas
     } catch (e: AnalyzerException) {
         throw RuntimeException(e)
     }
-}
\ No newline at end of file
+}
+
+internal fun computeInlineBodyInfo(node: MethodNode): InlineBodyInfo =
+    InlineBodyInfo(node.hasLoopsOrTryCatchBlocks(), node.getReturnVariableSizeIfReturnsAreNormalized())
+
+// Instead of checking for loops precisely, we just check if there are any backward jumps -
+// that is, a jump from instruction #i to instruction #j where j < i
+internal fun MethodNode.hasLoopsOrTryCatchBlocks(): Boolean {
+    if (tryCatchBlocks.isNotEmpty()) return true
+
+    fun isBackwardJump(fromIndex: Int, toLabel: LabelNode) =
+        instructions.indexOf(toLabel) < fromIndex
+
+    val insns = instructions.toArray()
+    for (i in insns.indices) {
+        when (val insn = insns[i]) {
+            is JumpInsnNode ->
+                if (isBackwardJump(i, insn.label)) return true
+
+            is LookupSwitchInsnNode -> {
+                insn.dflt?.let {
+                    if (isBackwardJump(i, it)) return true
+                }
+                if (insn.labels.any { isBackwardJump(i, it) }) return true
+            }
+
+            is TableSwitchInsnNode -> {
+                insn.dflt?.let {
+                    if (isBackwardJump(i, it)) return true
+                }
+                if (insn.labels.any { isBackwardJump(i, it) }) return true
+            }
+        }
+    }
+    return false
+}
+
+// A body without markers, try/catch blocks, reified operations and API version checks keeps its control flow and the stack at returns
+// through MethodInliner.prepareNode and the preprocessing, so local returns can be checked once for all call sites.
+private fun MethodNode.getReturnVariableSizeIfReturnsAreNormalized(): Int? {
+    if (tryCatchBlocks.isNotEmpty()) return null
+    for (insn in InsnSequence(instructions)) {
+        if (isInlineMarker(insn) || parsePseudoInsnOrNull(insn) != null || isMarkedReturn(insn)) return null
+        if (ReifiedTypeInliner.isOperationReifiedMarker(insn) || ReifiedTypeInliner.isNeedClassReificationMarker(insn)) return null
+        if (insn is MethodInsnNode && (insn.owner == DEFAULT_LAMBDA_FAKE_CALL || insn.name == "apiVersionIsAtLeast")) return null
+    }
+
+    val frames = analyzeMethodNodeWithInterpreter(this, BasicInterpreter())
+    var returnVariableSize = 0
+    for ((index, insn) in instructions.toArray().withIndex()) {
+        val frame = frames[index] ?: continue
+        if (!isReturnOpcode(insn.opcode)) continue
+
+        if (insn.opcode == Opcodes.RETURN) {
+            if (frame.stackSize != 0) return null
+        } else {
+            if (frame.stackSize != 1) return null
+            returnVariableSize = if (insn.opcode == Opcodes.LRETURN || insn.opcode == Opcodes.DRETURN) 2 else 1
+        }
+    }
+    return returnVariableSize
+}
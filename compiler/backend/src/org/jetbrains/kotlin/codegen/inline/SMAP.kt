@@ -131,7 +131,7 @@ class SMAP(val fileMappings: List<FileMapping>) {
     }
 }
 
-data class SMAPAndMethodNode(val node: MethodNode, val classSMAP: SMAP)
+data class SMAPAndMethodNode(val node: MethodNode, val classSMAP: SMAP, val bodyInfo: InlineBodyInfo? = null)
 
 class FileMapping(val name: String, val path: String) {
     val lineMappings = arrayListOf<RangeMapping>()
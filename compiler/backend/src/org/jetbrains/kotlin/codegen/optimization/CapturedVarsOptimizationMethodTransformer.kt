@@ -44,10 +44,12 @@ class CapturedVarsOptimizationMethodTransformer : MethodTransformer() {
     //      - store to a local variable
     //      - ALOAD, ASTORE
     //      - DUP, POP
+    //      - CHECKCAST to its own type
     //      - GETFIELD <owner>.element, PUTFIELD <owner>.element
-    //  * There's a corresponding local variable definition,
-    //      and all ALOAD/ASTORE instructions operate on that particular local variable.
-    //  * Its 'element' field is initialized at start of local variable visibility range.
+    //  * If there's a single corresponding local variable definition,
+    //      its 'element' field is initialized at start of local variable visibility range.
+    //      Otherwise (no definition, or several definitions for copies of the same Ref after inlining)
+    //      the element is stored in a new local variable, initialized where the Ref is created.
     //
     // Note that for code that doesn't create Ref objects explicitly these conditions are true,
     // unless the Ref object escapes to a local class constructor (including local classes for lambdas).
@@ -56,19 +58,22 @@ class CapturedVarsOptimizationMethodTransformer : MethodTransformer() {
         var hazard = false
 
         var initCallInsn: MethodInsnNode? = null
-        var localVar: LocalVariableNode? = null
+        val localVars: MutableList<LocalVariableNode> = ArrayList()
         var localVarIndex = -1
         val astoreInsns: MutableCollection<VarInsnNode> = LinkedHashSet()
         val aloadInsns: MutableCollection<VarInsnNode> = LinkedHashSet()
         val stackInsns: MutableCollection<AbstractInsnNode> = LinkedHashSet()
         val getFieldInsns: MutableCollection<FieldInsnNode> = LinkedHashSet()
         val putFieldInsns: MutableCollection<FieldInsnNode> = LinkedHashSet()
-        var cleanVarInstruction: VarInsnNode? = null
+        val cleanVarInstructions: MutableCollection<VarInsnNode> = LinkedHashSet()
+
+        // element is kept in a new local variable rather than in the slot of the Ref variable
+        val usesNewLocal: Boolean
+            get() = localVars.size != 1 || valueType.size != 1
 
         fun canRewrite(): Boolean =
             !hazard &&
                     initCallInsn != null &&
-                    localVar != null &&
                     localVarIndex >= 0
 
         override fun onUseAsTainted() {
@@ -118,6 +123,19 @@ class CapturedVarsOptimizationMethodTransformer : MethodTransformer() {
                 }
                         ?: super.newOperation(insn)
 
+            // A value which is a Ref on some paths and not a reference on others (e.g. a local variable
+            // in an exception handler or at a loop header before the Ref is created) can't be used by verifiable code,
+            // so such a merge doesn't make the Ref escape.
+            override fun merge(v: BasicValue, w: BasicValue): BasicValue =
+                when {
+                    v is ProperTrackedReferenceValue && !w.isReference() -> v
+                    w is ProperTrackedReferenceValue && !v.isReference() -> w
+                    else -> super.merge(v, w)
+                }
+
+            private fun BasicValue.isReference(): Boolean =
+                type?.sort.let { it == Type.OBJECT || it == Type.ARRAY }
+
             override fun processRefValueUsage(value: TrackedReferenceValue, insn: AbstractInsnNode, position: Int) {
                 for (descriptor in value.descriptors) {
                     if (descriptor !is CapturedVarDescriptor) throw AssertionError("Unexpected descriptor: $descriptor")
@@ -137,6 +155,8 @@ class CapturedVarsOptimizationMethodTransformer : MethodTransformer() {
                                 descriptor.initCallInsn = insn
                         insn.opcode == Opcodes.DUP ->
                             descriptor.stackInsns.add(insn)
+                        insn.opcode == Opcodes.CHECKCAST && insn is TypeInsnNode && insn.desc == descriptor.refType.internalName ->
+                            descriptor.stackInsns.add(insn)
                         else ->
                             descriptor.hazard = true
                     }
@@ -188,46 +208,37 @@ class CapturedVarsOptimizationMethodTransformer : MethodTransformer() {
 
                 if (descriptor.hazard) continue
 
-                if (descriptor.localVar == null) {
-                    descriptor.localVar = localVar
-                } else {
-                    descriptor.hazard = true
-                }
+                descriptor.localVars.add(localVar)
             }
 
             for (refValue in refValues) {
                 if (refValue.hazard) continue
-                val localVar = refValue.localVar ?: continue
-                val oldVarIndex = localVar.index
 
-                if (refValue.valueType.size != 1) {
-                    refValue.localVarIndex = methodNode.maxLocals
-                    methodNode.maxLocals += 2
-                    localVar.index = refValue.localVarIndex
-                } else {
-                    refValue.localVarIndex = localVar.index
+                for (localVar in refValue.localVars) {
+                    refValue.cleanVarInstructions.addAll(findCleanInstructions(localVar, methodNode.instructions))
                 }
 
-                val cleanInstructions = findCleanInstructions(refValue, oldVarIndex, methodNode.instructions)
-                if (cleanInstructions.size > 1) {
-                    refValue.hazard = true
-                    continue
+                if (refValue.usesNewLocal) {
+                    refValue.localVarIndex = methodNode.maxLocals
+                    methodNode.maxLocals += refValue.valueType.size
+                } else {
+                    refValue.localVarIndex = refValue.localVars.single().index
                 }
-                refValue.cleanVarInstruction = cleanInstructions.firstOrNull()
+                refValue.localVars.forEach { it.index = refValue.localVarIndex }
             }
         }
 
-        private fun findCleanInstructions(refValue: CapturedVarDescriptor, oldVarIndex: Int, instructions: InsnList): List<VarInsnNode> {
+        // After visiting a block codegen clears the variables declared in it by storing null
+        private fun findCleanInstructions(localVar: LocalVariableNode, instructions: InsnList): List<VarInsnNode> {
+            val startIndex = instructions.indexOf(localVar.start)
+            val endIndex = instructions.indexOf(localVar.end)
             return InsnSequence(instructions).filterIsInstance<VarInsnNode>().filter {
-                it.opcode == Opcodes.ASTORE && it.`var` == oldVarIndex
+                it.opcode == Opcodes.ASTORE && it.`var` == localVar.index
             }.filter {
                 it.previous?.opcode == Opcodes.ACONST_NULL
             }.filter {
                 val operationIndex = instructions.indexOf(it)
-                val localVariableNode = refValue.localVar!!
-                instructions.indexOf(localVariableNode.start) < operationIndex && operationIndex < instructions.indexOf(
-                    localVariableNode.end
-                )
+                startIndex < operationIndex && operationIndex < endIndex
             }.toList()
         }
 
@@ -255,14 +266,16 @@ class CapturedVarsOptimizationMethodTransformer : MethodTransformer() {
 
         private fun rewriteRefValue(capturedVar: CapturedVarDescriptor) {
             methodNode.instructions.run {
-                val localVar = capturedVar.localVar!!
-                localVar.signature = null
-                localVar.desc = capturedVar.valueType.descriptor
+                for (localVar in capturedVar.localVars) {
+                    localVar.signature = null
+                    localVar.desc = capturedVar.valueType.descriptor
+                }
 
                 val loadOpcode = capturedVar.valueType.getOpcode(Opcodes.ILOAD)
                 val storeOpcode = capturedVar.valueType.getOpcode(Opcodes.ISTORE)
 
-                if (capturedVar.putFieldInsns.none { it.getIndex() < localVar.start.getIndex() }) {
+                val localVarStart = capturedVar.localVars.singleOrNull()?.start?.getIndex()
+                if (localVarStart == null || capturedVar.putFieldInsns.none { it.getIndex() < localVarStart }) {
                     // variable needs to be initialized before its live range can begin
                     insertBefore(capturedVar.newInsn, InsnNode(AsmUtil.defaultValueOpcode(capturedVar.valueType)))
                     insertBefore(capturedVar.newInsn, VarInsnNode(storeOpcode, capturedVar.localVarIndex))
@@ -279,7 +292,7 @@ class CapturedVarsOptimizationMethodTransformer : MethodTransformer() {
 
                 //after visiting block codegen tries to delete all allocated references:
                 // see ExpressionCodegen.addLeaveTaskToRemoveLocalVariableFromFrameMap
-                capturedVar.cleanVarInstruction?.let {
+                capturedVar.cleanVarInstructions.forEach {
                     remove(it.previous)
                     remove(it)
                 }
@@ -21,6 +21,7 @@ import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpr
 import org.jetbrains.kotlin.codegen.optimization.common.StrictBasicValue
 import org.jetbrains.kotlin.codegen.optimization.fixStack.peek
 import org.jetbrains.kotlin.codegen.optimization.fixStack.top
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisCache
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
 import org.jetbrains.kotlin.utils.addToStdlib.cast
 import org.jetbrains.kotlin.utils.addToStdlib.safeAs
@@ -34,13 +35,25 @@ class ConstantConditionEliminationMethodTransformer : MethodTransformer() {
     private val deadCodeElimination = DeadCodeEliminationMethodTransformer()
 
     override fun transform(internalClassName: String, methodNode: MethodNode) {
+        transform(internalClassName, methodNode, MethodAnalysisCache(internalClassName, methodNode))
+    }
+
+    override fun transform(internalClassName: String, methodNode: MethodNode, analyses: MethodAnalysisCache): Boolean {
+        var changed = false
         do {
-            val changes = ConstantConditionsOptimization(internalClassName, methodNode).run()
-            if (changes) deadCodeElimination.transform(internalClassName, methodNode)
+            val changes = ConstantConditionsOptimization(methodNode, analyses).run()
+            if (changes) {
+                changed = true
+                analyses.invalidate()
+                if (deadCodeElimination.transform(internalClassName, methodNode, analyses)) {
+                    analyses.invalidate()
+                }
+            }
         } while (changes)
+        return changed
     }
 
-    private class ConstantConditionsOptimization(val internalClassName: String, val methodNode: MethodNode) {
+    private class ConstantConditionsOptimization(val methodNode: MethodNode, val analyses: MethodAnalysisCache) {
         fun run(): Boolean {
             val actions = collectRewriteActions()
             actions.forEach { it() }
@@ -49,11 +62,11 @@ class ConstantConditionEliminationMethodTransformer : MethodTransformer() {
 
         private fun collectRewriteActions(): List<() -> Unit> =
             arrayListOf<() -> Unit>().also { actions ->
-                val frames = analyze(internalClassName, methodNode, ConstantPropagationInterpreter())
+                val frames = analyses.analyzeSparse(ConstantPropagationInterpreter())
                 val insns = methodNode.instructions.toArray()
-                for (i in frames.indices) {
-                    val frame = frames[i] ?: continue
+                for (i in insns.indices) {
                     val insn = insns[i] as? JumpInsnNode ?: continue
+                    val frame = frames[i] ?: continue
                     when (insn.opcode) {
                         in Opcodes.IFEQ..Opcodes.IFLE ->
                             tryRewriteComparisonWithZero(insn, frame, actions)
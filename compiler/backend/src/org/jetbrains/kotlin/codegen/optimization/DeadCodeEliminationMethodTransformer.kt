@@ -18,7 +18,9 @@ package org.jetbrains.kotlin.codegen.optimization
 
 import org.jetbrains.kotlin.codegen.inline.remove
 import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
+import org.jetbrains.kotlin.codegen.optimization.common.SparseFrames
 import org.jetbrains.kotlin.codegen.optimization.common.removeEmptyCatchBlocks
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisCache
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
 import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode
 import org.jetbrains.org.objectweb.asm.tree.LabelNode
@@ -30,12 +32,15 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
         transformWithResult(internalClassName, methodNode)
     }
 
+    override fun transform(internalClassName: String, methodNode: MethodNode, analyses: MethodAnalysisCache): Boolean =
+        removeDeadCodeByFrames(methodNode, analyses.getBasicFrames()).hasChangedMethod()
+
     fun transformWithResult(internalClassName: String, methodNode: MethodNode): Result {
-        val frames = analyze(internalClassName, methodNode, OptimizationBasicInterpreter())
+        val frames = analyzeSparse(internalClassName, methodNode, OptimizationBasicInterpreter())
         return removeDeadCodeByFrames(methodNode, frames)
     }
 
-    fun removeDeadCodeByFrames(methodNode: MethodNode, frames: Array<out Any?>): Result {
+    fun removeDeadCodeByFrames(methodNode: MethodNode, frames: SparseFrames<*>): Result {
         val insnsToRemove = ArrayList<AbstractInsnNode>()
 
         val insns = methodNode.instructions.toArray()
@@ -49,12 +54,13 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
         methodNode.remove(insnsToRemove)
 
         // Remove empty try-catch blocks to make sure we don't break data flow analysis invariants by dead code elimination.
+        val tryCatchBlocksCount = methodNode.tryCatchBlocks.size
         methodNode.removeEmptyCatchBlocks()
 
-        return Result(insnsToRemove.toSet())
+        return Result(insnsToRemove.toSet(), hasRemovedTryCatchBlocks = methodNode.tryCatchBlocks.size != tryCatchBlocksCount)
     }
 
-    private fun shouldRemove(insn: AbstractInsnNode, index: Int, frames: Array<out Any?>): Boolean =
+    private fun shouldRemove(insn: AbstractInsnNode, index: Int, frames: SparseFrames<*>): Boolean =
         when (insn) {
             is LabelNode ->
                 // Do not remove label nodes because they can be referred by try/catch blocks or local variables table
@@ -62,10 +68,10 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
             is LineNumberNode ->
                 isDeadLineNumber(insn, index, frames)
             else ->
-                frames[index] == null
+                !frames.isReachable(index)
         }
 
-    private fun isDeadLineNumber(insn: LineNumberNode, index: Int, frames: Array<out Any?>): Boolean {
+    private fun isDeadLineNumber(insn: LineNumberNode, index: Int, frames: SparseFrames<*>): Boolean {
         // Line number node is "dead" if the corresponding line number interval
         // contains at least one "dead" meaningful instruction and no "live" meaningful instructions.
         var finger: AbstractInsnNode = insn
@@ -80,7 +86,7 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
                 is LineNumberNode ->
                     if (finger.line != insn.line) return hasDeadInsn
                 else -> {
-                    if (frames[fingerIndex] != null) return false
+                    if (frames.isReachable(fingerIndex)) return false
                     hasDeadInsn = true
                 }
             }
@@ -88,8 +94,10 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
         return true
     }
 
-    class Result(private val removedNodes: Set<AbstractInsnNode>) {
+    class Result(private val removedNodes: Set<AbstractInsnNode>, private val hasRemovedTryCatchBlocks: Boolean) {
         fun hasRemovedAnything() = removedNodes.isNotEmpty()
+        // removed try/catch blocks change the control flow graph even if no instruction was removed
+        fun hasChangedMethod() = hasRemovedAnything() || hasRemovedTryCatchBlocks
         fun isRemoved(node: AbstractInsnNode) = removedNodes.contains(node)
         fun isAlive(node: AbstractInsnNode) = !isRemoved(node)
     }
@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.codegen.optimization
 
 import org.jetbrains.kotlin.codegen.optimization.common.removeEmptyCatchBlocks
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisCache
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
 import org.jetbrains.kotlin.utils.SmartIdentityTable
 import org.jetbrains.org.objectweb.asm.Label
@@ -28,17 +29,21 @@ class LabelNormalizationMethodTransformer : MethodTransformer() {
         TransformerForMethod(methodNode).transform()
     }
 
+    override fun transform(internalClassName: String, methodNode: MethodNode, analyses: MethodAnalysisCache): Boolean =
+        TransformerForMethod(methodNode).transform()
+
     private class TransformerForMethod(val methodNode: MethodNode) {
         val instructions = methodNode.instructions
         val newLabelNodes = SmartIdentityTable<LabelNode, LabelNode>()
 
-        fun transform() {
-            if (rewriteLabelInstructions()) {
-                rewriteNonLabelInstructions()
-                rewriteTryCatchBlocks()
-                rewriteLocalVars()
-                methodNode.removeEmptyCatchBlocks()
-            }
+        fun transform(): Boolean {
+            if (!rewriteLabelInstructions()) return false
+
+            rewriteNonLabelInstructions()
+            rewriteTryCatchBlocks()
+            rewriteLocalVars()
+            methodNode.removeEmptyCatchBlocks()
+            return true
         }
 
         private fun rewriteLabelInstructions(): Boolean {
@@ -16,6 +16,7 @@
 
 package org.jetbrains.kotlin.codegen.optimization
 
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisCache
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
 import org.jetbrains.org.objectweb.asm.tree.MethodNode
 import org.jetbrains.org.objectweb.asm.tree.analysis.BasicVerifier
@@ -28,4 +29,9 @@ class MethodVerifier(private val checkPoint: String) : MethodTransformer() {
             throw AssertionError("$checkPoint: incorrect bytecode", e)
         }
     }
+
+    override fun transform(internalClassName: String, methodNode: MethodNode, analyses: MethodAnalysisCache): Boolean {
+        transform(internalClassName, methodNode)
+        return false
+    }
 }
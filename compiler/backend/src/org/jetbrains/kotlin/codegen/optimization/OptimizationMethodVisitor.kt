@@ -20,9 +20,11 @@ import org.jetbrains.kotlin.codegen.TransformationMethodVisitor
 import org.jetbrains.kotlin.codegen.optimization.boxing.PopBackwardPropagationTransformer
 import org.jetbrains.kotlin.codegen.optimization.boxing.RedundantBoxingMethodTransformer
 import org.jetbrains.kotlin.codegen.optimization.boxing.StackPeepholeOptimizationsTransformer
+import org.jetbrains.kotlin.codegen.optimization.common.countBasicBlocks
 import org.jetbrains.kotlin.codegen.optimization.common.prepareForEmitting
 import org.jetbrains.kotlin.codegen.optimization.nullCheck.RedundantNullCheckMethodTransformer
 import org.jetbrains.kotlin.codegen.optimization.transformer.CompositeMethodTransformer
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisCache
 import org.jetbrains.kotlin.codegen.state.GenerationState
 import org.jetbrains.org.objectweb.asm.MethodVisitor
 import org.jetbrains.org.objectweb.asm.tree.MethodNode
@@ -40,11 +42,13 @@ class OptimizationMethodVisitor(
         UninitializedStoresMethodTransformer(generationState.constructorCallNormalizationMode)
 
     val normalizationMethodTransformer = CompositeMethodTransformer(
+        generationState.methodTransformerStatistics,
         FixStackWithLabelNormalizationMethodTransformer(),
         MethodVerifier("AFTER mandatory stack transformations")
     )
 
     val optimizationTransformer = CompositeMethodTransformer(
+        generationState.methodTransformerStatistics,
         CapturedVarsOptimizationMethodTransformer(),
         RedundantNullCheckMethodTransformer(generationState),
         RedundantCheckCastEliminationMethodTransformer(),
@@ -58,15 +62,32 @@ class OptimizationMethodVisitor(
         MethodVerifier("AFTER optimizations")
     )
 
+    // Optimizations running on SparseMethodAnalyzer only, applied to methods too large for optimizationTransformer
+    val sparseFramesOptimizationTransformer = CompositeMethodTransformer(
+        generationState.methodTransformerStatistics,
+        RedundantNullCheckMethodTransformer(generationState),
+        RedundantCheckCastEliminationMethodTransformer(),
+        ConstantConditionEliminationMethodTransformer(),
+        DeadCodeEliminationMethodTransformer(),
+        RedundantGotoMethodTransformer(),
+        RedundantNopsCleanupMethodTransformer()
+    )
+
     override fun performTransformations(methodNode: MethodNode) {
         normalizationMethodTransformer.transform("fake", methodNode)
         constructorCallNormalizationTransformer.transform("fake", methodNode)
 
-        if (canBeOptimized(methodNode) && !generationState.disableOptimization) {
-            optimizationTransformer.transform("fake", methodNode)
+        // shared by the optimizations and the final dead code elimination
+        val analyses = MethodAnalysisCache("fake", methodNode)
+        if (!generationState.disableOptimization) {
+            if (canBeOptimized(methodNode)) {
+                optimizationTransformer.transform("fake", methodNode, analyses)
+            } else if (canBeOptimizedUsingSparseFrames(methodNode)) {
+                sparseFramesOptimizationTransformer.transform("fake", methodNode, analyses)
+            }
         }
 
-        DeadCodeEliminationMethodTransformer().transform("fake", methodNode)
+        DeadCodeEliminationMethodTransformer().transform("fake", methodNode, analyses)
 
         methodNode.prepareForEmitting()
     }
@@ -79,6 +100,11 @@ class OptimizationMethodVisitor(
             return totalFramesSizeMb < MEMORY_LIMIT_BY_METHOD_MB
         }
 
+        fun canBeOptimizedUsingSparseFrames(node: MethodNode): Boolean {
+            val totalFramesSizeMb = countBasicBlocks(node).toLong() * (node.maxLocals + node.maxStack) / (1024 * 1024)
+            return totalFramesSizeMb < MEMORY_LIMIT_BY_METHOD_MB
+        }
+
         fun canBeOptimizedUsingSourceInterpreter(node: MethodNode): Boolean {
             val frameSize = node.maxLocals + node.maxStack
             val methodSize = node.instructions.size().toLong()
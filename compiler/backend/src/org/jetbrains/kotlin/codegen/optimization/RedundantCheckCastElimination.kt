@@ -17,8 +17,8 @@
 package org.jetbrains.kotlin.codegen.optimization
 
 import org.jetbrains.kotlin.codegen.inline.ReifiedTypeInliner
-import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
 import org.jetbrains.kotlin.codegen.optimization.fixStack.top
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisCache
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
 import org.jetbrains.org.objectweb.asm.Opcodes
 import org.jetbrains.org.objectweb.asm.Type
@@ -27,34 +27,36 @@ import org.jetbrains.org.objectweb.asm.tree.TypeInsnNode
 
 class RedundantCheckCastEliminationMethodTransformer : MethodTransformer() {
     override fun transform(internalClassName: String, methodNode: MethodNode) {
+        transform(internalClassName, methodNode, MethodAnalysisCache(internalClassName, methodNode))
+    }
+
+    override fun transform(internalClassName: String, methodNode: MethodNode, analyses: MethodAnalysisCache): Boolean {
         val insns = methodNode.instructions.toArray()
-        if (!insns.any { it.opcode == Opcodes.CHECKCAST }) return
+        if (!insns.any { it.opcode == Opcodes.CHECKCAST }) return false
 
         val redundantCheckCasts = ArrayList<TypeInsnNode>()
 
-        val frames = analyze(internalClassName, methodNode, OptimizationBasicInterpreter())
+        val frames = analyses.getBasicFrames()
         for (i in insns.indices) {
-            val valueType = frames[i]?.top()?.type ?: continue
             val insn = insns[i]
+            if (insn !is TypeInsnNode || insn.opcode != Opcodes.CHECKCAST) continue
             if (ReifiedTypeInliner.isOperationReifiedMarker(insn.previous)) continue
+            val valueType = frames[i]?.top()?.type ?: continue
 
-            if (insn is TypeInsnNode) {
-                val insnType = Type.getObjectType(insn.desc)
-                if (!isTrivialSubtype(insnType, valueType)) continue
+            val insnType = Type.getObjectType(insn.desc)
+            if (!isTrivialSubtype(insnType, valueType)) continue
 
-                //Keep casts to multiarray types cause dex doesn't recognize ANEWARRAY [Ljava/lang/Object; as Object [][], but Object [] type
-                //It's not clear is it bug in dex or not and maybe best to distinguish such types from MULTINEWARRRAY ones in method analyzer
-                if (isMultiArrayType(insnType)) continue
+            //Keep casts to multiarray types cause dex doesn't recognize ANEWARRAY [Ljava/lang/Object; as Object [][], but Object [] type
+            //It's not clear is it bug in dex or not and maybe best to distinguish such types from MULTINEWARRRAY ones in method analyzer
+            if (isMultiArrayType(insnType)) continue
 
-                if (insn.opcode == Opcodes.CHECKCAST) {
-                    redundantCheckCasts.add(insn)
-                }
-            }
+            redundantCheckCasts.add(insn)
         }
 
         redundantCheckCasts.forEach {
             methodNode.instructions.remove(it)
         }
+        return redundantCheckCasts.isNotEmpty()
     }
 
     private fun isTrivialSubtype(superType: Type, subType: Type) =
@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.codegen.optimization
 
 import org.jetbrains.kotlin.codegen.optimization.common.isMeaningful
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisCache
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
 import org.jetbrains.org.objectweb.asm.Opcodes
 import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode
@@ -26,6 +27,10 @@ import org.jetbrains.org.objectweb.asm.tree.LineNumberNode
 import org.jetbrains.org.objectweb.asm.tree.MethodNode
 
 class RedundantGotoMethodTransformer : MethodTransformer() {
+    override fun transform(internalClassName: String, methodNode: MethodNode) {
+        transform(internalClassName, methodNode, MethodAnalysisCache(internalClassName, methodNode))
+    }
+
     /**
      * Removes redundant GOTO's in the following cases:
      *  (1) subsequent labels
@@ -42,7 +47,7 @@ class RedundantGotoMethodTransformer : MethodTransformer() {
      *      goto Label2 (must not be removed due to the previous instruction that can fallthrough on this goto)
      *      ...
      */
-    override fun transform(internalClassName: String, methodNode: MethodNode) {
+    override fun transform(internalClassName: String, methodNode: MethodNode, analyses: MethodAnalysisCache): Boolean {
         val insns = methodNode.instructions.toArray().apply { reverse() }
         val insnsToRemove = arrayListOf<AbstractInsnNode>()
         val currentLabels = hashSetOf<LabelNode>()
@@ -82,6 +87,8 @@ class RedundantGotoMethodTransformer : MethodTransformer() {
         for (insnToRemove in insnsToRemove) {
             methodNode.instructions.remove(insnToRemove)
         }
+
+        return insnsToRemove.isNotEmpty() || labelsToReplace.isNotEmpty()
     }
 
     private fun rewriteLabelIfNeeded(
@@ -19,6 +19,7 @@ package org.jetbrains.kotlin.codegen.optimization
 import org.jetbrains.kotlin.codegen.optimization.common.InsnSequence
 import org.jetbrains.kotlin.codegen.optimization.common.findNextOrNull
 import org.jetbrains.kotlin.codegen.optimization.common.isMeaningful
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisCache
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
 import org.jetbrains.kotlin.utils.addIfNotNull
 import org.jetbrains.org.objectweb.asm.Opcodes
@@ -30,7 +31,11 @@ import java.util.*
 
 class RedundantNopsCleanupMethodTransformer : MethodTransformer() {
     override fun transform(internalClassName: String, methodNode: MethodNode) {
-        LabelNormalizationMethodTransformer().transform(internalClassName, methodNode)
+        transform(internalClassName, methodNode, MethodAnalysisCache(internalClassName, methodNode))
+    }
+
+    override fun transform(internalClassName: String, methodNode: MethodNode, analyses: MethodAnalysisCache): Boolean {
+        var changed = LabelNormalizationMethodTransformer().transform(internalClassName, methodNode, analyses)
 
         val requiredNops = HashSet<AbstractInsnNode>()
 
@@ -46,10 +51,12 @@ class RedundantNopsCleanupMethodTransformer : MethodTransformer() {
                 val toRemove = current
                 current = current.next
                 methodNode.instructions.remove(toRemove)
+                changed = true
             } else {
                 current = current.next
             }
         }
+        return changed
     }
 
     private fun recordNopsRequiredForDebugger(methodNode: MethodNode, requiredNops: MutableSet<AbstractInsnNode>) {
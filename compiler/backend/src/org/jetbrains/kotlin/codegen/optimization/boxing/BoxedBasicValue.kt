@@ -28,6 +28,7 @@ import java.util.*
 abstract class BoxedBasicValue(type: Type) : StrictBasicValue(type) {
     abstract val descriptor: BoxedValueDescriptor
     abstract fun taint(): BoxedBasicValue
+    abstract fun nullable(): BoxedBasicValue
 
     override fun equals(other: Any?) = this === other
     override fun hashCode() = System.identityHashCode(this)
@@ -44,6 +45,9 @@ class CleanBoxedValue(
 
     private var tainted: TaintedBoxedValue? = null
     override fun taint(): BoxedBasicValue = tainted ?: TaintedBoxedValue(this).also { tainted = it }
+
+    private var nullable: NullableBoxedValue? = null
+    override fun nullable(): BoxedBasicValue = nullable ?: NullableBoxedValue(this).also { nullable = it }
 }
 
 
@@ -51,6 +55,54 @@ class TaintedBoxedValue(private val boxedBasicValue: CleanBoxedValue) : BoxedBas
     override val descriptor get() = boxedBasicValue.descriptor
 
     override fun taint(): BoxedBasicValue = this
+    override fun nullable(): BoxedBasicValue = this
+}
+
+
+// Boxed value merged with `null` (see NullConstantValue): after unboxing, nullability is kept in a separate flag variable
+class NullableBoxedValue(private val boxedBasicValue: CleanBoxedValue) : BoxedBasicValue(boxedBasicValue.type) {
+    override val descriptor get() = boxedBasicValue.descriptor
+
+    override fun taint(): BoxedBasicValue = boxedBasicValue.taint()
+    override fun nullable(): BoxedBasicValue = this
+}
+
+
+// `null` pushed by a particular ACONST_NULL instruction, so that it can be unboxed along with the boxed values it is merged with
+class NullConstantValue(val insn: AbstractInsnNode) : StrictBasicValue(AsmTypes.OBJECT_TYPE) {
+    private val mergedWith = LinkedHashSet<BoxedValueDescriptor>()
+    private val associatedInsns = HashSet<AbstractInsnNode>()
+    private val associatedVariables = HashSet<Int>()
+
+    var isEscaping = false; private set
+
+    val descriptors: Set<BoxedValueDescriptor>
+        get() = mergedWith
+
+    fun addMergedWith(descriptor: BoxedValueDescriptor) {
+        mergedWith.add(descriptor)
+    }
+
+    fun addInsn(insnNode: AbstractInsnNode) {
+        associatedInsns.add(insnNode)
+    }
+
+    fun getAssociatedInsns(): Set<AbstractInsnNode> =
+        associatedInsns
+
+    fun addVariableIndex(index: Int) {
+        associatedVariables.add(index)
+    }
+
+    fun getVariablesIndexes(): Set<Int> =
+        associatedVariables
+
+    fun markAsEscaping() {
+        isEscaping = true
+    }
+
+    override fun equals(other: Any?) = this === other
+    override fun hashCode() = System.identityHashCode(this)
 }
 
 
@@ -64,6 +116,7 @@ class BoxedValueDescriptor(
     private val unboxingWithCastInsns = HashSet<Pair<AbstractInsnNode, Type>>()
     private val associatedVariables = HashSet<Int>()
     private val mergedWith = HashSet<BoxedValueDescriptor>()
+    private val nullValues = HashSet<NullConstantValue>()
 
     var isSafeToRemove = true; private set
     val unboxedType: Type = getUnboxedType(boxedType, generationState)
@@ -89,6 +142,15 @@ class BoxedValueDescriptor(
     fun getMergedWith(): Iterable<BoxedValueDescriptor> =
         mergedWith
 
+    fun addNullValue(value: NullConstantValue) {
+        nullValues.add(value)
+    }
+
+    fun getNullValues(): Set<NullConstantValue> =
+        nullValues
+
+    fun isNullable() = nullValues.isNotEmpty()
+
     fun markAsUnsafeToRemove() {
         isSafeToRemove = false
     }
@@ -21,6 +21,7 @@ import org.jetbrains.kotlin.codegen.AsmUtil
 import org.jetbrains.kotlin.codegen.intrinsics.IntrinsicMethods
 import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
 import org.jetbrains.kotlin.codegen.optimization.common.StrictBasicValue
+import org.jetbrains.kotlin.codegen.optimization.nullCheck.isCheckNotNull
 import org.jetbrains.kotlin.codegen.state.GenerationState
 import org.jetbrains.kotlin.codegen.state.KotlinTypeMapper
 import org.jetbrains.kotlin.name.FqName
@@ -31,6 +32,7 @@ import org.jetbrains.org.objectweb.asm.Type
 import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode
 import org.jetbrains.org.objectweb.asm.tree.InsnList
 import org.jetbrains.org.objectweb.asm.tree.MethodInsnNode
+import org.jetbrains.org.objectweb.asm.tree.VarInsnNode
 import org.jetbrains.org.objectweb.asm.tree.analysis.BasicValue
 import java.util.*
 
@@ -39,6 +41,10 @@ open class BoxingInterpreter(
     private val generationState: GenerationState
 ) : OptimizationBasicInterpreter() {
     private val boxingPlaces = HashMap<Int, BoxedBasicValue>()
+    private val nullConstants = HashMap<Int, NullConstantValue>()
+
+    protected val nullConstantValues: Collection<NullConstantValue>
+        get() = nullConstants.values
 
     protected open fun createNewBoxing(
         insn: AbstractInsnNode,
@@ -57,6 +63,12 @@ open class BoxingInterpreter(
         }
     }
 
+    override fun newOperation(insn: AbstractInsnNode): BasicValue? =
+        if (insn.opcode == Opcodes.ACONST_NULL)
+            nullConstants.getOrPut(insnList.indexOf(insn)) { NullConstantValue(insn) }
+        else
+            super.newOperation(insn)
+
     override fun naryOperation(insn: AbstractInsnNode, values: List<BasicValue>): BasicValue? {
         values.forEach {
             checkUsedValue(it)
@@ -101,6 +113,10 @@ open class BoxingInterpreter(
                 onCompareTo(insn, values[0] as BoxedBasicValue, values[1] as BoxedBasicValue)
                 value
             }
+            insn.isCheckNotNull() && firstArg is BoxedBasicValue -> {
+                onNullCheck(insn, firstArg)
+                value
+            }
             else -> {
                 // N-ary operation should be a method call or multinewarray.
                 // Arguments for multinewarray could be only numeric,
@@ -115,6 +131,8 @@ open class BoxingInterpreter(
         for (arg in this) {
             if (arg is BoxedBasicValue) {
                 onMethodCallWithBoxedValue(arg)
+            } else if (arg is NullConstantValue) {
+                arg.markAsEscaping()
             }
         }
     }
@@ -131,6 +149,7 @@ open class BoxingInterpreter(
     protected open fun isExactValue(value: BasicValue) =
         value is ProgressionIteratorBasicValue ||
                 value is CleanBoxedValue ||
+                value is NullableBoxedValue ||
                 value.type != null && isProgressionClass(value.type)
 
     override fun merge(v: BasicValue, w: BasicValue) =
@@ -143,17 +162,46 @@ open class BoxingInterpreter(
                     v is TaintedBoxedValue -> v
                     w is TaintedBoxedValue -> w
                     v.type != w.type -> v.taint()
+                    w is NullableBoxedValue -> v.nullable()
                     else -> v
                 }
             }
+            v is BoxedBasicValue && w is NullConstantValue ->
+                mergeWithNull(v, w)
+            w is BoxedBasicValue && v is NullConstantValue ->
+                mergeWithNull(w, v)
             v is BoxedBasicValue ->
                 v.taint()
             w is BoxedBasicValue ->
                 w.taint()
+            v is NullConstantValue || w is NullConstantValue ->
+                mergeNullConstant(v, w)
             else ->
                 super.merge(v, w)
         }
 
+    // Only primitive values can be unboxed together with `null`: it is replaced with the default value and a nullability flag
+    private fun mergeWithNull(v: BoxedBasicValue, w: NullConstantValue): BasicValue {
+        val descriptor = v.descriptor
+        if (v is TaintedBoxedValue || descriptor.isInlineClassValue || !AsmUtil.isPrimitive(descriptor.unboxedType)) {
+            w.markAsEscaping()
+            return v.taint()
+        }
+        onMergeWithNull(v, w)
+        return v.nullable()
+    }
+
+    private fun mergeNullConstant(v: BasicValue, w: BasicValue): BasicValue {
+        if (v == w) return v
+        // `null`s coming from different instructions or merged with other values are not tracked anymore
+        if (v is NullConstantValue) v.markAsEscaping()
+        if (w is NullConstantValue) w.markAsEscaping()
+        return super.merge(v.withoutNullConstant(), w.withoutNullConstant())
+    }
+
+    private fun BasicValue.withoutNullConstant(): BasicValue =
+        if (this is NullConstantValue) StrictBasicValue.NULL_VALUE else this
+
     protected open fun onNewBoxedValue(value: BoxedBasicValue) {}
     protected open fun onUnboxing(insn: AbstractInsnNode, value: BoxedBasicValue, resultType: Type) {}
     protected open fun onAreEqual(insn: AbstractInsnNode, value1: BoxedBasicValue, value2: BoxedBasicValue) {}
@@ -161,6 +209,8 @@ open class BoxingInterpreter(
     protected open fun onMethodCallWithBoxedValue(value: BoxedBasicValue) {}
     protected open fun onMergeFail(value: BoxedBasicValue) {}
     protected open fun onMergeSuccess(v: BoxedBasicValue, w: BoxedBasicValue) {}
+    protected open fun onMergeWithNull(v: BoxedBasicValue, w: NullConstantValue) {}
+    protected open fun onNullCheck(insn: AbstractInsnNode, value: BoxedBasicValue) {}
 
 }
 
@@ -289,6 +339,22 @@ fun canValuesBeUnboxedForAreEqual(values: List<BasicValue>, generationState: Gen
 fun AbstractInsnNode.isJavaLangComparableCompareToForSameTypedBoxedValues(values: List<BasicValue>) =
     isJavaLangComparableCompareTo() && areSameTypedPrimitiveBoxedValues(values)
 
+// Variable the checked or stored value comes from, for `ALOAD x; [DUP;] <this>`: nullability of an unboxed value is kept per variable
+fun AbstractInsnNode.getOperandVariableIndex(): Int? {
+    var load = previous ?: return null
+    if (load.opcode == Opcodes.DUP) {
+        load = load.previous ?: return null
+    }
+    return if (load.opcode == Opcodes.ALOAD) (load as VarInsnNode).`var` else null
+}
+
+// `DUP; IFNULL L; <this>` or `DUP; Intrinsics.checkNotNull; <this>`: the operand of this instruction is not null
+fun AbstractInsnNode.isOperandCheckedForNull(): Boolean {
+    val check = previous ?: return false
+    if (check.opcode != Opcodes.IFNULL && !check.isCheckNotNull()) return false
+    return check.previous?.opcode == Opcodes.DUP
+}
+
 fun AbstractInsnNode.isJavaLangComparableCompareTo() =
     isMethodInsnWith(Opcodes.INVOKEINTERFACE) {
         name == "compareTo" &&
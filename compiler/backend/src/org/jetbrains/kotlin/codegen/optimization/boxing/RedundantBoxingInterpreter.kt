@@ -37,7 +37,8 @@ internal class RedundantBoxingInterpreter(
         if ((insn.opcode == Opcodes.CHECKCAST || insn.opcode == Opcodes.INSTANCEOF) && value is BoxedBasicValue) {
             val typeInsn = insn as TypeInsnNode
 
-            if (!isSafeCast(value, typeInsn.desc)) {
+            // `null` is not an instance of anything
+            if (!isSafeCast(value, typeInsn.desc) || insn.opcode == Opcodes.INSTANCEOF && value is NullableBoxedValue) {
                 markValueAsDirty(value)
             }
         }
@@ -62,8 +63,12 @@ internal class RedundantBoxingInterpreter(
     }
 
     override fun copyOperation(insn: AbstractInsnNode, value: BasicValue): BasicValue {
-        if (value is BoxedBasicValue && insn.opcode == Opcodes.ASTORE) {
-            value.descriptor.addVariableIndex((insn as VarInsnNode).`var`)
+        if (insn.opcode == Opcodes.ASTORE) {
+            if (value is BoxedBasicValue) {
+                value.descriptor.addVariableIndex((insn as VarInsnNode).`var`)
+            } else if (value is NullConstantValue) {
+                value.addVariableIndex((insn as VarInsnNode).`var`)
+            }
         }
 
         processOperationWithBoxedValue(value, insn)
@@ -80,6 +85,16 @@ internal class RedundantBoxingInterpreter(
     }
 
     override fun onUnboxing(insn: AbstractInsnNode, value: BoxedBasicValue, resultType: Type) {
+        // unboxing of `null` throws NPE, so it can be removed only after a null check of the same value,
+        // or if the flag of the variable the value is loaded from can be checked instead
+        if (value is NullableBoxedValue &&
+            (value.descriptor.unboxedType != resultType || !insn.isPrimitiveUnboxing() ||
+                    !insn.isOperandCheckedForNull() && insn.getOperandVariableIndex() == null)
+        ) {
+            markValueAsDirty(value)
+            return
+        }
+
         value.descriptor.run {
             if (unboxedType == resultType)
                 addAssociatedInsn(value, insn)
@@ -89,6 +104,12 @@ internal class RedundantBoxingInterpreter(
     }
 
     override fun onAreEqual(insn: AbstractInsnNode, value1: BoxedBasicValue, value2: BoxedBasicValue) {
+        if (value1 is NullableBoxedValue || value2 is NullableBoxedValue) {
+            markValueAsDirty(value1)
+            markValueAsDirty(value2)
+            return
+        }
+
         val descriptor1 = value1.descriptor
         val descriptor2 = value2.descriptor
         candidatesBoxedValues.merge(descriptor1, descriptor2)
@@ -96,6 +117,12 @@ internal class RedundantBoxingInterpreter(
     }
 
     override fun onCompareTo(insn: AbstractInsnNode, value1: BoxedBasicValue, value2: BoxedBasicValue) {
+        if (value1 is NullableBoxedValue || value2 is NullableBoxedValue) {
+            markValueAsDirty(value1)
+            markValueAsDirty(value2)
+            return
+        }
+
         val descriptor1 = value1.descriptor
         val descriptor2 = value2.descriptor
         candidatesBoxedValues.merge(descriptor1, descriptor2)
@@ -114,15 +141,55 @@ internal class RedundantBoxingInterpreter(
         candidatesBoxedValues.merge(v.descriptor, w.descriptor)
     }
 
+    override fun onMergeWithNull(v: BoxedBasicValue, w: NullConstantValue) {
+        v.descriptor.addNullValue(w)
+        w.addMergedWith(v.descriptor)
+    }
+
+    override fun onNullCheck(insn: AbstractInsnNode, value: BoxedBasicValue) {
+        checkUsedValue(value)
+
+        if (value is NullableBoxedValue && insn.getOperandVariableIndex() == null) {
+            markValueAsDirty(value)
+        } else {
+            addAssociatedInsn(value, insn)
+        }
+    }
+
+    // A `null` is unboxed together with all the boxed values it is merged with, so they should be removed all or none of them
+    fun processNullConstants() {
+        for (value in nullConstantValues) {
+            val descriptors = value.descriptors
+            val first = descriptors.firstOrNull() ?: continue
+            if (value.isEscaping || descriptors.any { it.unboxedType != first.unboxedType }) {
+                descriptors.forEach(candidatesBoxedValues::remove)
+            } else {
+                for (descriptor in descriptors) {
+                    if (descriptor !== first) {
+                        candidatesBoxedValues.merge(first, descriptor)
+                    }
+                }
+            }
+        }
+    }
+
     private fun processOperationWithBoxedValue(value: BasicValue?, insnNode: AbstractInsnNode) {
         if (value is BoxedBasicValue) {
             checkUsedValue(value)
 
-            if (!PERMITTED_OPERATIONS_OPCODES.contains(insnNode.opcode)) {
+            if (!PERMITTED_OPERATIONS_OPCODES.contains(insnNode.opcode) ||
+                value is NullableBoxedValue && !isPermittedForNullableValue(insnNode)
+            ) {
                 markValueAsDirty(value)
             } else {
                 addAssociatedInsn(value, insnNode)
             }
+        } else if (value is NullConstantValue) {
+            if (PERMITTED_NULL_CONSTANT_OPERATIONS_OPCODES.contains(insnNode.opcode)) {
+                value.addInsn(insnNode)
+            } else {
+                value.markAsEscaping()
+            }
         }
     }
 
@@ -132,7 +199,13 @@ internal class RedundantBoxingInterpreter(
 
     companion object {
         private val PERMITTED_OPERATIONS_OPCODES =
-            ImmutableSet.of(Opcodes.ASTORE, Opcodes.ALOAD, Opcodes.POP, Opcodes.DUP, Opcodes.CHECKCAST, Opcodes.INSTANCEOF)
+            ImmutableSet.of(
+                Opcodes.ASTORE, Opcodes.ALOAD, Opcodes.POP, Opcodes.DUP, Opcodes.CHECKCAST, Opcodes.INSTANCEOF,
+                Opcodes.IFNULL, Opcodes.IFNONNULL
+            )
+
+        private val PERMITTED_NULL_CONSTANT_OPERATIONS_OPCODES =
+            ImmutableSet.of(Opcodes.ASTORE, Opcodes.ALOAD, Opcodes.POP, Opcodes.DUP, Opcodes.IFNULL, Opcodes.IFNONNULL)
 
         private val PRIMITIVE_TYPES_SORTS_WITH_WRAPPER_EXTENDS_NUMBER =
             ImmutableSet.of(Type.BYTE, Type.SHORT, Type.INT, Type.FLOAT, Type.LONG, Type.DOUBLE)
@@ -149,6 +222,13 @@ internal class RedundantBoxingInterpreter(
                     value.type.internalName == targetInternalName
             }
 
+        // nullability of a value is read from (or copied to) the flag of the variable it is loaded from
+        private fun isPermittedForNullableValue(insn: AbstractInsnNode) =
+            when (insn.opcode) {
+                Opcodes.ASTORE, Opcodes.IFNULL, Opcodes.IFNONNULL -> insn.getOperandVariableIndex() != null
+                else -> true
+            }
+
         private fun addAssociatedInsn(value: BoxedBasicValue, insn: AbstractInsnNode) {
             value.descriptor.run {
                 if (isSafeToRemove) addInsn(insn)
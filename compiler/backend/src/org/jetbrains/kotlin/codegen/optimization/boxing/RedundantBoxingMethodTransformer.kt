@@ -24,6 +24,7 @@ import org.jetbrains.kotlin.codegen.optimization.common.StrictBasicValue
 import org.jetbrains.kotlin.codegen.optimization.common.remapLocalVariables
 import org.jetbrains.kotlin.codegen.optimization.fixStack.peek
 import org.jetbrains.kotlin.codegen.optimization.fixStack.top
+import org.jetbrains.kotlin.codegen.optimization.nullCheck.isCheckNotNull
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
 import org.jetbrains.kotlin.codegen.state.GenerationState
 import org.jetbrains.org.objectweb.asm.Label
@@ -42,6 +43,7 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
         val frames = MethodTransformer.analyze(internalClassName, node, interpreter)
 
         interpretPopInstructionsForBoxedValues(interpreter, node, frames)
+        interpreter.processNullConstants()
 
         val valuesToOptimize = interpreter.candidatesBoxedValues
 
@@ -53,7 +55,12 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
 
             node.remapLocalVariables(buildVariablesRemapping(valuesToOptimize, node))
 
-            adaptInstructionsForBoxedValues(node, valuesToOptimize)
+            // flags are allocated for the remapped variables, but computed from the frames, so the instructions are not adapted yet
+            val nullabilityFlags = NullabilityFlags(node, frames)
+
+            adaptInstructionsForBoxedValues(node, valuesToOptimize, nullabilityFlags)
+
+            generationState.removedBoxingsCount.addAndGet(valuesToOptimize.count())
         }
     }
 
@@ -103,14 +110,13 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
 
             val variableValues = getValuesStoredOrLoadedToVariable(localVariableNode, node, frames)
 
-            val boxed = variableValues.filterIsInstance<BoxedBasicValue>()
+            val boxed = variableValues.flatMap { it.getBoxedValueDescriptors() }
 
             if (boxed.isEmpty()) continue
 
-            val firstBoxed = boxed.first().descriptor
+            val firstBoxed = boxed.first()
             if (isUnsafeToRemoveBoxingForConnectedValues(variableValues, firstBoxed.unboxedType)) {
-                for (value in boxed) {
-                    val descriptor = value.descriptor
+                for (descriptor in boxed) {
                     if (descriptor.isSafeToRemove) {
                         values.remove(descriptor)
                         needToRepeat = true
@@ -125,6 +131,9 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
     private fun isUnsafeToRemoveBoxingForConnectedValues(usedValues: List<BasicValue>, unboxedType: Type): Boolean =
         usedValues.any { input ->
             if (input === StrictBasicValue.UNINITIALIZED_VALUE) return@any false
+            if (input is NullConstantValue) {
+                return@any input.descriptors.isEmpty() || input.descriptors.any { !it.isSafeToRemove || it.unboxedType != unboxedType }
+            }
             if (input !is BoxedBasicValue) return@any true
 
             val descriptor = input.descriptor
@@ -138,15 +147,20 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
             }
 
             for (value in getValuesStoredOrLoadedToVariable(localVariableNode, node, frames)) {
-                if (value !is BoxedBasicValue) continue
-
-                val descriptor = value.descriptor
+                val descriptor = value.getBoxedValueDescriptors().firstOrNull() ?: continue
                 if (!descriptor.isSafeToRemove) continue
                 localVariableNode.desc = descriptor.unboxedType.descriptor
             }
         }
     }
 
+    private fun BasicValue.getBoxedValueDescriptors(): Collection<BoxedValueDescriptor> =
+        when (this) {
+            is BoxedBasicValue -> listOf(descriptor)
+            is NullConstantValue -> descriptors
+            else -> emptyList()
+        }
+
     private fun getValuesStoredOrLoadedToVariable(
         localVariableNode: LocalVariableNode,
         node: MethodNode,
@@ -185,6 +199,9 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
         for (valueDescriptor in values) {
             if (valueDescriptor.isDoubleSize()) {
                 doubleSizedVars.addAll(valueDescriptor.getVariablesIndexes())
+                for (nullValue in valueDescriptor.getNullValues()) {
+                    doubleSizedVars.addAll(nullValue.getVariablesIndexes())
+                }
             }
         }
 
@@ -205,14 +222,22 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
 
     private fun adaptInstructionsForBoxedValues(
         node: MethodNode,
-        values: RedundantBoxedValuesCollection
+        values: RedundantBoxedValuesCollection,
+        nullabilityFlags: NullabilityFlags
     ) {
+        // an instruction may be associated both with a `null` and with the boxed values it is merged with
+        val adaptedInsns = HashSet<AbstractInsnNode>()
         for (value in values) {
-            adaptInstructionsForBoxedValue(node, value)
+            adaptInstructionsForBoxedValue(node, value, nullabilityFlags, adaptedInsns)
         }
     }
 
-    private fun adaptInstructionsForBoxedValue(node: MethodNode, value: BoxedValueDescriptor) {
+    private fun adaptInstructionsForBoxedValue(
+        node: MethodNode,
+        value: BoxedValueDescriptor,
+        nullabilityFlags: NullabilityFlags,
+        adaptedInsns: MutableSet<AbstractInsnNode>
+    ) {
         adaptBoxingInstruction(node, value)
 
         for (cast in value.getUnboxingWithCastInsns()) {
@@ -220,10 +245,31 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
         }
 
         for (insn in value.getAssociatedInsns()) {
-            adaptInstruction(node, insn, value)
+            if (adaptedInsns.add(insn)) {
+                adaptInstruction(node, insn, value, nullabilityFlags)
+            }
+        }
+
+        for (nullValue in value.getNullValues()) {
+            if (adaptedInsns.add(nullValue.insn)) {
+                node.instructions.set(nullValue.insn, InsnNode(getDefaultValueOpcode(value.unboxedType)))
+            }
+            for (insn in nullValue.getAssociatedInsns()) {
+                if (adaptedInsns.add(insn)) {
+                    adaptInstruction(node, insn, value, nullabilityFlags)
+                }
+            }
         }
     }
 
+    private fun getDefaultValueOpcode(type: Type): Int =
+        when (type.sort) {
+            Type.LONG -> Opcodes.LCONST_0
+            Type.FLOAT -> Opcodes.FCONST_0
+            Type.DOUBLE -> Opcodes.DCONST_0
+            else -> Opcodes.ICONST_0
+        }
+
     private fun adaptBoxingInstruction(node: MethodNode, value: BoxedValueDescriptor) {
         if (!value.isFromProgressionIterator()) {
             node.instructions.remove(value.boxingInsn)
@@ -262,7 +308,7 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
     }
 
     private fun adaptInstruction(
-        node: MethodNode, insn: AbstractInsnNode, value: BoxedValueDescriptor
+        node: MethodNode, insn: AbstractInsnNode, value: BoxedValueDescriptor, nullabilityFlags: NullabilityFlags
     ) {
         val isDoubleSize = value.isDoubleSize()
 
@@ -279,9 +325,16 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
 
             Opcodes.ASTORE, Opcodes.ALOAD -> {
                 val storeOpcode = value.unboxedType.getOpcode(if (insn.opcode == Opcodes.ASTORE) Opcodes.ISTORE else Opcodes.ILOAD)
-                node.instructions.set(insn, VarInsnNode(storeOpcode, (insn as VarInsnNode).`var`))
+                val newInsn = VarInsnNode(storeOpcode, (insn as VarInsnNode).`var`)
+                node.instructions.set(insn, newInsn)
+                if (insn.opcode == Opcodes.ASTORE) {
+                    nullabilityFlags.storeFlag(insn, newInsn)
+                }
             }
 
+            Opcodes.IFNULL, Opcodes.IFNONNULL ->
+                adaptNullCheck(node, insn as JumpInsnNode, value, nullabilityFlags)
+
             Opcodes.INSTANCEOF -> {
                 node.instructions.insertBefore(
                     insn,
@@ -299,6 +352,8 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
                     insn.isJavaLangClassBoxing() ||
                             insn.isJavaLangClassUnboxing() ->
                         node.instructions.remove(insn)
+                    insn.isCheckNotNull() ->
+                        adaptCheckNotNull(node, insn, value, nullabilityFlags)
                     else ->
                         throwCannotAdaptInstruction(insn)
                 }
@@ -312,10 +367,16 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
                 }
             }
 
-            Opcodes.CHECKCAST,
-            Opcodes.INVOKEVIRTUAL ->
+            Opcodes.CHECKCAST ->
                 node.instructions.remove(insn)
 
+            Opcodes.INVOKEVIRTUAL ->
+                if (insn.isPrimitiveUnboxing()) {
+                    adaptUnboxing(node, insn, value, nullabilityFlags)
+                } else {
+                    node.instructions.remove(insn)
+                }
+
             else ->
                 throwCannotAdaptInstruction(insn)
         }
@@ -324,6 +385,77 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
     private fun throwCannotAdaptInstruction(insn: AbstractInsnNode): Nothing =
         throw AssertionError("Cannot adapt instruction: ${insn.insnText}")
 
+    private fun adaptNullCheck(
+        node: MethodNode,
+        insn: JumpInsnNode,
+        value: BoxedValueDescriptor,
+        nullabilityFlags: NullabilityFlags
+    ) {
+        val jumpIfNull = insn.opcode == Opcodes.IFNULL
+        node.instructions.run {
+            insertBefore(insn, InsnNode(if (value.isDoubleSize()) Opcodes.POP2 else Opcodes.POP))
+            when (val nullability = nullabilityFlags.getNullability(insn)) {
+                Nullability.NotNull ->
+                    if (!jumpIfNull) insertBefore(insn, JumpInsnNode(Opcodes.GOTO, insn.label))
+                Nullability.Null ->
+                    if (jumpIfNull) insertBefore(insn, JumpInsnNode(Opcodes.GOTO, insn.label))
+                is Nullability.InVariable -> {
+                    insertBefore(insn, nullabilityFlags.loadFlag(nullability))
+                    insertBefore(insn, JumpInsnNode(if (jumpIfNull) Opcodes.IFEQ else Opcodes.IFNE, insn.label))
+                }
+            }
+            remove(insn)
+        }
+    }
+
+    private fun adaptCheckNotNull(
+        node: MethodNode,
+        insn: AbstractInsnNode,
+        value: BoxedValueDescriptor,
+        nullabilityFlags: NullabilityFlags
+    ) {
+        node.instructions.run {
+            insertBefore(insn, InsnNode(if (value.isDoubleSize()) Opcodes.POP2 else Opcodes.POP))
+            when (val nullability = nullabilityFlags.getNullability(insn)) {
+                Nullability.NotNull ->
+                    remove(insn)
+                Nullability.Null ->
+                    insertBefore(insn, InsnNode(Opcodes.ACONST_NULL))
+                is Nullability.InVariable -> {
+                    // checkNotNull(null) throws the same exception as the original check
+                    val notNull = LabelNode(Label())
+                    insertBefore(insn, nullabilityFlags.loadFlag(nullability))
+                    insertBefore(insn, JumpInsnNode(Opcodes.IFNE, notNull))
+                    insertBefore(insn, InsnNode(Opcodes.ACONST_NULL))
+                    insert(insn, notNull)
+                }
+            }
+        }
+    }
+
+    private fun adaptUnboxing(
+        node: MethodNode,
+        insn: AbstractInsnNode,
+        value: BoxedValueDescriptor,
+        nullabilityFlags: NullabilityFlags
+    ) {
+        when (val nullability = nullabilityFlags.getNullability(insn)) {
+            Nullability.NotNull ->
+                node.instructions.remove(insn)
+            Nullability.Null ->
+                throw AssertionError("Unexpected unboxing of null: ${insn.insnText}")
+            is Nullability.InVariable -> node.instructions.run {
+                // the original unboxing is kept for `null`, so that it throws the same exception
+                val notNull = LabelNode(Label())
+                insertBefore(insn, nullabilityFlags.loadFlag(nullability))
+                insertBefore(insn, JumpInsnNode(Opcodes.IFNE, notNull))
+                insertBefore(insn, InsnNode(Opcodes.ACONST_NULL))
+                insert(insn, notNull)
+                insert(insn, InsnNode(if (value.isDoubleSize()) Opcodes.POP2 else Opcodes.POP))
+            }
+        }
+    }
+
     private fun adaptAreEqualIntrinsic(
         node: MethodNode,
         insn: AbstractInsnNode,
@@ -470,3 +602,85 @@ class RedundantBoxingMethodTransformer(private val generationState: GenerationSt
         node.instructions.set(insn, MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Double", "compare", "(DD)I", false))
     }
 }
+
+private sealed class Nullability {
+    object NotNull : Nullability()
+    object Null : Nullability()
+    class InVariable(val index: Int) : Nullability()
+}
+
+/*
+ * Unboxed values merged with `null` keep their nullability in synthetic int variables (1 for a non-null value):
+ * one flag per variable holding such values, written when the variable is stored to and read by null checks and unboxings
+ * of its loaded value. Only values loaded directly from a variable can be checked for null or unboxed (see getOperandVariableIndex),
+ * so a flag always describes the current value of its variable.
+ */
+private class NullabilityFlags(private val node: MethodNode, frames: Array<out Frame<BasicValue>?>) {
+    private val nullabilities = HashMap<AbstractInsnNode, Nullability>()
+    private val flags = HashMap<Int, Int>()
+
+    init {
+        for (i in frames.indices) {
+            val insn = node.instructions[i]
+            if (insn.opcode != Opcodes.IFNULL && insn.opcode != Opcodes.IFNONNULL && insn.opcode != Opcodes.ASTORE &&
+                !insn.isCheckNotNull() && !insn.isPrimitiveUnboxing()
+            ) continue
+
+            val nullability = frames[i]?.top()?.let { getNullability(insn, it) } ?: continue
+            nullabilities[insn] = nullability
+        }
+
+        // null checks read flags of the variables the checked values are loaded from, stores copy flags from variable to variable
+        val flaggedVariables = HashSet<Int>()
+        for ((insn, nullability) in nullabilities) {
+            if (insn.opcode != Opcodes.ASTORE && nullability is Nullability.InVariable) {
+                flaggedVariables.add(nullability.index)
+            }
+        }
+        do {
+            var changed = false
+            for ((insn, nullability) in nullabilities) {
+                if (insn.opcode == Opcodes.ASTORE && nullability is Nullability.InVariable &&
+                    (insn as VarInsnNode).`var` in flaggedVariables && flaggedVariables.add(nullability.index)
+                ) {
+                    changed = true
+                }
+            }
+        } while (changed)
+
+        for (variable in flaggedVariables) {
+            flags[variable] = node.maxLocals++
+        }
+    }
+
+    private fun getNullability(insn: AbstractInsnNode, value: BasicValue): Nullability? =
+        when {
+            value is NullConstantValue ->
+                if (value.descriptors.any { it.isSafeToRemove }) Nullability.Null else null
+            value !is BoxedBasicValue || !value.descriptor.isSafeToRemove ->
+                null
+            value is NullableBoxedValue && insn.isPrimitiveUnboxing() && insn.isOperandCheckedForNull() ->
+                Nullability.NotNull
+            value is NullableBoxedValue ->
+                Nullability.InVariable(insn.getOperandVariableIndex() ?: throw AssertionError("Unexpected null check: ${insn.insnText}"))
+            else ->
+                Nullability.NotNull
+        }
+
+    fun getNullability(insn: AbstractInsnNode): Nullability =
+        nullabilities[insn] ?: throw AssertionError("Unexpected null check: ${insn.insnText}")
+
+    fun loadFlag(nullability: Nullability): AbstractInsnNode =
+        when (nullability) {
+            Nullability.NotNull -> InsnNode(Opcodes.ICONST_1)
+            Nullability.Null -> InsnNode(Opcodes.ICONST_0)
+            is Nullability.InVariable -> VarInsnNode(Opcodes.ILOAD, flags.getValue(nullability.index))
+        }
+
+    // the flag is written before the value, so that it is initialized wherever the value is (e.g. in exception handlers)
+    fun storeFlag(storeInsn: AbstractInsnNode, newStoreInsn: VarInsnNode) {
+        val flag = flags[newStoreInsn.`var`] ?: return
+        node.instructions.insertBefore(newStoreInsn, loadFlag(getNullability(storeInsn)))
+        node.instructions.insertBefore(newStoreInsn, VarInsnNode(Opcodes.ISTORE, flag))
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.common
+
+import org.jetbrains.kotlin.codegen.inline.insnText
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.tree.*
+import org.jetbrains.org.objectweb.asm.tree.analysis.AnalyzerException
+import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
+import org.jetbrains.org.objectweb.asm.tree.analysis.Interpreter
+import org.jetbrains.org.objectweb.asm.tree.analysis.Value
+
+/**
+ * Forward data flow analyzer computing the same frames as `org.objectweb.asm.tree.analysis.Analyzer`,
+ * but storing a frame only at the entry of each basic block.
+ * Worklist iterates over basic blocks; frames inside a block are recomputed on demand by [SparseFrames].
+ *
+ * Memory is proportional to the number of basic blocks rather than the number of instructions,
+ * so it can be used for huge generated methods, for which a frame per instruction does not fit in memory.
+ *
+ * Frames inside a block are obtained by re-executing the block's instructions,
+ * so [interpreter] should not have side effects other than computing values.
+ * [blocks] can be shared between analyses of the same (unchanged) method, see `MethodAnalysisCache`.
+ */
+class SparseMethodAnalyzer<V : Value>(
+    private val owner: String,
+    private val method: MethodNode,
+    private val interpreter: Interpreter<V>,
+    private val blocks: BasicBlocks = BasicBlocks(method)
+) {
+    private val insns: Array<AbstractInsnNode> = method.instructions.toArray()
+    private val nInsns = insns.size
+
+    private val entryFrames: Array<Frame<V>?> = arrayOfNulls(blocks.count)
+    private val blockHandlers: Array<MutableList<TryCatchBlockNode>?> = arrayOfNulls(blocks.count)
+
+    private val queued = BooleanArray(blocks.count)
+    private val queue = IntArray(blocks.count)
+    private var top = 0
+
+    @Throws(AnalyzerException::class)
+    fun analyze(): SparseFrames<V> {
+        if (nInsns == 0) return createFrames()
+
+        if (insns.any { it.opcode == Opcodes.JSR || it.opcode == Opcodes.RET })
+            throw AssertionError("Subroutines are deprecated since Java 6")
+
+        computeExceptionHandlersForEachBlock()
+
+        val current = Frame<V>(method.maxLocals, method.maxStack)
+        val handler = Frame<V>(method.maxLocals, method.maxStack)
+        initControlFlowAnalysis(current)
+
+        while (top > 0) {
+            val block = queue[--top]
+            queued[block] = false
+            current.init(entryFrames[block]!!)
+
+            val start = blocks.start(block)
+            val end = blocks.end(block)
+            val handlers = blockHandlers[block]
+            for (insn in start until end) {
+                val insnNode = insns[insn]
+                try {
+                    handlers?.forEach { tcb ->
+                        handler.init(current)
+                        handler.clearStack()
+                        handler.push(interpreter.newValue(Type.getObjectType(tcb.type ?: "java/lang/Throwable")))
+                        mergeControlFlowEdge(blocks.blockOf(tcb.handler), handler)
+                    }
+
+                    if (insnNode.isMeaningfulForFrames()) {
+                        current.execute(insnNode, interpreter)
+                    }
+                } catch (e: AnalyzerException) {
+                    throw AnalyzerException(e.node, "Error at instruction #$insn ${insnNode.insnText}: ${e.message}", e)
+                } catch (e: Exception) {
+                    throw AnalyzerException(insnNode, "Error at instruction #$insn ${insnNode.insnText}: ${e.message}", e)
+                }
+            }
+
+            visitBlockSuccessors(insns[end - 1], end, current)
+        }
+
+        return createFrames()
+    }
+
+    private fun createFrames(): SparseFrames<V> =
+        SparseFrames(insns, blocks, entryFrames, interpreter, Frame(method.maxLocals, method.maxStack))
+
+    private fun visitBlockSuccessors(last: AbstractInsnNode, end: Int, current: Frame<V>) {
+        val opcode = last.opcode
+        when {
+            last is JumpInsnNode -> {
+                if (opcode != Opcodes.GOTO) {
+                    mergeFallThroughEdge(last, end, current)
+                }
+                mergeControlFlowEdge(blocks.blockOf(last.label), current)
+            }
+            last is TableSwitchInsnNode -> {
+                mergeControlFlowEdge(blocks.blockOf(last.dflt), current)
+                last.labels.forEach { mergeControlFlowEdge(blocks.blockOf(it), current) }
+            }
+            last is LookupSwitchInsnNode -> {
+                mergeControlFlowEdge(blocks.blockOf(last.dflt), current)
+                last.labels.forEach { mergeControlFlowEdge(blocks.blockOf(it), current) }
+            }
+            opcode == Opcodes.ATHROW || opcode in Opcodes.IRETURN..Opcodes.RETURN -> {
+            }
+            else ->
+                mergeFallThroughEdge(last, end, current)
+        }
+    }
+
+    private fun mergeFallThroughEdge(last: AbstractInsnNode, end: Int, current: Frame<V>) {
+        if (end >= nInsns) throw AnalyzerException(last, "Execution can fall off the end of the code")
+        mergeControlFlowEdge(blocks.blockOf(end), current)
+    }
+
+    private fun initControlFlowAnalysis(current: Frame<V>) {
+        current.setReturn(interpreter.newValue(Type.getReturnType(method.desc)))
+        var local = 0
+        if ((method.access and Opcodes.ACC_STATIC) == 0) {
+            current.setLocal(local++, interpreter.newValue(Type.getObjectType(owner)))
+        }
+        for (arg in Type.getArgumentTypes(method.desc)) {
+            current.setLocal(local++, interpreter.newValue(arg))
+            if (arg.size == 2) {
+                current.setLocal(local++, interpreter.newValue(null))
+            }
+        }
+        while (local < method.maxLocals) {
+            current.setLocal(local++, interpreter.newValue(null))
+        }
+        mergeControlFlowEdge(0, current)
+    }
+
+    // Blocks are split at try/catch block boundaries, so all instructions of a block share the same handlers
+    private fun computeExceptionHandlersForEachBlock() {
+        for (tcb in method.tryCatchBlocks) {
+            val begin = blocks.blockOf(tcb.start)
+            val end = blocks.blockOf(tcb.end)
+            for (block in begin until end) {
+                val handlers = blockHandlers[block] ?: ArrayList<TryCatchBlockNode>().also { blockHandlers[block] = it }
+                handlers.add(tcb)
+            }
+        }
+    }
+
+    private fun mergeControlFlowEdge(block: Int, frame: Frame<V>) {
+        val oldFrame = entryFrames[block]
+        val changes =
+            if (oldFrame != null)
+                oldFrame.merge(frame, interpreter)
+            else {
+                entryFrames[block] = Frame(frame)
+                true
+            }
+        if (changes && !queued[block]) {
+            queued[block] = true
+            queue[top++] = block
+        }
+    }
+}
+
+/**
+ * Result of [SparseMethodAnalyzer].
+ * [get] returns a copy of the frame before the given instruction (`null` for unreachable instructions),
+ * computed from the entry frame of its basic block. Frames are cheapest to obtain in the order of instructions.
+ */
+class SparseFrames<V : Value> internal constructor(
+    private val insns: Array<AbstractInsnNode>,
+    private val blocks: BasicBlocks,
+    private val entryFrames: Array<Frame<V>?>,
+    private val interpreter: Interpreter<V>,
+    private val current: Frame<V>
+) {
+    // index of the instruction before which [current] is computed
+    private var currentIndex = -1
+
+    val size: Int
+        get() = insns.size
+
+    fun isReachable(index: Int): Boolean =
+        entryFrames[blocks.blockOf(index)] != null
+
+    operator fun get(index: Int): Frame<V>? {
+        val block = blocks.blockOf(index)
+        val entry = entryFrames[block] ?: return null
+        val start = blocks.start(block)
+
+        if (currentIndex !in start..index) {
+            current.init(entry)
+            currentIndex = start
+        }
+        while (currentIndex < index) {
+            val insn = insns[currentIndex++]
+            if (insn.isMeaningfulForFrames()) {
+                current.execute(insn, interpreter)
+            }
+        }
+        return Frame(current)
+    }
+}
+
+// Basic blocks of a method: a block starts at a jump target, a try/catch block boundary or after a jump, return or throw
+class BasicBlocks(method: MethodNode) {
+    private val instructions = method.instructions
+    private val blockOfInsn = IntArray(instructions.size())
+    private val starts: IntArray
+
+    init {
+        val insns = instructions.toArray()
+        val targets = HashSet<LabelNode>()
+        for (insn in insns) {
+            when (insn) {
+                is JumpInsnNode -> targets.add(insn.label)
+                is TableSwitchInsnNode -> {
+                    targets.add(insn.dflt)
+                    targets.addAll(insn.labels)
+                }
+                is LookupSwitchInsnNode -> {
+                    targets.add(insn.dflt)
+                    targets.addAll(insn.labels)
+                }
+            }
+        }
+        for (tcb in method.tryCatchBlocks) {
+            targets.add(tcb.start)
+            targets.add(tcb.end)
+            targets.add(tcb.handler)
+        }
+
+        val blockStarts = ArrayList<Int>()
+        for (i in insns.indices) {
+            if (i == 0 || insns[i] in targets || insns[i - 1].endsBasicBlock()) {
+                blockStarts.add(i)
+            }
+            blockOfInsn[i] = blockStarts.size - 1
+        }
+        starts = blockStarts.toIntArray()
+    }
+
+    val count: Int
+        get() = starts.size
+
+    fun start(block: Int): Int = starts[block]
+
+    fun end(block: Int): Int = if (block + 1 < starts.size) starts[block + 1] else blockOfInsn.size
+
+    fun blockOf(index: Int): Int = blockOfInsn[index]
+
+    fun blockOf(insn: AbstractInsnNode): Int = blockOfInsn[instructions.indexOf(insn)]
+
+    private fun AbstractInsnNode.endsBasicBlock(): Boolean =
+        this is JumpInsnNode || this is TableSwitchInsnNode || this is LookupSwitchInsnNode ||
+                opcode == Opcodes.ATHROW || opcode in Opcodes.IRETURN..Opcodes.RETURN
+}
+
+fun countBasicBlocks(method: MethodNode): Int =
+    BasicBlocks(method).count
+
+private fun AbstractInsnNode.isMeaningfulForFrames(): Boolean =
+    type != AbstractInsnNode.LABEL && type != AbstractInsnNode.LINE && type != AbstractInsnNode.FRAME
@@ -62,12 +62,13 @@ class RedundantNullCheckMethodTransformer(private val generationState: Generatio
         }
 
         private fun analyzeNullabilities(): Map<AbstractInsnNode, StrictBasicValue> {
-            val frames = analyze(internalClassName, methodNode, NullabilityInterpreter(generationState))
+            val frames = analyzeSparse(internalClassName, methodNode, NullabilityInterpreter(generationState))
             val insns = methodNode.instructions.toArray()
             val nullabilityMap = LinkedHashMap<AbstractInsnNode, StrictBasicValue>()
             for (i in insns.indices) {
-                val frame = frames[i] ?: continue
                 val insn = insns[i]
+                if (!insn.isOptimizable()) continue
+                val frame = frames[i] ?: continue
 
                 val value = when {
                     insn.isInstanceOfOrNullCheck() -> frame.top()
@@ -18,15 +18,38 @@ package org.jetbrains.kotlin.codegen.optimization.transformer
 
 import org.jetbrains.org.objectweb.asm.tree.MethodNode
 
-open class CompositeMethodTransformer(private val transformers: List<MethodTransformer>) : MethodTransformer() {
+open class CompositeMethodTransformer(
+    private val transformers: List<MethodTransformer>,
+    private val statistics: MethodTransformerStatistics? = null
+) : MethodTransformer() {
     constructor(vararg transformers: MethodTransformer?) : this(transformers.filterNotNull())
 
+    constructor(statistics: MethodTransformerStatistics, vararg transformers: MethodTransformer?) :
+            this(transformers.filterNotNull(), statistics)
+
     override fun transform(internalClassName: String, methodNode: MethodNode) {
-        transformers.forEach { it.transform(internalClassName, methodNode) }
+        transform(internalClassName, methodNode, MethodAnalysisCache(internalClassName, methodNode))
+    }
+
+    // Analysis results are shared between the transformers until one of them changes the method
+    override fun transform(internalClassName: String, methodNode: MethodNode, analyses: MethodAnalysisCache): Boolean {
+        var changed = false
+        for (transformer in transformers) {
+            val transformerChanged =
+                if (statistics != null)
+                    statistics.time(transformer) { transformer.transform(internalClassName, methodNode, analyses) }
+                else
+                    transformer.transform(internalClassName, methodNode, analyses)
+            if (transformerChanged) {
+                analyses.invalidate()
+                changed = true
+            }
+        }
+        return changed
     }
 
     companion object {
         inline fun build(builder: MutableList<MethodTransformer>.() -> Unit) =
             CompositeMethodTransformer(ArrayList<MethodTransformer>().apply { builder() })
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.transformer
+
+import org.jetbrains.kotlin.codegen.optimization.common.BasicBlocks
+import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
+import org.jetbrains.kotlin.codegen.optimization.common.SparseFrames
+import org.jetbrains.kotlin.codegen.optimization.common.SparseMethodAnalyzer
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
+import org.jetbrains.org.objectweb.asm.tree.analysis.AnalyzerException
+import org.jetbrains.org.objectweb.asm.tree.analysis.BasicValue
+import org.jetbrains.org.objectweb.asm.tree.analysis.Interpreter
+import org.jetbrains.org.objectweb.asm.tree.analysis.Value
+
+/**
+ * Analyses of a method shared between the passes of a [CompositeMethodTransformer].
+ * The results stay valid while the passes report that they did not change the method, see [MethodTransformer.transform].
+ */
+class MethodAnalysisCache(private val internalClassName: String, private val methodNode: MethodNode) {
+    private var basicBlocks: BasicBlocks? = null
+    private var basicFrames: SparseFrames<BasicValue>? = null
+
+    val blocks: BasicBlocks
+        get() = basicBlocks ?: BasicBlocks(methodNode).also { basicBlocks = it }
+
+    // Frames computed with OptimizationBasicInterpreter
+    fun getBasicFrames(): SparseFrames<BasicValue> =
+        basicFrames ?: analyzeSparse(OptimizationBasicInterpreter()).also { basicFrames = it }
+
+    fun <V : Value> analyzeSparse(interpreter: Interpreter<V>): SparseFrames<V> =
+        try {
+            SparseMethodAnalyzer(internalClassName, methodNode, interpreter, blocks).analyze()
+        } catch (e: AnalyzerException) {
+            throw RuntimeException(e)
+        }
+
+    fun invalidate() {
+        basicBlocks = null
+        basicFrames = null
+    }
+}
@@ -17,6 +17,8 @@
 package org.jetbrains.kotlin.codegen.optimization.transformer;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.codegen.optimization.common.SparseFrames;
+import org.jetbrains.kotlin.codegen.optimization.common.SparseMethodAnalyzer;
 import org.jetbrains.org.objectweb.asm.tree.MethodNode;
 import org.jetbrains.org.objectweb.asm.tree.analysis.*;
 
@@ -44,5 +46,28 @@ public abstract class MethodTransformer {
         return runAnalyzer(new Analyzer<>(interpreter), internalClassName, node);
     }
 
+    @NotNull
+    public static <V extends Value> SparseFrames<V> analyzeSparse(
+            @NotNull String internalClassName,
+            @NotNull MethodNode node,
+            @NotNull Interpreter<V> interpreter
+    ) {
+        try {
+            return new SparseMethodAnalyzer<>(internalClassName, node, interpreter).analyze();
+        }
+        catch (AnalyzerException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public abstract void transform(@NotNull String internalClassName, @NotNull MethodNode methodNode);
+
+    /**
+     * Transforms the method reusing the analysis results from {@code analyses}.
+     * Returns {@code false} only if the method was not changed, so that the analysis results can be reused by the next passes.
+     */
+    public boolean transform(@NotNull String internalClassName, @NotNull MethodNode methodNode, @NotNull MethodAnalysisCache analyses) {
+        transform(internalClassName, methodNode);
+        return true;
+    }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.transformer
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Number of runs and time of each [MethodTransformer] class in one module, see `GenerationState.methodTransformerStatistics`.
+ * Unlike a global `PerformanceCounter`, it does not outlive the compilation, which matters in a long-living process (the daemon).
+ */
+class MethodTransformerStatistics {
+    private class Entry {
+        val count = AtomicInteger()
+        val nanos = AtomicLong()
+    }
+
+    private val entries = ConcurrentHashMap<Class<*>, Entry>()
+
+    fun <T> time(transformer: MethodTransformer, block: () -> T): T {
+        val entry = entries.computeIfAbsent(transformer.javaClass) { Entry() }
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            entry.nanos.addAndGet(System.nanoTime() - start)
+            entry.count.incrementAndGet()
+        }
+    }
+
+    fun report(consumer: (transformer: String, count: Int, nanos: Long) -> Unit) {
+        for ((transformerClass, entry) in entries.entries.sortedBy { it.key.simpleName }) {
+            consumer(transformerClass.simpleName, entry.count.get(), entry.nanos.get())
+        }
+    }
+}
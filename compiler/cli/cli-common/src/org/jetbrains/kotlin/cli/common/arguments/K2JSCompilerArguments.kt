@@ -138,6 +138,27 @@ class K2JSCompilerArguments : CommonCompilerArguments() {
     @Argument(value = "-Xir-per-module", description = "Splits generated .js per-module")
     var irPerModule: Boolean by FreezableVar(false)
 
+    @Argument(
+        value = "-Xir-build-cache",
+        valueDescription = "<path>",
+        description = "Reuse JS generated by IR backend from the specified directory when sources, libraries and compiler settings are unchanged"
+    )
+    var irBuildCache: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xir-lowering-threads",
+        valueDescription = "<N>",
+        description = "Run file-local IR lowerings on N threads"
+    )
+    var irLoweringThreads: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xir-translation-threads",
+        valueDescription = "<N>",
+        description = "Translate IR files to JS on N threads"
+    )
+    var irTranslationThreads: String? by NullableStringFreezableVar(null)
+
     @Argument(
         value = "-Xinclude",
         valueDescription = "<path>",
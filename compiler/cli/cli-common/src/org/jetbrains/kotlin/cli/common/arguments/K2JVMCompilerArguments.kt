@@ -139,6 +139,12 @@ class K2JVMCompilerArguments : CommonCompilerArguments() {
     @Argument(value = "-Xno-optimize", description = "Disable optimizations")
     var noOptimize: Boolean by FreezableVar(false)
 
+    @Argument(
+        value = "-Xno-jar-compression",
+        description = "Store the entries of the resulting JAR uncompressed, which makes writing it faster"
+    )
+    var noJarCompression: Boolean by FreezableVar(false)
+
     @Argument(
         value = "-Xnormalize-constructor-calls",
         valueDescription = "{disable|enable}",
@@ -14,6 +14,7 @@ import org.jetbrains.kotlin.cli.common.ExitCode.COMPILATION_ERROR
 import org.jetbrains.kotlin.cli.common.ExitCode.OK
 import org.jetbrains.kotlin.cli.common.arguments.K2JSCompilerArguments
 import org.jetbrains.kotlin.cli.common.arguments.K2JsArgumentConstants
+import org.jetbrains.kotlin.cli.common.arguments.collectProperties
 import org.jetbrains.kotlin.cli.common.config.addKotlinSourceRoot
 import org.jetbrains.kotlin.cli.common.extensions.ScriptEvaluationExtension
 import org.jetbrains.kotlin.cli.common.messages.AnalyzerWithCompilerReport
@@ -26,6 +27,7 @@ import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
 import org.jetbrains.kotlin.cli.jvm.plugins.PluginCliParser
 import org.jetbrains.kotlin.config.CommonConfigurationKeys
 import org.jetbrains.kotlin.config.CompilerConfiguration
+import org.jetbrains.kotlin.config.CompilerConfigurationKey
 import org.jetbrains.kotlin.config.IncrementalCompilation
 import org.jetbrains.kotlin.config.Services
 import org.jetbrains.kotlin.incremental.components.ExpectActualTracker
@@ -34,6 +36,7 @@ import org.jetbrains.kotlin.incremental.js.IncrementalDataProvider
 import org.jetbrains.kotlin.incremental.js.IncrementalNextRoundChecker
 import org.jetbrains.kotlin.incremental.js.IncrementalResultsConsumer
 import org.jetbrains.kotlin.ir.backend.js.*
+import org.jetbrains.kotlin.ir.backend.js.ic.JsIrBuildCache
 import org.jetbrains.kotlin.ir.declarations.persistent.PersistentIrFactory
 import org.jetbrains.kotlin.js.config.EcmaVersion
 import org.jetbrains.kotlin.js.config.JSConfigurationKeys
@@ -236,7 +239,8 @@ class K2JsIrCompiler : CLICompiler<K2JSCompilerArguments>() {
                     generateDceJs = arguments.irDce,
                     dceDriven = arguments.irDceDriven,
                     multiModule = arguments.irPerModule,
-                    relativeRequirePath = true
+                    relativeRequirePath = true,
+                    buildCache = createBuildCache(arguments)
                 )
             } catch (e: JsIrCompilationError) {
                 return COMPILATION_ERROR
@@ -333,6 +337,41 @@ class K2JsIrCompiler : CLICompiler<K2JSCompilerArguments>() {
 
         configuration.put(JSConfigurationKeys.PRINT_REACHABILITY_INFO, arguments.irDcePrintReachabilityInfo)
         configuration.put(JSConfigurationKeys.DISABLE_FAKE_OVERRIDE_VALIDATOR, arguments.disableFakeOverrideValidator)
+
+        putThreadCount(configuration, JSConfigurationKeys.LOWERING_THREADS, arguments.irLoweringThreads, "lowering", messageCollector)
+        putThreadCount(configuration, JSConfigurationKeys.TRANSLATION_THREADS, arguments.irTranslationThreads, "translation", messageCollector)
+    }
+
+    private fun putThreadCount(
+        configuration: CompilerConfiguration,
+        key: CompilerConfigurationKey<Int>,
+        value: String?,
+        description: String,
+        messageCollector: MessageCollector
+    ) {
+        if (value == null) return
+
+        val threads = value.toIntOrNull()
+        if (threads == null || threads < 1) {
+            messageCollector.report(ERROR, "Invalid number of $description threads: $value", null)
+        } else {
+            configuration.put(key, threads)
+        }
+    }
+
+    // All arguments are a part of the cache key instead of a hand-picked subset of them, so that a new argument can't be missed.
+    // Plugin jars are fingerprinted by the cache itself, plugin options are passed as arguments.
+    private fun createBuildCache(arguments: K2JSCompilerArguments): JsIrBuildCache? {
+        val cacheDir = arguments.irBuildCache ?: return null
+
+        val argumentProperties = collectProperties(K2JSCompilerArguments::class, false).filter { it.name != "internalArguments" }
+        val settings = argumentProperties.sortedBy { it.name }.map { property ->
+            val value = property.get(arguments)
+            "${property.name}=${if (value is Array<*>) value.contentToString() else value}"
+        } + arguments.internalArguments.map { it.stringRepresentation }
+
+        val pluginClasspath = arguments.pluginClasspaths.orEmpty().map(::File)
+        return JsIrBuildCache(File(cacheDir), settings, pluginClasspath)
     }
 
     override fun executableScriptFileName(): String {
@@ -75,6 +75,14 @@ abstract class CommonCompilerPerformanceManager(private val presentableName: Str
         measurements += CodeGenerationMeasurement(lines, TimeUnit.NANOSECONDS.toMillis(time))
     }
 
+    open fun notifyBoxingOptimizationFinished(moduleName: String, removedBoxings: Int) {
+        measurements += BoxingOptimizationMeasurement(moduleName, removedBoxings)
+    }
+
+    open fun notifyBytecodeOptimizationFinished(moduleName: String, transformer: String, count: Int, nanos: Long) {
+        measurements += BytecodeOptimizationMeasurement(moduleName, transformer, count, TimeUnit.NANOSECONDS.toMillis(nanos))
+    }
+
     open fun notifyIRTranslationStarted() {
         irTranslationStart = PerformanceCounter.currentTime()
     }
@@ -29,6 +29,19 @@ class GarbageCollectionMeasurement(val garbageCollectionKind: String, val millis
     override fun render(): String = "GC time for $garbageCollectionKind is $milliseconds ms, $count collections"
 }
 
+class BoxingOptimizationMeasurement(private val moduleName: String, private val removedBoxings: Int) : PerformanceMeasurement {
+    override fun render(): String = "BOXING: $removedBoxings boxed values removed in module $moduleName"
+}
+
+class BytecodeOptimizationMeasurement(
+    private val moduleName: String,
+    private val transformer: String,
+    private val count: Int,
+    private val milliseconds: Long
+) : PerformanceMeasurement {
+    override fun render(): String = "BYTECODE OPTIMIZATION: $transformer performed $count times, total time $milliseconds ms in module $moduleName"
+}
+
 class PerformanceCounterMeasurement(private val counterReport: String) : PerformanceMeasurement {
     override fun render(): String = counterReport
 }
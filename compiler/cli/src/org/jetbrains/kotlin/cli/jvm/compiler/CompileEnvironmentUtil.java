@@ -32,6 +32,8 @@ import org.jetbrains.kotlin.utils.PathUtil;
 
 import java.io.*;
 import java.util.jar.*;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
 
 import static org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity.ERROR;
 
@@ -51,7 +53,7 @@ public class CompileEnvironmentUtil {
 
     // TODO: includeRuntime should be not a flag but a path to runtime
     private static void doWriteToJar(
-            OutputFileCollection outputFiles, OutputStream fos, @Nullable FqName mainClass, boolean includeRuntime
+            OutputFileCollection outputFiles, OutputStream fos, @Nullable FqName mainClass, boolean includeRuntime, boolean noCompression
     ) {
         try {
             Manifest manifest = new Manifest();
@@ -61,13 +63,29 @@ public class CompileEnvironmentUtil {
             if (mainClass != null) {
                 mainAttributes.putValue("Main-Class", mainClass.asString());
             }
-            JarOutputStream stream = new JarOutputStream(fos, manifest);
+            JarOutputStream stream;
+            if (noCompression) {
+                // the constructor taking a manifest would write it compressed
+                stream = new JarOutputStream(fos);
+                ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+                manifest.write(manifestBytes);
+                putStoredEntry(stream, JarFile.MANIFEST_NAME, manifestBytes.toByteArray());
+            }
+            else {
+                stream = new JarOutputStream(fos, manifest);
+            }
             for (OutputFile outputFile : outputFiles.asList()) {
-                stream.putNextEntry(new JarEntry(outputFile.getRelativePath()));
-                stream.write(outputFile.asByteArray());
+                byte[] bytes = outputFile.asByteArray();
+                if (noCompression) {
+                    putStoredEntry(stream, outputFile.getRelativePath(), bytes);
+                }
+                else {
+                    stream.putNextEntry(new JarEntry(outputFile.getRelativePath()));
+                    stream.write(bytes);
+                }
             }
             if (includeRuntime) {
-                writeRuntimeToJar(stream);
+                writeRuntimeToJar(stream, noCompression);
             }
             stream.finish();
         }
@@ -76,11 +94,14 @@ public class CompileEnvironmentUtil {
         }
     }
 
-    public static void writeToJar(File jarPath, boolean jarRuntime, FqName mainClass, OutputFileCollection outputFiles) {
-        FileOutputStream outputStream = null;
+    public static void writeToJar(
+            File jarPath, boolean jarRuntime, boolean noCompression, FqName mainClass, OutputFileCollection outputFiles
+    ) {
+        OutputStream outputStream = null;
         try {
-            outputStream = new FileOutputStream(jarPath);
-            doWriteToJar(outputFiles, outputStream, mainClass, jarRuntime);
+            // JarOutputStream writes small chunks (e.g. entry headers and the deflater's 512-byte buffer), so they are buffered
+            outputStream = new BufferedOutputStream(new FileOutputStream(jarPath), 1 << 16);
+            doWriteToJar(outputFiles, outputStream, mainClass, jarRuntime, noCompression);
             outputStream.close();
         }
         catch (FileNotFoundException e) {
@@ -94,15 +115,28 @@ public class CompileEnvironmentUtil {
         }
     }
 
-    private static void writeRuntimeToJar(JarOutputStream stream) throws IOException {
+    // stored entries are written as is, but their size and checksum must be known before the data
+    private static void putStoredEntry(JarOutputStream stream, String name, byte[] bytes) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        JarEntry entry = new JarEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        entry.setCompressedSize(bytes.length);
+        entry.setCrc(crc.getValue());
+        stream.putNextEntry(entry);
+        stream.write(bytes);
+    }
+
+    private static void writeRuntimeToJar(JarOutputStream stream, boolean noCompression) throws IOException {
         File stdlibPath = PathUtil.getKotlinPathsForCompiler().getStdlibPath();
         if (!stdlibPath.exists()) {
             throw new CompileEnvironmentException("Couldn't find kotlin-stdlib at " + stdlibPath);
         }
-        copyJarImpl(stream, stdlibPath);
+        copyJarImpl(stream, stdlibPath, noCompression);
     }
 
-    private static void copyJarImpl(JarOutputStream stream, File jarPath) throws IOException {
+    private static void copyJarImpl(JarOutputStream stream, File jarPath, boolean noCompression) throws IOException {
         try (JarInputStream jis = new JarInputStream(new FileInputStream(jarPath))) {
             while (true) {
                 JarEntry e = jis.getNextJarEntry();
@@ -110,8 +144,13 @@ public class CompileEnvironmentUtil {
                     break;
                 }
                 if (FileUtilRt.extensionEquals(e.getName(), "class")) {
-                    stream.putNextEntry(e);
-                    FileUtil.copy(jis, stream);
+                    if (noCompression) {
+                        putStoredEntry(stream, e.getName(), FileUtil.loadBytes(jis));
+                    }
+                    else {
+                        stream.putNextEntry(e);
+                        FileUtil.copy(jis, stream);
+                    }
                 }
             }
         }
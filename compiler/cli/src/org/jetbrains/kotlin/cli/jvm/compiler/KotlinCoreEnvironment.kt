@@ -226,7 +226,18 @@ class KotlinCoreEnvironment private constructor(
 
         // REPL and kapt2 update classpath dynamically
         rootsIndex = JvmDependenciesDynamicCompoundIndex().apply {
-            addIndex(JvmDependenciesIndexImpl(roots))
+            val pool = dependenciesIndexPool
+            val pooledRoots = if (pool != null) roots.takeWhile(pool::canPool) else emptyList()
+            if (pool != null && pooledRoots.isNotEmpty()) {
+                val lease = pool.lease(pooledRoots)
+                Disposer.register(projectEnvironment.parentDisposable, Disposable { lease.release() })
+                addIndex(lease.index)
+                if (pooledRoots.size < roots.size) {
+                    addIndex(JvmDependenciesIndexImpl(roots.subList(pooledRoots.size, roots.size)))
+                }
+            } else {
+                addIndex(JvmDependenciesIndexImpl(roots))
+            }
             updateClasspathFromRootsIndex(this)
         }
 
@@ -456,6 +467,10 @@ class KotlinCoreEnvironment private constructor(
         // used in the daemon for jar cache cleanup
         val applicationEnvironment: KotlinCoreApplicationEnvironment? get() = ourApplicationEnvironment
 
+        // set by the daemon to reuse classpath indices between compilations
+        @Volatile
+        var dependenciesIndexPool: JvmDependenciesIndexPool? = null
+
         fun getOrCreateApplicationEnvironmentForProduction(
             parentDisposable: Disposable, configuration: CompilerConfiguration
         ): KotlinCoreApplicationEnvironment {
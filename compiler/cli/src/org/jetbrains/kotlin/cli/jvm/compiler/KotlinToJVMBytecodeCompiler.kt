@@ -36,6 +36,7 @@ import org.jetbrains.kotlin.backend.jvm.JvmGeneratorExtensions
 import org.jetbrains.kotlin.backend.jvm.JvmIrCodegenFactory
 import org.jetbrains.kotlin.backend.jvm.jvmPhases
 import org.jetbrains.kotlin.cli.common.CLIConfigurationKeys
+import org.jetbrains.kotlin.cli.common.CommonCompilerPerformanceManager
 import org.jetbrains.kotlin.cli.common.checkKotlinPackageUsage
 import org.jetbrains.kotlin.cli.common.config.addKotlinSourceRoot
 import org.jetbrains.kotlin.cli.common.messages.AnalyzerWithCompilerReport
@@ -106,7 +107,8 @@ object KotlinToJVMBytecodeCompiler {
         val messageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE)
         if (jarPath != null) {
             val includeRuntime = configuration.get(JVMConfigurationKeys.INCLUDE_RUNTIME, false)
-            CompileEnvironmentUtil.writeToJar(jarPath, includeRuntime, mainClassProvider?.mainClassFqName, outputFiles)
+            val noCompression = configuration.get(JVMConfigurationKeys.NO_JAR_COMPRESSION, false)
+            CompileEnvironmentUtil.writeToJar(jarPath, includeRuntime, noCompression, mainClassProvider?.mainClassFqName, outputFiles)
             if (reportOutputFiles) {
                 val message = OutputMessageUtil.formatOutputMessage(outputFiles.asList().flatMap { it.sourceFiles }.distinct(), jarPath)
                 messageCollector.report(OUTPUT, message)
@@ -459,6 +461,7 @@ object KotlinToJVMBytecodeCompiler {
 
             performanceManager?.notifyIRGenerationFinished()
             performanceManager?.notifyGenerationFinished()
+            performanceManager?.notifyOptimizationsFinished(generationState)
             ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
             outputs[module] = generationState
         }
@@ -685,6 +688,7 @@ object KotlinToJVMBytecodeCompiler {
         KotlinCodegenFacade.compileCorrectFiles(generationState)
 
         performanceManager?.notifyGenerationFinished()
+        performanceManager?.notifyOptimizationsFinished(generationState)
 
         ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
 
@@ -704,6 +708,13 @@ object KotlinToJVMBytecodeCompiler {
         return generationState
     }
 
+    private fun CommonCompilerPerformanceManager.notifyOptimizationsFinished(generationState: GenerationState) {
+        notifyBoxingOptimizationFinished(generationState.moduleName, generationState.removedBoxingsCount.get())
+        generationState.methodTransformerStatistics.report { transformer, count, nanos ->
+            notifyBytecodeOptimizationFinished(generationState.moduleName, transformer, count, nanos)
+        }
+    }
+
     private val KotlinCoreEnvironment.messageCollector: MessageCollector
         get() = configuration.getNotNull(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY)
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.index
+
+import com.intellij.util.io.URLUtil
+import java.io.File
+import java.lang.ref.SoftReference
+
+// Keeps warm classpath indices between compilations in a long-living process (the daemon), so that repeated compilations
+// against the same binary classpath skip the package traversal of every jar.
+// JvmDependenciesIndexImpl is not thread-safe, therefore an index is leased exclusively and returned to the pool after the compilation.
+// Only archive roots (jars and jrt) are pooled: their content is fixed for a given stamp, unlike that of a directory.
+// Pooled indices are validated by the path and the size/modification stamp of every archive, so they stay valid when the jar
+// handler cache is cleared: the virtual files they refer to keep their own handlers. Idle indices are softly referenced,
+// so that the GC can drop them under memory pressure.
+class JvmDependenciesIndexPool(private val maxSize: Int) {
+    private data class Key(val roots: List<String>)
+
+    inner class Lease internal constructor(private val key: Key, private val roots: List<JavaRoot>, val index: JvmDependenciesIndex) {
+        fun release() {
+            // an archive was modified during the compilation, the index may not match its content anymore
+            if (keyOf(roots) != key) return
+
+            synchronized(this@JvmDependenciesIndexPool) {
+                idle.getOrPut(key, ::ArrayList).add(SoftReference(index))
+                idleCount++
+                evictExcess(maxSize)
+            }
+        }
+    }
+
+    // access-ordered, so that the least recently used classpaths are evicted first
+    private val idle = LinkedHashMap<Key, MutableList<SoftReference<JvmDependenciesIndex>>>(16, 0.75f, true)
+    private var idleCount = 0
+
+    var hits = 0L
+        @Synchronized get
+        private set
+
+    var misses = 0L
+        @Synchronized get
+        private set
+
+    fun canPool(root: JavaRoot): Boolean =
+        root.type == JavaRoot.RootType.BINARY && root.file.fileSystem.protocol != URLUtil.FILE_PROTOCOL
+
+    fun lease(roots: List<JavaRoot>): Lease {
+        val key = keyOf(roots)
+        synchronized(this) {
+            val pooled = pollIdle(key)
+            if (pooled != null) {
+                hits++
+                return Lease(key, roots, pooled)
+            }
+            misses++
+        }
+        return Lease(key, roots, JvmDependenciesIndexImpl(roots))
+    }
+
+    // drops the least recently used idle indices, leased ones are unaffected; returns the number of dropped indices
+    @Synchronized
+    fun trimTo(size: Int): Int {
+        val before = idleCount
+        evictExcess(size)
+        return before - idleCount
+    }
+
+    @Synchronized
+    fun clear() {
+        idle.clear()
+        idleCount = 0
+    }
+
+    val idleSize: Int
+        @Synchronized get() = idleCount
+
+    val statistics: String
+        @Synchronized get() {
+            val total = hits + misses
+            val hitRate = if (total == 0L) 0 else hits * 100 / total
+            return "classpath index pool: $idleCount idle, $hits hits, $misses misses ($hitRate% hit rate)"
+        }
+
+    private fun pollIdle(key: Key): JvmDependenciesIndex? {
+        val references = idle[key] ?: return null
+        try {
+            while (references.isNotEmpty()) {
+                idleCount--
+                // null if collected by the GC
+                references.removeAt(references.lastIndex).get()?.let { return it }
+            }
+            return null
+        } finally {
+            if (references.isEmpty()) idle.remove(key)
+        }
+    }
+
+    private fun evictExcess(size: Int) {
+        val iterator = idle.values.iterator()
+        while (idleCount > size && iterator.hasNext()) {
+            val indices = iterator.next()
+            idleCount -= indices.size
+            iterator.remove()
+        }
+    }
+
+    private fun keyOf(roots: List<JavaRoot>): Key =
+        Key(roots.map { root -> "${root.file.url}|${root.prefixFqName}|${root.archiveStamp()}" })
+
+    private fun JavaRoot.archiveStamp(): String {
+        val archive = File(file.path.substringBefore(URLUtil.JAR_SEPARATOR))
+        return "${archive.length()}:${archive.lastModified()}"
+    }
+}
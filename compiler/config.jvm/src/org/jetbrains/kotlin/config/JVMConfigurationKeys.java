@@ -33,6 +33,8 @@ public class JVMConfigurationKeys {
             CompilerConfigurationKey.create("output .jar");
     public static final CompilerConfigurationKey<Boolean> INCLUDE_RUNTIME =
             CompilerConfigurationKey.create("include runtime to the resulting .jar");
+    public static final CompilerConfigurationKey<Boolean> NO_JAR_COMPRESSION =
+            CompilerConfigurationKey.create("store entries of the resulting .jar uncompressed");
 
     public static final CompilerConfigurationKey<File> JDK_HOME =
             CompilerConfigurationKey.create("jdk home");
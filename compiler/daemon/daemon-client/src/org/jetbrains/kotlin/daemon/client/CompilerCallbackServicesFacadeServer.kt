@@ -95,6 +95,14 @@ open class CompilerCallbackServicesFacadeServer(
         }
     }
 
+    override fun lookupTracker_recordChunk(chunk: ByteArray) {
+        val lookupTracker = lookupTracker!!
+
+        readLookupsChunk(chunk) { filePath, position, scopeFqName, scopeKind, name ->
+            lookupTracker.record(filePath, position, scopeFqName, scopeKind, name)
+        }
+    }
+
     private val lookupTracker_isDoNothing: Boolean = lookupTracker === LookupTracker.DO_NOTHING
 
     override fun lookupTracker_isDoNothing(): Boolean = lookupTracker_isDoNothing
@@ -82,6 +82,8 @@ interface KotlinCompilerDaemonClient {
                     }
                 )
                 .newInstance() as KotlinCompilerDaemonClient
+
+        fun instantiate(): KotlinCompilerDaemonClient = instantiate(DaemonProtocolVariant.fromSystemProperty())
     }
 
 }
@@ -96,8 +98,10 @@ object KotlinCompilerClientInstance {
         val clientInstance: KotlinCompilerDaemonClient? = when (args.last()) {
             SOCKETS_FLAG ->
                 instantiate(DaemonProtocolVariant.SOCKETS)
-            else ->
+            RMI_FLAG ->
                 instantiate(DaemonProtocolVariant.RMI)
+            else ->
+                instantiate()
         }
         clientInstance?.main(*args.sliceArray(0..args.lastIndex))
     }
@@ -83,7 +83,7 @@ class ByteReadChannelWrapper(readChannel: ByteReadChannel, private val log: Logg
     private fun getLength(packet: ByteArray): Int {
         val (b1, b2, b3, b4) = packet.map(Byte::toInt)
         return (0xFF and b1 shl 24 or (0xFF and b2 shl 16) or
-                (0xFF and b3 shl 8) or (0xFF and b4)).also { log.fine("   $it") }
+                (0xFF and b3 shl 8) or (0xFF and b4)).also { log.fine { "   $it" } }
     }
 
     /** first reads <t>length</t> token (4 bytes) and then -- reads <t>length</t> bytes.
@@ -104,13 +104,7 @@ class ByteReadChannelWrapper(readChannel: ByteReadChannel, private val log: Logg
                 }
             }
         } else { // optimize for long strings!
-            readPacket(-length)?.let { bytes ->
-                String(
-                    ByteArrayInputStream(
-                        bytes
-                    ).readBytes()
-                )
-            }
+            readPacket(-length)?.let { bytes -> String(bytes, Charsets.UTF_8) }
         }
 
     /** first reads <t>length</t> token (4 bytes), then reads <t>length</t> bytes and returns deserialized object */
@@ -130,13 +124,9 @@ class ByteWriteChannelWrapper(writeChannel: ByteWriteChannel, private val log: L
 
     private interface WriteActorQuery
 
-    private open class ByteData(val bytes: ByteArray) : WriteActorQuery {
-        open fun toByteArray(): ByteArray = bytes
-    }
+    private open class ByteData(val bytes: ByteArray) : WriteActorQuery
 
-    private class ObjectWithLength(val lengthBytes: ByteArray, bytes: ByteArray) : ByteData(bytes) {
-        override fun toByteArray() = lengthBytes + bytes
-    }
+    private class ObjectWithLength(val lengthBytes: ByteArray, bytes: ByteArray) : ByteData(bytes)
 
     private class CloseMessage : WriteActorQuery
 
@@ -162,7 +152,11 @@ class ByteWriteChannelWrapper(writeChannel: ByteWriteChannel, private val log: L
                         writeChannel.close()
                     }
                     is ByteData -> {
-                        tryWrite(message.toByteArray(), writeChannel)
+                        // written separately, so that the payload is not copied just to prepend its length
+                        if (message is ObjectWithLength) {
+                            tryWrite(message.lengthBytes, writeChannel)
+                        }
+                        tryWrite(message.bytes, writeChannel)
                         if (!writeChannel.isClosedForWrite) {
                             try {
                                 writeChannel.flush()
@@ -197,7 +191,11 @@ class ByteWriteChannelWrapper(writeChannel: ByteWriteChannel, private val log: L
             }
         }
 
-    private suspend fun writeString(s: String) = writeBytesAndLength(-s.length, s.toByteArray())
+    private suspend fun writeString(s: String) {
+        // the length is that of the encoded bytes, not of the string, otherwise non-ASCII strings are truncated on read
+        val bytes = s.toByteArray(Charsets.UTF_8)
+        writeBytesAndLength(-bytes.size, bytes)
+    }
 
     fun getLengthBytes(length: Int) =
         ByteBuffer
@@ -206,7 +204,8 @@ class ByteWriteChannelWrapper(writeChannel: ByteWriteChannel, private val log: L
             .array()
 
     suspend fun writeObject(obj: Any?) {
-        if (obj is String) writeString(obj)
+        // an empty string would be framed with length 0, which the reader takes for a serialized object
+        if (obj is String && obj.isNotEmpty()) writeString(obj)
         else writeObjectImpl(obj)
     }
 
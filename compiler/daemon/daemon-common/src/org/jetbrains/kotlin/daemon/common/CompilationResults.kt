@@ -29,6 +29,7 @@ enum class CompilationResultCategory(val code: Int) {
     IC_COMPILE_ITERATION(0),
     BUILD_REPORT_LINES(1),
     VERBOSE_BUILD_REPORT_LINES(2),
+    IC_METRICS(3),
 }
 
 interface CompilationResultsAsync {
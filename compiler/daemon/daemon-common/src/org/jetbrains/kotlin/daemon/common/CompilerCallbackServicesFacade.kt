@@ -88,6 +88,10 @@ interface CompilerCallbackServicesFacade : Remote {
     @Throws(RemoteException::class)
     fun lookupTracker_record(lookups: Collection<LookupInfo>)
 
+    // lookups encoded with LookupsChunkWriter
+    @Throws(RemoteException::class)
+    fun lookupTracker_recordChunk(chunk: ByteArray)
+
     @Throws(RemoteException::class)
     fun lookupTracker_isDoNothing(): Boolean
 
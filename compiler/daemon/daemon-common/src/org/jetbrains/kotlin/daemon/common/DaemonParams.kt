@@ -38,6 +38,7 @@ val COMPILE_DAEMON_CLIENT_ALIVE_PATH_PROPERTY: String = "kotlin.daemon.client.al
 val COMPILE_DAEMON_LOG_PATH_PROPERTY: String = "kotlin.daemon.log.path"
 val COMPILE_DAEMON_REPORT_PERF_PROPERTY: String = "kotlin.daemon.perf"
 val COMPILE_DAEMON_VERBOSE_REPORT_PROPERTY: String = "kotlin.daemon.verbose"
+val COMPILE_DAEMON_PROTOCOL_PROPERTY: String = "kotlin.daemon.protocol"
 val COMPILE_DAEMON_CMDLINE_OPTIONS_PREFIX: String = "--daemon-"
 val COMPILE_DAEMON_STARTUP_TIMEOUT_PROPERTY: String = "kotlin.daemon.startup.timeout"
 val COMPILE_DAEMON_DEFAULT_FILES_PREFIX: String = "kotlin-daemon"
@@ -6,5 +6,13 @@
 package org.jetbrains.kotlin.daemon.common
 
 enum class DaemonProtocolVariant {
-    RMI, SOCKETS
+    RMI, SOCKETS;
+
+    companion object {
+        // RMI stays the default until the socket transport replaces it in all clients
+        fun fromSystemProperty(): DaemonProtocolVariant =
+            System.getProperty(COMPILE_DAEMON_PROTOCOL_PROPERTY)?.let { value ->
+                values().firstOrNull { it.name.equals(value, ignoreCase = true) }
+            } ?: RMI
+    }
 }
\ No newline at end of file
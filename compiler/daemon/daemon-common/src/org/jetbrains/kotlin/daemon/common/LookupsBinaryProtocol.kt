@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon.common
+
+import org.jetbrains.kotlin.incremental.components.Position
+import org.jetbrains.kotlin.incremental.components.ScopeKind
+import java.io.*
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+import java.util.zip.InflaterInputStream
+
+// Compact binary encoding of lookups transferred from the daemon to the client in chunks.
+// Every chunk is self-contained: a flags byte followed by the (possibly deflated) payload
+//   strings:  varint count, then for each string: varint UTF-8 length, bytes
+//   files:    varint count, then for each file: varint path id, varint scopes count,
+//   scopes:       for each scope: varint fq name id, byte scope kind, varint names count,
+//   names:            for each name: varint name id [, varint line + 1, varint column + 1 if FLAG_POSITIONS]
+// Strings are interned per chunk and referred to by their index in the table.
+
+const val LOOKUPS_CHUNK_FLAG_COMPRESSED = 1
+const val LOOKUPS_CHUNK_FLAG_POSITIONS = 2
+
+class LookupsChunkWriter(private val withPositions: Boolean) {
+    private data class Scope(val fqNameId: Int, val kind: ScopeKind)
+    private data class Name(val nameId: Int, val line: Int, val column: Int)
+
+    private val strings = LinkedHashMap<String, Int>()
+    private val lookups = LinkedHashMap<Int, MutableMap<Scope, MutableSet<Name>>>()
+
+    var size: Int = 0
+        private set
+
+    val isEmpty: Boolean get() = size == 0
+
+    fun add(filePath: String, position: Position, scopeFqName: String, scopeKind: ScopeKind, name: String) {
+        val scope = Scope(id(scopeFqName), scopeKind)
+        val entry =
+            if (withPositions) Name(id(name), position.line, position.column)
+            else Name(id(name), Position.NO_POSITION.line, Position.NO_POSITION.column)
+
+        if (lookups.getOrPut(id(filePath), ::LinkedHashMap).getOrPut(scope, ::LinkedHashSet).add(entry)) {
+            size++
+        }
+    }
+
+    fun toByteArray(compress: Boolean): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        var flags = 0
+        if (compress) flags = flags or LOOKUPS_CHUNK_FLAG_COMPRESSED
+        if (withPositions) flags = flags or LOOKUPS_CHUNK_FLAG_POSITIONS
+        bytes.write(flags)
+
+        val payload = if (compress) DeflaterOutputStream(bytes, Deflater(Deflater.BEST_SPEED)) else bytes
+        DataOutputStream(BufferedOutputStream(payload)).use { out ->
+            out.writeVarInt(strings.size)
+            for (string in strings.keys) {
+                val utf8 = string.toByteArray(Charsets.UTF_8)
+                out.writeVarInt(utf8.size)
+                out.write(utf8)
+            }
+
+            out.writeVarInt(lookups.size)
+            for ((fileId, scopes) in lookups) {
+                out.writeVarInt(fileId)
+                out.writeVarInt(scopes.size)
+                for ((scope, names) in scopes) {
+                    out.writeVarInt(scope.fqNameId)
+                    out.writeByte(scope.kind.ordinal)
+                    out.writeVarInt(names.size)
+                    for (name in names) {
+                        out.writeVarInt(name.nameId)
+                        if (withPositions) {
+                            out.writeVarInt(name.line + 1)
+                            out.writeVarInt(name.column + 1)
+                        }
+                    }
+                }
+            }
+        }
+        return bytes.toByteArray()
+    }
+
+    fun clear() {
+        strings.clear()
+        lookups.clear()
+        size = 0
+    }
+
+    private fun id(string: String): Int = strings.getOrPut(string) { strings.size }
+}
+
+inline fun readLookupsChunk(
+    chunk: ByteArray,
+    record: (filePath: String, position: Position, scopeFqName: String, scopeKind: ScopeKind, name: String) -> Unit
+) {
+    val flags = chunk[0].toInt()
+    val withPositions = flags and LOOKUPS_CHUNK_FLAG_POSITIONS != 0
+    val payload: InputStream = ByteArrayInputStream(chunk, 1, chunk.size - 1).let {
+        if (flags and LOOKUPS_CHUNK_FLAG_COMPRESSED != 0) InflaterInputStream(it) else it
+    }
+    val scopeKinds = ScopeKind.values()
+
+    DataInputStream(BufferedInputStream(payload)).use { input ->
+        val strings = Array(input.readVarInt()) {
+            val utf8 = ByteArray(input.readVarInt())
+            input.readFully(utf8)
+            String(utf8, Charsets.UTF_8)
+        }
+
+        repeat(input.readVarInt()) {
+            val filePath = strings[input.readVarInt()]
+            repeat(input.readVarInt()) {
+                val scopeFqName = strings[input.readVarInt()]
+                val scopeKind = scopeKinds[input.readUnsignedByte()]
+                repeat(input.readVarInt()) {
+                    val name = strings[input.readVarInt()]
+                    val position =
+                        if (withPositions) Position(input.readVarInt() - 1, input.readVarInt() - 1)
+                        else Position.NO_POSITION
+                    record(filePath, position, scopeFqName, scopeKind, name)
+                }
+            }
+        }
+    }
+}
+
+fun DataOutput.writeVarInt(value: Int) {
+    var rest = value
+    while (rest and 0x7F.inv() != 0) {
+        writeByte((rest and 0x7F) or 0x80)
+        rest = rest ushr 7
+    }
+    writeByte(rest)
+}
+
+fun DataInput.readVarInt(): Int {
+    var result = 0
+    var shift = 0
+    while (true) {
+        val byte = readUnsignedByte()
+        result = result or ((byte and 0x7F) shl shift)
+        if (byte and 0x80 == 0) return result
+        shift += 7
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import junit.framework.TestCase
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.logging.Logger
+import kotlin.concurrent.thread
+
+class CompilationAdmissionTest : TestCase() {
+
+    private val log = Logger.getLogger("CompilationAdmissionTest")
+
+    fun testConcurrentAdmissionWithEnoughHeadroom() {
+        val admission = CompilationAdmission(minHeadroomRatio = 0.0, maxWaitMillis = 60_000, log = log)
+        val bothActive = CountDownLatch(2)
+        val release = CountDownLatch(1)
+
+        val threads = (1..2).map {
+            thread {
+                admission.admit {
+                    bothActive.countDown()
+                    release.await()
+                }
+            }
+        }
+
+        assertTrue("Compilations were not admitted concurrently", bothActive.await(10, TimeUnit.SECONDS))
+        assertEquals(2, admission.active)
+        release.countDown()
+        threads.forEach { it.join() }
+        assertEquals(0, admission.active)
+    }
+
+    fun testWaitsForRunningCompilationWithoutHeadroom() {
+        val admission = CompilationAdmission(minHeadroomRatio = 2.0, maxWaitMillis = 60_000, log = log)
+        admission.enter()
+
+        val admitted = CountDownLatch(1)
+        val waiting = thread {
+            admission.admit { admitted.countDown() }
+        }
+
+        assertFalse("Compilation was admitted without headroom", admitted.await(500, TimeUnit.MILLISECONDS))
+        admission.leave()
+        assertTrue("Compilation was not admitted after the running one finished", admitted.await(10, TimeUnit.SECONDS))
+        waiting.join()
+    }
+
+    fun testAdmitsAfterMaxWait() {
+        val admission = CompilationAdmission(minHeadroomRatio = 2.0, maxWaitMillis = 200, log = log)
+        admission.enter()
+
+        val admitted = CountDownLatch(1)
+        val waiting = thread {
+            admission.enter()
+            admitted.countDown()
+        }
+
+        assertTrue("Compilation was not admitted after the max wait", admitted.await(10, TimeUnit.SECONDS))
+        assertEquals(2, admission.active)
+        waiting.join()
+        admission.leave()
+        admission.leave()
+    }
+
+    fun testCleanupRunsImmediatelyWhenIdle() {
+        val admission = CompilationAdmission(minHeadroomRatio = 0.0, maxWaitMillis = 60_000, log = log)
+        val runs = AtomicInteger()
+
+        assertTrue(admission.runWhenIdle { runs.incrementAndGet() })
+        assertEquals(1, runs.get())
+    }
+
+    fun testCleanupDeferredUntilIdle() {
+        val admission = CompilationAdmission(minHeadroomRatio = 0.0, maxWaitMillis = 60_000, log = log)
+        val runs = AtomicInteger()
+
+        admission.enter()
+        admission.enter()
+        assertFalse(admission.runWhenIdle { runs.incrementAndGet() })
+
+        admission.leave()
+        assertEquals("Cleanup ran while a compilation was active", 0, runs.get())
+        admission.leave()
+        assertEquals(1, runs.get())
+
+        // not run again by the next compilation
+        admission.admit {}
+        assertEquals(1, runs.get())
+    }
+
+    fun testOnlyLatestPendingCleanupRuns() {
+        val admission = CompilationAdmission(minHeadroomRatio = 0.0, maxWaitMillis = 60_000, log = log)
+        val runs = mutableListOf<String>()
+
+        admission.enter()
+        assertFalse(admission.runWhenIdle { runs.add("first") })
+        assertFalse(admission.runWhenIdle { runs.add("second") })
+        admission.leave()
+
+        assertEquals(listOf("second"), runs)
+    }
+
+    fun testCompilationWaitsForRunningCleanup() {
+        val admission = CompilationAdmission(minHeadroomRatio = 0.0, maxWaitMillis = 60_000, log = log)
+        val cleanupStarted = CountDownLatch(1)
+        val finishCleanup = CountDownLatch(1)
+        val cleanupFinished = CountDownLatch(1)
+
+        val cleaner = thread {
+            admission.runWhenIdle {
+                cleanupStarted.countDown()
+                finishCleanup.await()
+                cleanupFinished.countDown()
+            }
+        }
+        assertTrue(cleanupStarted.await(10, TimeUnit.SECONDS))
+
+        val admitted = CountDownLatch(1)
+        val compilation = thread {
+            admission.admit {
+                assertEquals("Compilation was admitted during cleanup", 0L, cleanupFinished.count)
+                admitted.countDown()
+            }
+        }
+
+        assertFalse("Compilation was admitted during cleanup", admitted.await(500, TimeUnit.MILLISECONDS))
+        finishCleanup.countDown()
+        assertTrue("Compilation was not admitted after cleanup", admitted.await(10, TimeUnit.SECONDS))
+        cleaner.join()
+        compilation.join()
+    }
+
+    fun testFailedCleanupDoesNotBlockAdmission() {
+        val admission = CompilationAdmission(minHeadroomRatio = 0.0, maxWaitMillis = 60_000, log = log)
+
+        try {
+            admission.runWhenIdle { throw IllegalStateException("cleanup failed") }
+            fail("Cleanup exception was not propagated")
+        } catch (e: IllegalStateException) {
+        }
+
+        val admitted = CountDownLatch(1)
+        thread { admission.admit { admitted.countDown() } }
+        assertTrue("Compilation was not admitted after a failed cleanup", admitted.await(10, TimeUnit.SECONDS))
+    }
+}
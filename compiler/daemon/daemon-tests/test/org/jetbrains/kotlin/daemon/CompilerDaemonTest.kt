@@ -25,6 +25,7 @@ import org.jetbrains.kotlin.cli.common.messages.PrintingMessageCollector
 import org.jetbrains.kotlin.cli.common.repl.*
 import org.jetbrains.kotlin.daemon.client.*
 import org.jetbrains.kotlin.daemon.common.*
+import org.jetbrains.kotlin.incremental.IncrementalModuleInfo
 import org.jetbrains.kotlin.integration.KotlinIntegrationTestBase
 import org.jetbrains.kotlin.progress.CompilationCanceledStatus
 import org.jetbrains.kotlin.test.KotlinTestUtils
@@ -32,6 +33,7 @@ import org.jetbrains.kotlin.utils.KotlinPaths
 import java.io.ByteArrayOutputStream
 import java.io.File
 import java.io.PrintStream
+import java.io.Serializable
 import java.lang.management.ManagementFactory
 import java.net.URL
 import java.net.URLClassLoader
@@ -897,6 +899,68 @@ class CompilerDaemonTest : KotlinIntegrationTestBase() {
         }
     }
 
+    fun testIncrementalCompilationMetrics() {
+        withDaemon { daemon ->
+            val srcDir = File(testTempDir, "src").apply { mkdirs() }
+            val outDir = File(testTempDir, "out")
+            val cacheDir = File(testTempDir, "incremental-data")
+            val aKt = File(srcDir, "a.kt").apply { writeText("package foo\n\nfun a(): Int = 1\n") }
+            val bKt = File(srcDir, "b.kt").apply { writeText("package foo\n\nfun b(): Int = a()\n") }
+
+            fun compileIncrementally(modifiedFiles: List<File>?): Map<String, Long> {
+                val strm = ByteArrayOutputStream()
+                val messageCollector = PrintingMessageCollector(PrintStream(strm), MessageRenderer.WITHOUT_PATHS, true)
+                val results = TestCompilationResults()
+                val options = IncrementalCompilationOptions(
+                    areFileChangesKnown = modifiedFiles != null,
+                    modifiedFiles = modifiedFiles,
+                    deletedFiles = if (modifiedFiles != null) emptyList() else null,
+                    workingDir = cacheDir,
+                    compilerMode = CompilerMode.INCREMENTAL_COMPILER,
+                    targetPlatform = CompileService.TargetPlatform.JVM,
+                    reportCategories = emptyArray(),
+                    reportSeverity = ReportSeverity.INFO.code,
+                    requestedCompilationResults = arrayOf(CompilationResultCategory.IC_METRICS.code),
+                    usePreciseJavaTracking = true,
+                    outputFiles = listOf(outDir, cacheDir),
+                    multiModuleICSettings = MultiModuleICSettings(File(cacheDir, "build-history.bin"), useModuleDetection = false),
+                    modulesInfo = IncrementalModuleInfo(testTempDir, emptyMap(), emptyMap(), emptyMap(), emptyMap())
+                )
+                val code = daemon.compile(
+                    CompileService.NO_SESSION,
+                    arrayOf("-module-name", "foo", "-d", outDir.absolutePath, aKt.absolutePath, bKt.absolutePath),
+                    options,
+                    BasicCompilerServicesWithResultsFacadeServer(messageCollector),
+                    results
+                ).get()
+                assertEquals("Compilation failed:\n$strm", 0, code)
+
+                val metrics = results.values[CompilationResultCategory.IC_METRICS.code]
+                assertEquals("Expected IC metrics to be reported once per build", 1, metrics?.size)
+                val json = metrics!!.single() as String
+                assertTrue("Unexpected IC metrics JSON: $json", json.matches(METRICS_JSON_PATTERN))
+                assertTrue("No compile iteration time in $json", json.contains("\"compile.iteration\":"))
+                assertTrue("No cache flush time in $json", json.contains("\"caches.flush.lookups\":"))
+                return parseMetricsCounters(json)
+            }
+
+            val rebuildCounters = compileIncrementally(modifiedFiles = null)
+            assertEquals(1L, rebuildCounters["compile.iterations"])
+            assertEquals(2L, rebuildCounters["compile.files"])
+            assertEquals(2L, rebuildCounters["lookups.files"])
+            assertTrue("No lookups were added on rebuild: $rebuildCounters", rebuildCounters.getValue("lookups.added") > 0)
+
+            // the signature change of a() makes b.kt dirty, which is compiled in the second iteration
+            aKt.writeText("package foo\n\nfun a(x: Int = 0): Int = x\n")
+            val incrementalCounters = compileIncrementally(modifiedFiles = listOf(aKt))
+            assertEquals(2L, incrementalCounters["compile.iterations"])
+            assertEquals(2L, incrementalCounters["compile.files"])
+            assertEquals(2L, incrementalCounters["lookups.files"])
+            assertTrue("No lookups were requested: $incrementalCounters", incrementalCounters.getValue("lookups.requests") > 0)
+            assertTrue("Lookup of a() in b.kt was not found: $incrementalCounters", incrementalCounters.getValue("lookups.hits") > 0)
+        }
+    }
+
     internal fun withDaemon(compilerId: CompilerId = this.compilerId, body: (CompileService) -> Unit) {
         withFlagFile(getTestName(true), ".alive") { flagFile ->
             val daemonOptions = makeTestDaemonOptions(getTestName(true))
@@ -912,6 +976,27 @@ class CompilerDaemonTest : KotlinIntegrationTestBase() {
 }
 
 
+private val METRICS_JSON_PATTERN = Regex("""\{"timesMs":\{("[\w.]+":\d+)(,"[\w.]+":\d+)*},"counters":\{("[\w.]+":\d+)(,"[\w.]+":\d+)*}}""")
+
+internal fun parseMetricsCounters(json: String): Map<String, Long> =
+    json.substringAfter("\"counters\":{").removeSuffix("}}").split(',').associate { entry ->
+        val (key, value) = entry.split(':')
+        key.removeSurrounding("\"") to value.toLong()
+    }
+
+internal class TestCompilationResults :
+    CompilationResults,
+    UnicastRemoteObject(SOCKET_ANY_FREE_PORT, LoopbackNetworkInterface.clientLoopbackSocketFactory, LoopbackNetworkInterface.serverLoopbackSocketFactory) {
+
+    val values = hashMapOf<Int, MutableList<Serializable>>()
+
+    override fun add(compilationResultCategory: Int, value: Serializable) {
+        synchronized(values) {
+            values.getOrPut(compilationResultCategory, ::ArrayList).add(value)
+        }
+    }
+}
+
 // stolen from CompilerFileLimitTest
 internal fun generateLargeKotlinFile(size: Int): String {
     return buildString {
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.daemon.DaemonMemoryGovernor.Eviction
+import java.lang.management.MemoryPoolMXBean
+import java.lang.management.MemoryType
+import java.lang.management.MemoryUsage
+import java.util.logging.Logger
+import javax.management.ObjectName
+
+class DaemonMemoryGovernorTest : TestCase() {
+
+    private val log = Logger.getLogger("DaemonMemoryGovernorTest")
+
+    // simulated heap: every tier frees its share of the usage, which becomes visible after the next GC
+    private inner class Heap(var usage: Double) {
+        var collectable = 0.0
+        var gcCount = 0
+        var exhausted = 0
+        val evicted = arrayListOf<String>()
+
+        fun gc() {
+            gcCount++
+            usage -= collectable
+            collectable = 0.0
+        }
+
+        fun governor() = DaemonMemoryGovernor(0.8, 0.95, log, usageRatio = { usage }, collectGarbage = this::gc) { exhausted++ }
+
+        fun DaemonMemoryGovernor.tier(name: String, frees: Double, result: Eviction = Eviction.FREED) =
+            addTier(name) {
+                evicted.add(name)
+                if (result == Eviction.FREED) collectable += frees
+                result
+            }
+    }
+
+    fun testNothingEvictedBelowThreshold() {
+        val heap = Heap(0.5)
+        val governor = heap.governor().apply { with(heap) { tier("a", 0.1) } }
+
+        governor.evictCaches()
+
+        assertEquals(emptyList<String>(), heap.evicted)
+        assertEquals(0, heap.gcCount)
+    }
+
+    fun testStopsAtFirstSufficientTier() {
+        val heap = Heap(0.85)
+        val governor = heap.governor().apply {
+            with(heap) {
+                tier("a", 0.01)
+                tier("b", 0.2)
+                tier("c", 0.3)
+            }
+        }
+
+        governor.evictCaches()
+
+        assertEquals(listOf("a", "b"), heap.evicted)
+        assertEquals(2, heap.gcCount)
+        assertEquals(mapOf("a" to 1L, "b" to 1L, "c" to 0L), governor.evictionCounts)
+        assertEquals(0, heap.exhausted)
+    }
+
+    fun testExhaustedAfterAllTiers() {
+        val heap = Heap(0.99)
+        val governor = heap.governor().apply {
+            with(heap) {
+                tier("a", 0.01)
+                tier("b", 0.01)
+            }
+        }
+
+        governor.evictCaches()
+
+        assertEquals(listOf("a", "b"), heap.evicted)
+        assertEquals(1, heap.exhausted)
+    }
+
+    fun testNotExhaustedIfAllTiersFreedEnough() {
+        val heap = Heap(0.99)
+        val governor = heap.governor().apply {
+            with(heap) {
+                tier("a", 0.05)
+                tier("b", 0.05)
+            }
+        }
+
+        governor.evictCaches()
+
+        // 0.89 is still above the threshold, but below the critical level
+        assertEquals(listOf("a", "b"), heap.evicted)
+        assertEquals(0, heap.exhausted)
+    }
+
+    fun testEmptyTiersAreNotCounted() {
+        val heap = Heap(0.99)
+        val governor = heap.governor().apply {
+            with(heap) {
+                tier("a", 0.0, Eviction.NOTHING_TO_FREE)
+                tier("b", 0.01)
+            }
+        }
+
+        governor.evictCaches()
+
+        assertEquals(mapOf("a" to 0L, "b" to 1L), governor.evictionCounts)
+        assertEquals("No GC is needed after a tier that freed nothing", 1, heap.gcCount)
+        assertEquals(1, heap.exhausted)
+    }
+
+    fun testDeferredTierPreventsShutdown() {
+        val heap = Heap(0.99)
+        val governor = heap.governor().apply {
+            with(heap) {
+                tier("a", 0.01)
+                tier("b", 0.0, Eviction.DEFERRED)
+            }
+        }
+
+        governor.evictCaches()
+
+        assertEquals(listOf("a", "b"), heap.evicted)
+        assertEquals(mapOf("a" to 1L, "b" to 0L), governor.evictionCounts)
+        assertEquals(0, heap.exhausted)
+    }
+
+    fun testFailingTierDoesNotBreakGovernor() {
+        val heap = Heap(0.99)
+        val governor = heap.governor().apply {
+            addTier("failing") { throw IllegalStateException("eviction failed") }
+        }
+
+        governor.evictCaches()
+        governor.evictCaches()
+
+        assertEquals(0, heap.exhausted)
+    }
+
+    fun testFullSurvivorPoolDoesNotEvict() {
+        val eden = Pool("PS Eden Space", used = 90, isTenured = false)
+        val survivor = Pool("PS Survivor Space", used = 100, isTenured = false)
+        val oldGen = Pool("PS Old Gen", used = 30, isTenured = true)
+        val metaspace = Pool("Metaspace", used = 100, isTenured = true, type = MemoryType.NON_HEAP)
+        val pools = listOf(eden, survivor, oldGen, metaspace)
+
+        val tenured = tenuredPools(pools)
+        assertEquals(listOf(oldGen), tenured)
+
+        val heap = Heap(0.0)
+        var exhausted = 0
+        val governor = DaemonMemoryGovernor(0.8, 0.95, log, pools = tenured, collectGarbage = heap::gc) { exhausted++ }
+        governor.addTier("a") {
+            heap.evicted.add("a")
+            Eviction.FREED
+        }
+
+        governor.start()
+        try {
+            assertEquals(80L, oldGen.collectionUsageThreshold)
+            assertEquals(0L, survivor.collectionUsageThreshold)
+            assertEquals(0L, eden.collectionUsageThreshold)
+
+            governor.evictCaches()
+        } finally {
+            governor.stop()
+        }
+
+        assertEquals(emptyList<String>(), heap.evicted)
+        assertEquals(0, heap.gcCount)
+        assertEquals(0, exhausted)
+    }
+
+    fun testFullTenuredPoolEvicts() {
+        val oldGen = Pool("PS Old Gen", used = 99, isTenured = true)
+        val heap = Heap(0.0)
+        val governor = DaemonMemoryGovernor(0.8, 0.95, log, pools = listOf(oldGen), collectGarbage = heap::gc) {}
+        governor.addTier("a") {
+            heap.evicted.add("a")
+            oldGen.used = 50
+            Eviction.FREED
+        }
+
+        governor.evictCaches()
+
+        assertEquals(listOf("a"), heap.evicted)
+    }
+
+    // young generation pools of HotSpot collectors support only collection usage thresholds
+    private class Pool(
+        private val name: String,
+        var used: Long,
+        private val isTenured: Boolean,
+        private val type: MemoryType = MemoryType.HEAP
+    ) : MemoryPoolMXBean {
+        private var usageThreshold = 0L
+        private var collectionUsageThreshold = 0L
+
+        override fun getName() = name
+        override fun getType() = type
+        override fun getUsage() = MemoryUsage(0, used, 100, 100)
+        override fun getPeakUsage() = usage
+        override fun resetPeakUsage() {}
+        override fun isValid() = true
+        override fun getMemoryManagerNames() = emptyArray<String>()
+        override fun getUsageThreshold() = usageThreshold
+        override fun setUsageThreshold(threshold: Long) {
+            if (!isTenured) throw UnsupportedOperationException()
+            usageThreshold = threshold
+        }
+        override fun isUsageThresholdExceeded() = used >= usageThreshold
+        override fun getUsageThresholdCount() = 0L
+        override fun isUsageThresholdSupported() = isTenured
+        override fun getCollectionUsageThreshold() = collectionUsageThreshold
+        override fun setCollectionUsageThreshold(threshold: Long) {
+            collectionUsageThreshold = threshold
+        }
+        override fun isCollectionUsageThresholdExceeded() = used >= collectionUsageThreshold
+        override fun getCollectionUsageThresholdCount() = 0L
+        override fun getCollectionUsage() = usage
+        override fun isCollectionUsageThresholdSupported() = type == MemoryType.HEAP
+        override fun getObjectName(): ObjectName = ObjectName("java.lang:type=MemoryPool,name=$name")
+    }
+}
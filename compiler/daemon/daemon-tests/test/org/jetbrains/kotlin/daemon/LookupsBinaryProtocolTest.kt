@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.daemon.common.CompilerCallbackServicesFacade
+import org.jetbrains.kotlin.daemon.common.LookupsChunkWriter
+import org.jetbrains.kotlin.daemon.common.readLookupsChunk
+import org.jetbrains.kotlin.incremental.components.LookupInfo
+import org.jetbrains.kotlin.incremental.components.Position
+import org.jetbrains.kotlin.incremental.components.ScopeKind
+import java.io.ByteArrayOutputStream
+import java.io.ObjectOutputStream
+import java.lang.reflect.Proxy
+import java.rmi.ServerException
+import java.rmi.UnmarshalException
+
+class LookupsBinaryProtocolTest : TestCase() {
+
+    fun testRoundTripWithoutPositions() {
+        val lookups = generateLookups().map { it.copy(position = Position.NO_POSITION) }
+        assertEquals(lookups.toSet(), roundTrip(lookups, withPositions = false, compress = false).toSet())
+    }
+
+    fun testRoundTripWithPositions() {
+        val lookups = generateLookups()
+        assertEquals(lookups.toSet(), roundTrip(lookups, withPositions = true, compress = false).toSet())
+    }
+
+    fun testRoundTripCompressed() {
+        val lookups = generateLookups()
+        assertEquals(lookups.toSet(), roundTrip(lookups, withPositions = true, compress = true).toSet())
+    }
+
+    // the previous protocol sent java-serialized LookupInfo collections, see LookupsTransferPerformanceTest for the timings
+    fun testSmallerThanJavaSerialization() {
+        val lookups = generateLookups()
+
+        val serializedSize = javaSerialize(lookups).size
+        val plainSize = encode(lookups, withPositions = true, compress = false).size
+        val compressedSize = encode(lookups, withPositions = true, compress = true).size
+
+        assertTrue("binary chunk ($plainSize) should be smaller than java serialization ($serializedSize)", plainSize < serializedSize)
+        assertTrue("compressed chunk ($compressedSize) should be smaller than plain one ($plainSize)", compressedSize < plainSize)
+    }
+
+    fun testLookupInfosAreSentToClientsWithoutChunkSupport() {
+        var chunkCalls = 0
+        val received = arrayListOf<LookupInfo>()
+        val facade = facade(
+            onChunk = {
+                chunkCalls++
+                throw ServerException(
+                    "RemoteException occurred in server thread",
+                    UnmarshalException("unrecognized method hash: method not supported by remote object")
+                )
+            },
+            onLookups = { received.addAll(it) }
+        )
+        val eventManager = EventManagerImpl()
+        val tracker = RemoteLookupTrackerClient(facade, eventManager)
+        val lookups = generateLookups().take(10)
+
+        for (lookup in lookups.take(5)) {
+            tracker.record(lookup.filePath, lookup.position, lookup.scopeFqName, lookup.scopeKind, lookup.name)
+        }
+        eventManager.fireCompilationFinished()
+        for (lookup in lookups.drop(5)) {
+            tracker.record(lookup.filePath, lookup.position, lookup.scopeFqName, lookup.scopeKind, lookup.name)
+        }
+        eventManager.fireCompilationFinished()
+
+        assertEquals(lookups.toSet(), received.toSet())
+        assertEquals("Chunks should not be sent again after the first failure", 1, chunkCalls)
+    }
+
+    fun testChunksAreSentToClientsWithChunkSupport() {
+        val chunks = arrayListOf<ByteArray>()
+        val facade = facade(onChunk = { chunks.add(it) }, onLookups = { fail("LookupInfo objects should not be sent") })
+        val eventManager = EventManagerImpl()
+        val tracker = RemoteLookupTrackerClient(facade, eventManager)
+        val lookups = generateLookups().take(10)
+
+        for (lookup in lookups) {
+            tracker.record(lookup.filePath, lookup.position, lookup.scopeFqName, lookup.scopeKind, lookup.name)
+        }
+        eventManager.fireCompilationFinished()
+
+        val received = arrayListOf<LookupInfo>()
+        for (chunk in chunks) {
+            readLookupsChunk(chunk) { filePath, position, scopeFqName, scopeKind, name ->
+                received.add(LookupInfo(filePath, position, scopeFqName, scopeKind, name))
+            }
+        }
+        assertEquals(lookups.toSet(), received.toSet())
+    }
+
+    private fun roundTrip(lookups: List<LookupInfo>, withPositions: Boolean, compress: Boolean): List<LookupInfo> {
+        val result = arrayListOf<LookupInfo>()
+        readLookupsChunk(encode(lookups, withPositions, compress)) { filePath, position, scopeFqName, scopeKind, name ->
+            result.add(LookupInfo(filePath, position, scopeFqName, scopeKind, name))
+        }
+        return result
+    }
+
+    @Suppress("DEPRECATION", "UNCHECKED_CAST")
+    private fun facade(
+        onChunk: (ByteArray) -> Unit,
+        onLookups: (Collection<LookupInfo>) -> Unit
+    ): CompilerCallbackServicesFacade =
+        Proxy.newProxyInstance(javaClass.classLoader, arrayOf(CompilerCallbackServicesFacade::class.java)) { _, method, args ->
+            when (method.name) {
+                "lookupTracker_isDoNothing" -> false
+                "lookupTracker_requiresPosition" -> true
+                "lookupTracker_recordChunk" -> onChunk(args[0] as ByteArray)
+                "lookupTracker_record" -> onLookups(args[0] as Collection<LookupInfo>)
+                else -> throw UnsupportedOperationException(method.name)
+            }
+        } as CompilerCallbackServicesFacade
+}
+
+internal fun generateLookups(): List<LookupInfo> =
+    (0 until 50).flatMap { file ->
+        (0 until 20).flatMap { scope ->
+            (0 until 50).map { name ->
+                LookupInfo(
+                    "/project/src/org/example/package$scope/File$file.kt",
+                    Position(file * 10 + name, scope),
+                    "org.example.package$scope.Class${scope % 5}",
+                    if (scope % 2 == 0) ScopeKind.PACKAGE else ScopeKind.CLASSIFIER,
+                    "name${name * scope % 97}"
+                )
+            }
+        }
+    }
+
+internal fun encode(lookups: List<LookupInfo>, withPositions: Boolean, compress: Boolean): ByteArray {
+    val writer = LookupsChunkWriter(withPositions)
+    for (lookup in lookups) {
+        writer.add(lookup.filePath, lookup.position, lookup.scopeFqName, lookup.scopeKind, lookup.name)
+    }
+    return writer.toByteArray(compress)
+}
+
+internal fun javaSerialize(lookups: List<LookupInfo>): ByteArray {
+    val bytes = ByteArrayOutputStream()
+    ObjectOutputStream(bytes).use { it.writeObject(ArrayList(lookups)) }
+    return bytes.toByteArray()
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.daemon.common.readLookupsChunk
+import org.jetbrains.kotlin.incremental.components.LookupInfo
+import org.jetbrains.kotlin.incremental.components.Position
+import org.jetbrains.kotlin.test.IgnoreAll
+import org.junit.runner.RunWith
+import java.io.ByteArrayInputStream
+import java.io.ObjectInputStream
+
+// compares the size and the encoding/decoding time of the binary lookup chunks against java serialization of LookupInfo collections
+@RunWith(IgnoreAll::class)
+class LookupsTransferPerformanceTest : TestCase() {
+
+    private val warmupRuns = 20
+    private val measuredRuns = 100
+
+    fun testWithPositions() = compare(generateLookups())
+
+    fun testWithoutPositions() = compare(generateLookups().map { it.copy(position = Position.NO_POSITION) })
+
+    private fun compare(lookups: List<LookupInfo>) {
+        val withPositions = lookups.any { it.position != Position.NO_POSITION }
+        println("${lookups.size} lookups:")
+        measure("java serialization", lookups, ::javaSerialize) { bytes ->
+            ObjectInputStream(ByteArrayInputStream(bytes)).use { it.readObject() }
+        }
+        measure("binary chunk", lookups, { encode(it, withPositions, compress = false) }, ::decode)
+        measure("compressed binary chunk", lookups, { encode(it, withPositions, compress = true) }, ::decode)
+    }
+
+    private fun decode(bytes: ByteArray) {
+        var count = 0
+        readLookupsChunk(bytes) { _, _, _, _, _ -> count++ }
+    }
+
+    private fun measure(name: String, lookups: List<LookupInfo>, encode: (List<LookupInfo>) -> ByteArray, decode: (ByteArray) -> Unit) {
+        val bytes = encode(lookups)
+        repeat(warmupRuns) { decode(encode(lookups)) }
+
+        val encodeNanos = averageNanos { encode(lookups) }
+        val decodeNanos = averageNanos { decode(bytes) }
+        println("  $name: ${bytes.size} bytes, encoding ${encodeNanos / 1000} us, decoding ${decodeNanos / 1000} us")
+    }
+
+    private inline fun averageNanos(body: () -> Unit): Long {
+        val start = System.nanoTime()
+        repeat(measuredRuns) { body() }
+        return (System.nanoTime() - start) / measuredRuns
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon.experimental.unit
+
+import junit.framework.TestCase
+import kotlinx.coroutines.io.ByteChannel
+import kotlinx.coroutines.runBlocking
+import org.jetbrains.kotlin.daemon.common.experimental.socketInfrastructure.ByteReadChannelWrapper
+import org.jetbrains.kotlin.daemon.common.experimental.socketInfrastructure.ByteWriteChannelWrapper
+import java.util.logging.Logger
+
+class StreamWrappersTest : TestCase() {
+
+    private val log = Logger.getLogger("StreamWrappersTest")
+
+    fun testAsciiString() = assertRoundTrip("hello, daemon")
+
+    fun testEmptyString() = assertRoundTrip("")
+
+    fun testNonAsciiString() = assertRoundTrip("Привет, 世界, ñandú")
+
+    fun testSurrogatePairs() = assertRoundTrip("😀 smile, 𝄞 clef, 𐐷")
+
+    fun testLongNonAsciiString() = assertRoundTrip("ä🚀ж".repeat(100_000))
+
+    // a string framed with a wrong length desynchronizes the stream, so the following frames are checked as well
+    fun testFramesAfterNonAsciiString() = assertRoundTrip("ü", "😀", listOf("next", "object"), "tail")
+
+    private fun assertRoundTrip(vararg objects: Any) = runBlocking {
+        // the wrappers of both ends share one in-memory channel
+        val channel = ByteChannel(autoFlush = true)
+        val output = ByteWriteChannelWrapper(channel, log)
+        val input = ByteReadChannelWrapper(channel, log)
+        try {
+            for (obj in objects) {
+                output.writeObject(obj)
+            }
+            for (obj in objects) {
+                assertEquals(obj, input.nextObject())
+            }
+        } finally {
+            output.close()
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon.experimental.unit
+
+import io.ktor.network.sockets.Socket
+import kotlinx.coroutines.runBlocking
+import org.jetbrains.kotlin.daemon.common.LoopbackNetworkInterface
+import org.jetbrains.kotlin.daemon.common.experimental.findCallbackServerSocket
+import org.jetbrains.kotlin.daemon.common.experimental.socketInfrastructure.DefaultClient
+import org.jetbrains.kotlin.daemon.common.experimental.socketInfrastructure.Server
+import org.jetbrains.kotlin.daemon.common.experimental.socketInfrastructure.ServerSocketWrapper
+import org.jetbrains.kotlin.integration.KotlinIntegrationTestBase
+import org.jetbrains.kotlin.test.IgnoreAll
+import org.junit.runner.RunWith
+import java.rmi.Remote
+import java.rmi.RemoteException
+import java.rmi.server.UnicastRemoteObject
+
+interface RemoteEcho : Remote {
+    @Throws(RemoteException::class)
+    fun echo(payload: ByteArray): ByteArray
+}
+
+class RemoteEchoImpl : RemoteEcho {
+    override fun echo(payload: ByteArray): ByteArray = payload
+}
+
+class EchoServer(override val serverSocketWithPort: ServerSocketWrapper) : Server<EchoServer> {
+    override val clients = hashMapOf<Socket, Server.ClientInfo>()
+
+    class EchoMessage(val payload: ByteArray) : Server.Message<EchoServer>() {
+        override suspend fun processImpl(server: EchoServer, sendReply: (Any?) -> Unit) = sendReply(payload)
+    }
+}
+
+// compares the per-call round trip latency of the socket transport against RMI on the loopback interface
+@RunWith(IgnoreAll::class)
+class TransportLatencyTest : KotlinIntegrationTestBase() {
+
+    private val warmupCalls = 1000
+    private val measuredCalls = 10000
+
+    fun testSmallPayload() = compareLatency(ByteArray(16))
+
+    fun testLargePayload() = compareLatency(ByteArray(256 * 1024))
+
+    private fun compareLatency(payload: ByteArray) {
+        val rmiNanos = measureRmi(payload)
+        val socketsNanos = measureSockets(payload)
+        println("payload ${payload.size} bytes: RMI ${rmiNanos / 1000} us/call, sockets ${socketsNanos / 1000} us/call")
+    }
+
+    private fun measureRmi(payload: ByteArray): Long {
+        val impl = RemoteEchoImpl()
+        val stub = UnicastRemoteObject.exportObject(
+            impl,
+            0,
+            LoopbackNetworkInterface.clientLoopbackSocketFactory,
+            LoopbackNetworkInterface.serverLoopbackSocketFactory
+        ) as RemoteEcho
+        try {
+            repeat(warmupCalls) { stub.echo(payload) }
+            return averageNanos { stub.echo(payload) }
+        } finally {
+            UnicastRemoteObject.unexportObject(impl, true)
+        }
+    }
+
+    private fun measureSockets(payload: ByteArray): Long = runBlocking {
+        val server = EchoServer(findCallbackServerSocket())
+        server.runServer()
+        val client = DefaultClient<EchoServer>(server.serverPort)
+        try {
+            client.connectToServer()
+            suspend fun call() = client.readMessage<ByteArray>(client.sendMessage(EchoServer.EchoMessage(payload)))
+            repeat(warmupCalls) { call() }
+            val start = System.nanoTime()
+            repeat(measuredCalls) { call() }
+            (System.nanoTime() - start) / measuredCalls
+        } finally {
+            client.close()
+            server.shutdownServer()
+        }
+    }
+
+    private inline fun averageNanos(call: () -> Unit): Long {
+        val start = System.nanoTime()
+        repeat(measuredCalls) { call() }
+        return (System.nanoTime() - start) / measuredCalls
+    }
+}
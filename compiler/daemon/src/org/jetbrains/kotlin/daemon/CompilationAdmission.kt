@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import org.jetbrains.kotlin.daemon.common.usedMemory
+import java.util.logging.Logger
+
+// Lets independent compilations run on the daemon concurrently:
+// - a new compilation is admitted only if the heap has enough headroom for it, or if nothing else is running (to avoid starvation),
+// - cleanup of the state shared between compilations (e.g. jar handler caches) is deferred until no compilation is running,
+//   so that finishing one session does not pull the caches from under the others.
+class CompilationAdmission(
+    private val minHeadroomRatio: Double,
+    private val maxWaitMillis: Long,
+    private val log: Logger
+) {
+    private val lock = Object()
+    private var activeCompilations = 0
+    private var pendingCleanup: (() -> Unit)? = null
+    private var cleanupRunning = false
+
+    val active: Int get() = synchronized(lock) { activeCompilations }
+
+    inline fun <R> admit(body: () -> R): R {
+        enter()
+        try {
+            return body()
+        } finally {
+            leave()
+        }
+    }
+
+    fun enter() {
+        val deadline = System.currentTimeMillis() + maxWaitMillis
+        var headroomChecked = false
+        var enoughHeadroom = false
+        while (true) {
+            synchronized(lock) {
+                while (cleanupRunning) {
+                    lock.wait()
+                }
+                val remaining = deadline - System.currentTimeMillis()
+                if (activeCompilations == 0 || enoughHeadroom || remaining <= 0) {
+                    if (activeCompilations > 0 && !enoughHeadroom) {
+                        log.info("Admitting compilation despite low heap headroom after waiting ${maxWaitMillis}ms")
+                    }
+                    activeCompilations++
+                    return
+                }
+                if (headroomChecked) {
+                    log.fine("Low heap headroom, waiting for one of $activeCompilations running compilations to finish")
+                    lock.wait(remaining)
+                }
+            }
+            // may run GC, so it is done without holding the lock
+            enoughHeadroom = hasEnoughHeadroom()
+            headroomChecked = true
+        }
+    }
+
+    fun leave() {
+        val cleanup = synchronized(lock) {
+            activeCompilations--
+            lock.notifyAll()
+            if (activeCompilations == 0) takePendingCleanup() else null
+        }
+        if (cleanup != null) {
+            runCleanup(cleanup)
+        }
+    }
+
+    // runs cleanup immediately if no compilation is running, or after the last running one finishes otherwise;
+    // returns true if the cleanup has been run immediately
+    fun runWhenIdle(cleanup: () -> Unit): Boolean {
+        val idleCleanup = synchronized(lock) {
+            pendingCleanup = cleanup
+            if (activeCompilations == 0 && !cleanupRunning) takePendingCleanup() else null
+        } ?: return false
+        runCleanup(idleCleanup)
+        return true
+    }
+
+    // must be called under the lock; new compilations are not admitted until the cleanup finishes
+    private fun takePendingCleanup(): (() -> Unit)? {
+        val cleanup = pendingCleanup ?: return null
+        pendingCleanup = null
+        cleanupRunning = true
+        return cleanup
+    }
+
+    // cleanup is run without holding the lock, so that it does not block callers that only query or schedule
+    private fun runCleanup(firstCleanup: () -> Unit) {
+        var cleanup = firstCleanup
+        while (true) {
+            try {
+                cleanup()
+            } finally {
+                synchronized(lock) {
+                    cleanupRunning = false
+                    lock.notifyAll()
+                }
+            }
+            // scheduled while the previous cleanup was running
+            cleanup = synchronized(lock) { if (activeCompilations == 0) takePendingCleanup() else null } ?: return
+        }
+    }
+
+    private fun hasEnoughHeadroom(): Boolean {
+        val maxMemory = Runtime.getRuntime().maxMemory()
+        val required = (maxMemory * minHeadroomRatio).toLong()
+        // GC only if the cheap estimate says no, since the estimate includes garbage
+        return maxMemory - usedMemory(withGC = false) >= required || maxMemory - usedMemory(withGC = true) >= required
+    }
+}
@@ -34,6 +34,7 @@ import org.jetbrains.kotlin.cli.common.repl.ReplEvalResult
 import org.jetbrains.kotlin.cli.js.K2JSCompiler
 import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
 import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.cli.jvm.index.JvmDependenciesIndexPool
 import org.jetbrains.kotlin.cli.metadata.K2MetadataCompiler
 import org.jetbrains.kotlin.config.Services
 import org.jetbrains.kotlin.daemon.common.*
@@ -68,6 +69,17 @@ import kotlin.concurrent.write
 
 const val REMOTE_STREAM_BUFFER_SIZE = 4096
 
+// maximal number of idle classpath indices kept between compilations
+const val CLASSPATH_INDEX_POOL_SIZE = 8
+
+// a compilation is started alongside the running ones only if at least this fraction of the max heap is free
+const val COMPILATION_MIN_HEAP_HEADROOM_RATIO = 0.2
+const val COMPILATION_ADMISSION_TIMEOUT_MS = 60_000L
+
+// caches are evicted when a GC leaves more than this fraction of a heap pool used, the daemon shuts down if eviction does not help
+const val MEMORY_GOVERNOR_THRESHOLD_RATIO = 0.8
+const val MEMORY_GOVERNOR_CRITICAL_RATIO = 0.95
+
 fun nowSeconds() = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime())
 
 interface CompilerSelector {
@@ -98,8 +110,11 @@ abstract class CompileServiceImplBase(
 ) {
     protected val log by lazy { Logger.getLogger("compiler") }
 
+    protected val classpathIndexPool = JvmDependenciesIndexPool(CLASSPATH_INDEX_POOL_SIZE)
+
     init {
         System.setProperty(KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY, "true")
+        KotlinCoreEnvironment.dependenciesIndexPool = classpathIndexPool
     }
 
     // wrapped in a class to encapsulate alive check logic
@@ -121,6 +136,10 @@ abstract class CompileServiceImplBase(
 
     protected val compilationsCounter = AtomicInteger(0)
 
+    protected val compilationAdmission by lazy {
+        CompilationAdmission(COMPILATION_MIN_HEAP_HEADROOM_RATIO, COMPILATION_ADMISSION_TIMEOUT_MS, log)
+    }
+
     protected val classpathWatcher = LazyClasspathWatcher(compilerId.compilerClasspath)
 
     enum class Aliveness {
@@ -378,8 +397,10 @@ abstract class CompileServiceImplBase(
             val eventManager = EventManagerImpl()
             try {
                 log.fine("trying get exitCode")
-                val exitCode = checkedCompile(daemonMessageReporter, rpcProfiler) {
-                    body(eventManager, rpcProfiler).code
+                val exitCode = compilationAdmission.admit {
+                    checkedCompile(daemonMessageReporter, rpcProfiler) {
+                        body(eventManager, rpcProfiler).code
+                    }
                 }
                 CompileService.CallResult.Good(exitCode)
             } finally {
@@ -637,10 +658,29 @@ class CompileServiceImpl(
 
     private val rwlock = ReentrantReadWriteLock()
 
+    private val memoryGovernor =
+        DaemonMemoryGovernor(MEMORY_GOVERNOR_THRESHOLD_RATIO, MEMORY_GOVERNOR_CRITICAL_RATIO, log) {
+            ifAliveUnit(minAliveness = Aliveness.Alive) {
+                gracefulShutdown(true)
+            }
+        }.apply {
+            fun trimmed(count: Int) = if (count > 0) DaemonMemoryGovernor.Eviction.FREED else DaemonMemoryGovernor.Eviction.NOTHING_TO_FREE
+            addTier("least recently used classpath indices") { trimmed(classpathIndexPool.trimTo(classpathIndexPool.idleSize / 2)) }
+            addTier("classpath indices") { trimmed(classpathIndexPool.trimTo(0)) }
+            addTier("jar handlers") {
+                if (compilationAdmission.runWhenIdle(::clearJarCacheNow)) DaemonMemoryGovernor.Eviction.FREED
+                else DaemonMemoryGovernor.Eviction.DEFERRED
+            }
+            start()
+        }
+
     // RMI-exposed API
 
     override fun getDaemonInfo(): CompileService.CallResult<String> = ifAlive(minAliveness = Aliveness.Dying) {
-        CompileService.CallResult.Good("Kotlin daemon on port $port")
+        CompileService.CallResult.Good(
+            "Kotlin daemon on port $port, ${compilationAdmission.active} active compilations, ${classpathIndexPool.statistics}, " +
+                    memoryGovernor.statistics
+        )
     }
 
     override fun getDaemonOptions(): CompileService.CallResult<DaemonOptions> = ifAlive {
@@ -675,9 +715,7 @@ class CompileServiceImpl(
     override fun releaseCompileSession(sessionId: Int) = ifAlive(minAliveness = Aliveness.LastSession) {
         state.sessions.remove(sessionId)
         log.info("cleaning after session $sessionId")
-        rwlock.write {
-            clearJarCache()
-        }
+        clearJarCache()
         postReleaseCompileSession()
     }
 
@@ -1070,6 +1108,7 @@ class CompileServiceImpl(
             log.info("Memory stats: total: ${totalMemory().mb()}mb, free: ${freeMemory().mb()}mb, max: ${maxMemory().mb()}mb")
         }
         state.alive.set(Aliveness.Dying.ordinal)
+        memoryGovernor.stop()
 
         UnicastRemoteObject.unexportObject(this, true)
         log.info("Shutdown complete")
@@ -1161,8 +1200,10 @@ class CompileServiceImpl(
                     if (args.none())
                         throw IllegalArgumentException("Error: empty arguments list.")
                     log.info("Starting compilation with args: " + args.joinToString(" "))
-                    val exitCode = checkedCompile(compileServiceReporter, rpcProfiler) {
-                        body(compilerMessagesStream, eventManger, rpcProfiler).code
+                    val exitCode = compilationAdmission.admit {
+                        checkedCompile(compileServiceReporter, rpcProfiler) {
+                            body(compilerMessagesStream, eventManger, rpcProfiler).code
+                        }
                     }
                     CompileService.CallResult.Good(exitCode)
                 } finally {
@@ -1192,7 +1233,12 @@ class CompileServiceImpl(
         registry.rebind(COMPILER_SERVICE_RMI_NAME, stub)
     }
 
+    // clients call it after every compilation, so it is deferred until no other compilation uses the jar handlers
     override fun clearJarCache() {
+        compilationAdmission.runWhenIdle(::clearJarCacheNow)
+    }
+
+    private fun clearJarCacheNow() {
         ZipHandler.clearFileAccessorCache()
         (KotlinCoreEnvironment.applicationEnvironment?.jarFileSystem as? CoreJarFileSystem)?.clearHandlersCache()
     }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryNotificationInfo
+import java.lang.management.MemoryPoolMXBean
+import java.lang.management.MemoryType
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.logging.Level
+import java.util.logging.Logger
+import javax.management.NotificationEmitter
+import javax.management.NotificationListener
+import javax.management.openmbean.CompositeData
+
+// Reacts to GC pressure instead of waiting for the periodic checks:
+// the collection usage threshold is set on the tenured heap pools, and when a GC leaves a pool above it,
+// the registered cache tiers are evicted one by one (cheapest to rebuild first) until the pool usage drops below the threshold.
+// Only if all tiers are evicted and the usage is still above the critical level, the daemon is asked to shut down.
+// Eviction (and the GCs it triggers) runs on a dedicated thread, not on the JMX notification thread.
+// Young generation pools are not watched: survivor spaces are routinely almost full after a young GC, which says nothing about
+// the memory retained by the caches.
+class DaemonMemoryGovernor(
+    private val thresholdRatio: Double,
+    private val criticalRatio: Double,
+    private val log: Logger,
+    private val pools: List<MemoryPoolMXBean> = tenuredPools(ManagementFactory.getMemoryPoolMXBeans()),
+    private val usageRatio: () -> Double = { collectionUsageRatio(pools) },
+    private val collectGarbage: () -> Unit = System::gc,
+    private val onExhausted: () -> Unit
+) {
+    enum class Eviction {
+        FREED,
+        // the tier was already empty
+        NOTHING_TO_FREE,
+        // the tier is in use and will be evicted later, e.g. when no compilation is running
+        DEFERRED
+    }
+
+    class Tier(val name: String, val evict: () -> Eviction) {
+        val evictions = AtomicLong(0)
+    }
+
+    private val tiers = arrayListOf<Tier>()
+    private val isEvicting = AtomicBoolean(false)
+    private val thresholdNotifications = AtomicLong(0)
+    private val exhaustions = AtomicLong(0)
+
+    private val executor = Executors.newSingleThreadExecutor { runnable ->
+        Thread(runnable, "Kotlin daemon memory governor").apply { isDaemon = true }
+    }
+
+    private val listener = NotificationListener { notification, _ ->
+        if (notification.type == MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED &&
+            isWatchedPool(MemoryNotificationInfo.from(notification.userData as CompositeData).poolName)
+        ) {
+            thresholdNotifications.incrementAndGet()
+            // notifications may come in bursts from several pools, one eviction round at a time is enough
+            if (isEvicting.compareAndSet(false, true)) {
+                try {
+                    executor.execute {
+                        try {
+                            evictCaches()
+                        } finally {
+                            isEvicting.set(false)
+                        }
+                    }
+                } catch (e: RejectedExecutionException) {
+                    isEvicting.set(false)
+                }
+            }
+        }
+    }
+
+    @Synchronized
+    fun addTier(name: String, evict: () -> Eviction) {
+        tiers.add(Tier(name, evict))
+    }
+
+    fun start() {
+        for (pool in pools) {
+            val max = pool.usage.max
+            if (max > 0) {
+                pool.collectionUsageThreshold = (max * thresholdRatio).toLong()
+            }
+        }
+        (ManagementFactory.getMemoryMXBean() as NotificationEmitter).addNotificationListener(listener, null, null)
+    }
+
+    fun stop() {
+        try {
+            (ManagementFactory.getMemoryMXBean() as NotificationEmitter).removeNotificationListener(listener)
+        } catch (e: Exception) {
+            log.log(Level.FINE, "Unable to remove memory listener", e)
+        }
+        executor.shutdownNow()
+    }
+
+    private fun isWatchedPool(poolName: String) = pools.any { it.name == poolName }
+
+    val statistics: String
+        get() = "memory governor: $thresholdNotifications threshold hits, $exhaustions exhaustions, evictions: " +
+                synchronized(this) { tiers.joinToString { "${it.name} ${it.evictions}" } }
+
+    val evictionCounts: Map<String, Long>
+        @Synchronized get() = tiers.associate { it.name to it.evictions.get() }
+
+    // evicts tiers until the usage drops below the threshold; called on the governor thread when a GC leaves a pool above it
+    fun evictCaches() {
+        try {
+            val tiersSnapshot = synchronized(this) { tiers.toList() }
+            var deferred = false
+            for (tier in tiersSnapshot) {
+                if (usageRatio() < thresholdRatio) return
+                log.info("Heap usage is above ${(thresholdRatio * 100).toInt()}%, evicting ${tier.name}")
+                when (tier.evict()) {
+                    Eviction.FREED -> {
+                        tier.evictions.incrementAndGet()
+                        // the evicted objects become collectable only after the next GC, so the pool usage is checked after it
+                        collectGarbage()
+                    }
+                    Eviction.NOTHING_TO_FREE -> {}
+                    Eviction.DEFERRED -> deferred = true
+                }
+            }
+            // a deferred tier still holds its memory, so the daemon is not shut down until it had a chance to free it
+            if (!deferred && usageRatio() >= criticalRatio) {
+                exhaustions.incrementAndGet()
+                log.warning("Heap usage is above ${(criticalRatio * 100).toInt()}% after evicting all caches")
+                onExhausted()
+            }
+        } catch (e: Throwable) {
+            log.log(Level.SEVERE, "Exception in memory governor", e)
+        }
+    }
+}
+
+// old generation pools: unlike the young generation ones, they support usage thresholds
+internal fun tenuredPools(pools: List<MemoryPoolMXBean>): List<MemoryPoolMXBean> =
+    pools.filter {
+        it.type == MemoryType.HEAP && it.isUsageThresholdSupported && it.isCollectionUsageThresholdSupported
+    }
+
+internal fun collectionUsageRatio(pools: List<MemoryPoolMXBean>): Double =
+    pools.map { pool ->
+        val usage = pool.collectionUsage ?: pool.usage
+        if (usage.max > 0) usage.used.toDouble() / usage.max else 0.0
+    }.maxOrNull() ?: 0.0
@@ -16,16 +16,23 @@
 
 package org.jetbrains.kotlin.daemon
 
-import com.intellij.util.containers.StringInterner
-import gnu.trove.THashMap
-import gnu.trove.THashSet
 import org.jetbrains.kotlin.daemon.common.DummyProfiler
+import org.jetbrains.kotlin.daemon.common.LookupsChunkWriter
 import org.jetbrains.kotlin.daemon.common.Profiler
+import org.jetbrains.kotlin.daemon.common.readLookupsChunk
 import org.jetbrains.kotlin.daemon.common.withMeasure
 import org.jetbrains.kotlin.incremental.components.LookupInfo
 import org.jetbrains.kotlin.incremental.components.LookupTracker
 import org.jetbrains.kotlin.incremental.components.Position
 import org.jetbrains.kotlin.incremental.components.ScopeKind
+import java.rmi.RemoteException
+import java.rmi.UnmarshalException
+
+// number of distinct lookups after which the accumulated chunk is sent to the client without waiting for the end of compilation
+const val LOOKUPS_CHUNK_SIZE = 100_000
+
+// chunks with more lookups than this are deflated, smaller ones are cheaper to send as is
+const val LOOKUPS_CHUNK_COMPRESSION_THRESHOLD = 10_000
 
 class RemoteLookupTrackerClient(
     @Suppress("DEPRECATION") val facade: org.jetbrains.kotlin.daemon.common.CompilerCallbackServicesFacade,
@@ -34,25 +41,21 @@ class RemoteLookupTrackerClient(
 ) : LookupTracker {
     private val isDoNothing = profiler.withMeasure(this) { facade.lookupTracker_isDoNothing() }
 
-    // Map: FileName -> (ScopeFqName -> Set<Name[String] | LookupInfo>)
-    private val lookups = THashMap<String, MutableMap<String, MutableSet<Any>>>()
-    private val interner = StringInterner()
-
     override val requiresPosition: Boolean = profiler.withMeasure(this) { facade.lookupTracker_requiresPosition() }
 
+    private val chunk = LookupsChunkWriter(withPositions = requiresPosition)
+
+    // clients built before lookupTracker_recordChunk was added to the facade get the lookups as LookupInfo objects
+    private var isChunkSupported = true
+
     override fun record(filePath: String, position: Position, scopeFqName: String, scopeKind: ScopeKind, name: String) {
         if (isDoNothing) return
 
-        val internedSymbolFqName = interner.intern(scopeFqName)
-        val internedName = interner.intern(name)
-
-        val objectToPut: Any =
-            if (requiresPosition)
-                LookupInfo(filePath, position, scopeFqName, scopeKind, name)
-            else
-                internedName
+        chunk.add(filePath, position, scopeFqName, scopeKind, name)
 
-        lookups.getOrPut(filePath, ::THashMap).getOrPut(internedSymbolFqName, ::THashSet).add(objectToPut)
+        if (chunk.size >= LOOKUPS_CHUNK_SIZE) {
+            flush()
+        }
     }
 
     init {
@@ -60,26 +63,37 @@ class RemoteLookupTrackerClient(
     }
 
     private fun flush() {
-        if (isDoNothing || lookups.isEmpty) return
+        if (isDoNothing || chunk.isEmpty) return
 
         profiler.withMeasure(this) {
-            facade.lookupTracker_record(
-                lookups.flatMap { (filePath, lookupsByFile) ->
-                    lookupsByFile.flatMap { (scopeFqName, lookupsByScopeFqName) ->
-                        lookupsByScopeFqName.map { lookupInfoOrString ->
-                            if (requiresPosition)
-                                lookupInfoOrString as LookupInfo
-                            else
-                                LookupInfo(
-                                    filePath, Position.NO_POSITION, scopeFqName, ScopeKind.CLASSIFIER,
-                                    lookupInfoOrString as String
-                                )
-                        }
-                    }
+            if (isChunkSupported) {
+                try {
+                    facade.lookupTracker_recordChunk(chunk.toByteArray(compress = chunk.size > LOOKUPS_CHUNK_COMPRESSION_THRESHOLD))
+                } catch (e: RemoteException) {
+                    if (!e.isUnsupportedMethod()) throw e
+                    isChunkSupported = false
                 }
-            )
+            }
+            if (!isChunkSupported) {
+                facade.lookupTracker_record(chunk.toLookupInfos())
+            }
         }
 
-        lookups.clear()
+        chunk.clear()
+    }
+
+    private fun LookupsChunkWriter.toLookupInfos(): List<LookupInfo> {
+        val lookups = ArrayList<LookupInfo>(size)
+        readLookupsChunk(toByteArray(compress = false)) { filePath, position, scopeFqName, scopeKind, name ->
+            lookups.add(LookupInfo(filePath, position, scopeFqName, scopeKind, name))
+        }
+        return lookups
     }
 }
+
+// RMI reports a call of a method missing in the remote object (e.g. in a client built before the method was added)
+// as an UnmarshalException thrown on the server side
+private fun RemoteException.isUnsupportedMethod(): Boolean =
+    generateSequence<Throwable>(this) { it.cause }.any {
+        it is UnmarshalException && it.message?.startsWith("unrecognized method hash") == true
+    }
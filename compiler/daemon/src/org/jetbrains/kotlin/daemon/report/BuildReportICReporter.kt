@@ -8,6 +8,7 @@ package org.jetbrains.kotlin.daemon.report
 import org.jetbrains.kotlin.cli.common.ExitCode
 import org.jetbrains.kotlin.daemon.common.CompilationResultCategory
 import org.jetbrains.kotlin.daemon.common.CompilationResults
+import org.jetbrains.kotlin.incremental.ICMetrics
 import org.jetbrains.kotlin.incremental.ICReporterBase
 import java.io.File
 import java.util.HashMap
@@ -45,6 +46,10 @@ internal class BuildReportICReporter(
         affectedFiles.forEach { recompilationReason[it] = reason }
     }
 
+    override fun reportMetrics(metrics: ICMetrics) {
+        icLogLines.add("IC metrics: $metrics")
+    }
+
     override fun flush() {
         compilationResults.add(CompilationResultCategory.BUILD_REPORT_LINES.code, icLogLines)
     }
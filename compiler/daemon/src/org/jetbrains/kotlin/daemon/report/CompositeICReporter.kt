@@ -6,6 +6,7 @@
 package org.jetbrains.kotlin.daemon.report
 
 import org.jetbrains.kotlin.cli.common.ExitCode
+import org.jetbrains.kotlin.incremental.ICMetrics
 import java.io.File
 
 internal class CompositeICReporter(private val reporters: Iterable<RemoteICReporter>) :
@@ -34,6 +35,10 @@ internal class CompositeICReporter(private val reporters: Iterable<RemoteICRepor
         reporters.forEach { it.reportMarkDirty(affectedFiles, reason) }
     }
 
+    override fun reportMetrics(metrics: ICMetrics) {
+        reporters.forEach { it.reportMetrics(metrics) }
+    }
+
     override fun flush() {
         reporters.forEach { it.flush() }
     }
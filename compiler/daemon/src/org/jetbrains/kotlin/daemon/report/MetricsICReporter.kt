@@ -0,0 +1,37 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon.report
+
+import org.jetbrains.kotlin.cli.common.ExitCode
+import org.jetbrains.kotlin.daemon.common.CompilationResultCategory
+import org.jetbrains.kotlin.daemon.common.CompilationResults
+import org.jetbrains.kotlin.incremental.ICMetrics
+import org.jetbrains.kotlin.incremental.ICReporterBase
+import java.io.File
+
+// sends the metrics of an incremental build to the client as a JSON string
+internal class MetricsICReporter(
+    private val compilationResults: CompilationResults
+) : ICReporterBase(), RemoteICReporter {
+    private var metricsJson: String? = null
+
+    override fun report(message: () -> String) {
+    }
+
+    override fun reportVerbose(message: () -> String) {
+    }
+
+    override fun reportCompileIteration(incremental: Boolean, sourceFiles: Collection<File>, exitCode: ExitCode) {
+    }
+
+    override fun reportMetrics(metrics: ICMetrics) {
+        metricsJson = metrics.toJson()
+    }
+
+    override fun flush() {
+        metricsJson?.let { compilationResults.add(CompilationResultCategory.IC_METRICS.code, it) }
+    }
+}
@@ -49,6 +49,9 @@ fun getICReporter(
             CompilationResultCategory.VERBOSE_BUILD_REPORT_LINES -> {
                 BuildReportICReporter(compilationResults, root, isVerbose = true)
             }
+            CompilationResultCategory.IC_METRICS -> {
+                MetricsICReporter(compilationResults)
+            }
         }
     }
 
@@ -1299,6 +1299,11 @@ public class FirBlackBoxCodegenTestGenerated extends AbstractFirBlackBoxCodegenT
             runTest("compiler/testData/codegen/box/boxingOptimization/nullCheck.kt");
         }
 
+        @TestMetadata("nullableMerge.kt")
+        public void testNullableMerge() throws Exception {
+            runTest("compiler/testData/codegen/box/boxingOptimization/nullableMerge.kt");
+        }
+
         @TestMetadata("progressions.kt")
         public void testProgressions() throws Exception {
             runTest("compiler/testData/codegen/box/boxingOptimization/progressions.kt");
@@ -4783,6 +4788,21 @@ public class FirBlackBoxCodegenTestGenerated extends AbstractFirBlackBoxCodegenT
                 runTest("compiler/testData/codegen/box/closures/capturedVarsOptimization/capturedInInlineOnlyIndexedCAO.kt");
             }
 
+            @TestMetadata("capturedInInlineShapes.kt")
+            public void testCapturedInInlineShapes() throws Exception {
+                runTest("compiler/testData/codegen/box/closures/capturedVarsOptimization/capturedInInlineShapes.kt");
+            }
+
+            @TestMetadata("capturedInLoops.kt")
+            public void testCapturedInLoops() throws Exception {
+                runTest("compiler/testData/codegen/box/closures/capturedVarsOptimization/capturedInLoops.kt");
+            }
+
+            @TestMetadata("capturedInTryCatchFinally.kt")
+            public void testCapturedInTryCatchFinally() throws Exception {
+                runTest("compiler/testData/codegen/box/closures/capturedVarsOptimization/capturedInTryCatchFinally.kt");
+            }
+
             @TestMetadata("capturedVarsOfSize2.kt")
             public void testCapturedVarsOfSize2() throws Exception {
                 runTest("compiler/testData/codegen/box/closures/capturedVarsOptimization/capturedVarsOfSize2.kt");
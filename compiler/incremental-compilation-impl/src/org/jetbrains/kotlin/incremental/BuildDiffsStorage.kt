@@ -18,13 +18,24 @@ package org.jetbrains.kotlin.incremental
 
 import org.jetbrains.annotations.TestOnly
 import org.jetbrains.kotlin.name.FqName
-import java.io.File
-import java.io.IOException
-import java.io.ObjectInputStream
-import java.io.ObjectOutputStream
+import java.io.*
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 
 data class BuildDifference(val ts: Long, val isIncremental: Boolean, val dirtyData: DirtyData)
 
+// the builds after some timestamp; hasEarlierBuilds tells whether the history goes back to that timestamp at all
+data class BuildDiffsSince(val hasEarlierBuilds: Boolean, val buildDiffs: List<BuildDifference>)
+
+// The storage is an append-only log:
+//   header:  int MAGIC, int CURRENT_VERSION
+//   records: int length of the rest of the record, long ts, boolean isIncremental, dirty data
+// A build appends a single record instead of rewriting the whole history. Readers interested only in the builds after
+// some timestamp skip the older records by their length without deserializing them.
+// Once the log grows beyond COMPACTION_THRESHOLD records, it is compacted to the last MAX_DIFFS_ENTRIES on a background thread.
 // todo: storage format can be optimized by compressing fq-names
 data class BuildDiffsStorage(val buildDiffs: List<BuildDifference>) {
     companion object {
@@ -34,67 +45,235 @@ data class BuildDiffsStorage(val buildDiffs: List<BuildDifference>) {
         }
 
         fun readDiffsFromFile(file: File, reporter: ICReporter?): MutableList<BuildDifference>? {
+            if (!file.exists()) return null
+
+            val stamp = file.stamp()
+            getCachedDiffs(file, stamp)?.let { return ArrayList(it) }
+
+            val result = readRecords(file, reporter, sinceTs = null)?.sortedBy { it.ts }?.takeLast(MAX_DIFFS_ENTRIES) ?: return null
+            putCachedDiffs(file, stamp, result)
+            return ArrayList(result)
+        }
+
+        // reads only the builds started after [ts], records of the earlier builds are skipped without deserialization
+        fun readDiffsSince(file: File, ts: Long, reporter: ICReporter?): BuildDiffsSince? {
+            if (!file.exists()) return null
+
+            getCachedDiffs(file, file.stamp())?.let { cached ->
+                // the cache holds only the last MAX_DIFFS_ENTRIES builds, the log may go further back
+                if (cached.any { it.ts <= ts }) return BuildDiffsSince(hasEarlierBuilds = true, buildDiffs = cached.filter { it.ts > ts })
+            }
+
+            var hasEarlierBuilds = false
+            val diffs = readRecords(file, reporter, sinceTs = ts, onSkipped = { hasEarlierBuilds = true }) ?: return null
+            return BuildDiffsSince(hasEarlierBuilds, diffs.sortedBy { it.ts })
+        }
+
+        fun writeToFile(file: File, storage: BuildDiffsStorage, reporter: ICReporter?) {
+            file.parentFile.mkdirs()
+
+            synchronized(lockFor(file)) {
+                try {
+                    val diffsToWrite = storage.buildDiffs.sortedBy { it.ts }.takeLast(MAX_DIFFS_ENTRIES)
+                    writeLog(file, diffsToWrite)
+                    putCachedDiffs(file, file.stamp(), diffsToWrite)
+                } catch (e: IOException) {
+                    invalidateCachedDiffs(file)
+                    reporter?.report { "Could not write diff to file $file: $e" }
+                }
+            }
+        }
+
+        fun appendToFile(file: File, diff: BuildDifference, reporter: ICReporter?) {
+            file.parentFile.mkdirs()
+
+            synchronized(lockFor(file)) {
+                invalidateCachedDiffs(file)
+                try {
+                    // an unreadable or incompatible log is started anew, as the whole history used to be rewritten in this case
+                    val log = scanLog(file)
+                    if (log == null) {
+                        writeLog(file, listOf(diff))
+                        return
+                    }
+
+                    RandomAccessFile(file, "rw").use { output ->
+                        // a truncated last record is overwritten, the complete ones before it are kept
+                        output.setLength(log.completeLength)
+                        output.seek(log.completeLength)
+                        output.write(encodeRecord(diff))
+                    }
+
+                    if (log.records + 1 > COMPACTION_THRESHOLD) {
+                        compactionExecutor.execute { compact(file, reporter) }
+                    }
+                } catch (e: IOException) {
+                    reporter?.report { "Could not append diff to file $file: $e" }
+                }
+            }
+        }
+
+        internal fun compact(file: File, reporter: ICReporter?) {
+            synchronized(lockFor(file)) {
+                try {
+                    val diffs = readRecords(file, reporter, sinceTs = null) ?: return
+                    if (diffs.size <= MAX_DIFFS_ENTRIES) return
+
+                    val tmpFile = File(file.parentFile, file.name + ".tmp")
+                    writeLog(tmpFile, diffs.sortedBy { it.ts }.takeLast(MAX_DIFFS_ENTRIES))
+                    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+                } catch (e: IOException) {
+                    reporter?.report { "Could not compact diffs in file $file: $e" }
+                } finally {
+                    invalidateCachedDiffs(file)
+                }
+            }
+        }
+
+        private fun readRecords(
+            file: File,
+            reporter: ICReporter?,
+            sinceTs: Long?,
+            onSkipped: () -> Unit = {}
+        ): List<BuildDifference>? {
             fun reportFail(reason: String) {
                 reporter?.report { "Could not read diff from file $file: $reason" }
             }
 
-            if (!file.exists()) return null
-
             try {
-                ObjectInputStream(file.inputStream().buffered()).use { input ->
+                DataInputStream(file.inputStream().buffered()).use { input ->
+                    val magic = input.readInt()
                     val version = input.readInt()
-                    if (version != CURRENT_VERSION) {
+                    if (magic != MAGIC || version != CURRENT_VERSION) {
                         reportFail("incompatible version $version, actual version is $CURRENT_VERSION")
                         return null
                     }
 
-                    val size = input.readInt()
-                    val result = ArrayList<BuildDifference>(size)
-                    repeat(size) {
-                        result.add(input.readBuildDifference())
+                    val result = ArrayList<BuildDifference>()
+                    val fileLength = file.length()
+                    var position = HEADER_SIZE
+                    while (true) {
+                        val (ts, payload) = try {
+                            val length = input.readRecordLength() ?: break
+                            if (!isValidRecordLength(length, fileLength - position - Int.SIZE_BYTES)) {
+                                // a damaged length is treated like a truncated record: nothing after it can be trusted
+                                reporter?.report { "Ignoring corrupted record in $file" }
+                                break
+                            }
+                            position += Int.SIZE_BYTES + length
+                            val ts = input.readLong()
+                            if (sinceTs != null && ts <= sinceTs) {
+                                input.skipFully(length - Long.SIZE_BYTES)
+                                onSkipped()
+                                continue
+                            }
+                            val payload = ByteArray(length - Long.SIZE_BYTES)
+                            input.readFully(payload)
+                            ts to payload
+                        } catch (e: EOFException) {
+                            // the last record was not written completely, e.g. the build was killed while appending it
+                            reporter?.report { "Ignoring truncated record in $file" }
+                            break
+                        }
+                        result.add(DataInputStream(ByteArrayInputStream(payload)).readBuildDifference(ts))
                     }
                     return result
                 }
             } catch (e: IOException) {
                 reportFail(e.toString())
+            } catch (e: RuntimeException) {
+                // a complete record with damaged content, the history is not used at all
+                reportFail(e.toString())
             }
 
             return null
         }
 
-        fun writeToFile(file: File, storage: BuildDiffsStorage, reporter: ICReporter?) {
-            file.parentFile.mkdirs()
+        // a record holds at least its timestamp and cannot go beyond the end of the file
+        private fun isValidRecordLength(length: Int, remaining: Long): Boolean =
+            length >= Long.SIZE_BYTES && length <= remaining
 
-            try {
-                ObjectOutputStream(file.outputStream().buffered()).use { output ->
-                    output.writeInt(CURRENT_VERSION)
+        private class LogInfo(val records: Int, val completeLength: Long)
 
-                    val diffsToWrite = storage.buildDiffs.sortedBy { it.ts }.takeLast(MAX_DIFFS_ENTRIES)
-                    output.writeInt(diffsToWrite.size)
-                    for (diff in diffsToWrite) {
-                        output.writeBuildDifference(diff)
+        // counts the complete records of the log, null if it is missing or incompatible
+        private fun scanLog(file: File): LogInfo? {
+            if (!file.exists()) return null
+
+            return try {
+                DataInputStream(file.inputStream().buffered()).use { input ->
+                    if (input.readInt() != MAGIC || input.readInt() != CURRENT_VERSION) return null
+
+                    val fileLength = file.length()
+                    var count = 0
+                    var completeLength = HEADER_SIZE
+                    while (true) {
+                        try {
+                            val length = input.readRecordLength() ?: break
+                            if (!isValidRecordLength(length, fileLength - completeLength - Int.SIZE_BYTES)) break
+                            input.skipFully(length)
+                            completeLength += Int.SIZE_BYTES + length
+                            count++
+                        } catch (e: EOFException) {
+                            break
+                        }
                     }
+                    LogInfo(count, completeLength)
                 }
             } catch (e: IOException) {
-                reporter?.report { "Could not write diff to file $file: $e" }
+                null
             }
         }
 
-        private fun ObjectInputStream.readBuildDifference(): BuildDifference {
-            val ts = readLong()
+        private fun writeLog(file: File, diffs: List<BuildDifference>) {
+            DataOutputStream(file.outputStream().buffered()).use { output ->
+                output.writeInt(MAGIC)
+                output.writeInt(CURRENT_VERSION)
+                for (diff in diffs) {
+                    output.write(encodeRecord(diff))
+                }
+            }
+        }
+
+        private fun encodeRecord(diff: BuildDifference): ByteArray {
+            val payload = ByteArrayOutputStream()
+            DataOutputStream(payload).use { output ->
+                output.writeLong(diff.ts)
+                output.writeBoolean(diff.isIncremental)
+                output.writeDirtyData(diff.dirtyData)
+            }
+
+            val record = ByteArrayOutputStream(Int.SIZE_BYTES + payload.size())
+            DataOutputStream(record).use { output ->
+                output.writeInt(payload.size())
+                payload.writeTo(output)
+            }
+            return record.toByteArray()
+        }
+
+        // returns null at the end of the log
+        private fun DataInputStream.readRecordLength(): Int? {
+            val b1 = read()
+            if (b1 < 0) return null
+            return (b1 shl 24) or (readUnsignedByte() shl 16) or (readUnsignedByte() shl 8) or readUnsignedByte()
+        }
+
+        private fun DataInputStream.skipFully(length: Int) {
+            var remaining = length
+            while (remaining > 0) {
+                val skipped = skipBytes(remaining)
+                if (skipped <= 0) throw EOFException()
+                remaining -= skipped
+            }
+        }
+
+        private fun DataInputStream.readBuildDifference(ts: Long): BuildDifference {
             val isIncremental = readBoolean()
             val dirtyData = readDirtyData()
             return BuildDifference(ts, isIncremental, dirtyData)
         }
 
-        private fun ObjectOutputStream.writeBuildDifference(diff: BuildDifference) {
-            writeLong(diff.ts)
-            writeBoolean(diff.isIncremental)
-            writeDirtyData(diff.dirtyData)
-        }
-
-        private fun ObjectInputStream.readDirtyData(): DirtyData {
-            val lookupSymbolSize = readInt()
+        private fun DataInputStream.readDirtyData(): DirtyData {
+            val lookupSymbolSize = readCount()
             val lookupSymbols = ArrayList<LookupSymbol>(lookupSymbolSize)
             repeat(lookupSymbolSize) {
                 val name = readUTF()
@@ -102,7 +281,7 @@ data class BuildDiffsStorage(val buildDiffs: List<BuildDifference>) {
                 lookupSymbols.add(LookupSymbol(name = name, scope = scope))
             }
 
-            val dirtyClassesSize = readInt()
+            val dirtyClassesSize = readCount()
             val dirtyClassesFqNames = ArrayList<FqName>(dirtyClassesSize)
             repeat(dirtyClassesSize) {
                 val fqNameString = readUTF()
@@ -112,7 +291,14 @@ data class BuildDiffsStorage(val buildDiffs: List<BuildDifference>) {
             return DirtyData(lookupSymbols, dirtyClassesFqNames)
         }
 
-        private fun ObjectOutputStream.writeDirtyData(dirtyData: DirtyData) {
+        // every element takes at least one byte, so a count cannot exceed the rest of the record
+        private fun DataInputStream.readCount(): Int {
+            val count = readInt()
+            if (count < 0 || count > available()) throw IOException("Corrupted record: invalid count $count")
+            return count
+        }
+
+        private fun DataOutputStream.writeDirtyData(dirtyData: DirtyData) {
             val lookupSymbols = dirtyData.dirtyLookupSymbols
             writeInt(lookupSymbols.size)
             for ((name, scope) in lookupSymbols) {
@@ -127,9 +313,50 @@ data class BuildDiffsStorage(val buildDiffs: List<BuildDifference>) {
             }
         }
 
+        // guards appends and compaction of the same file within the process
+        private val fileLocks = ConcurrentHashMap<File, Any>()
+
+        private fun lockFor(file: File): Any = fileLocks.getOrPut(file.absoluteFile) { Any() }
+
+        private val compactionExecutor: ExecutorService by lazy {
+            Executors.newSingleThreadExecutor { runnable ->
+                Thread(runnable, "BuildDiffsStorage compaction").apply { isDaemon = true }
+            }
+        }
+
+        // Parsed history files are kept in memory, since in a long-living process (the daemon)
+        // the history of an unchanged dependency is read again by every build of every dependent module.
+        // An entry is valid while the file size, modification time and the format version are the same.
+        private class CachedDiffs(val stamp: String, val diffs: List<BuildDifference>)
+
+        private val cache = object : LinkedHashMap<File, CachedDiffs>(16, 0.75f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<File, CachedDiffs>?): Boolean = size > MAX_CACHED_FILES
+        }
+
+        private fun File.stamp(): String = "${length()}:${lastModified()}:$CURRENT_VERSION"
+
+        private fun getCachedDiffs(file: File, stamp: String): List<BuildDifference>? =
+            synchronized(cache) { cache[file.absoluteFile]?.takeIf { it.stamp == stamp }?.diffs }
+
+        private fun putCachedDiffs(file: File, stamp: String, diffs: List<BuildDifference>) {
+            synchronized(cache) { cache[file.absoluteFile] = CachedDiffs(stamp, diffs.toList()) }
+        }
+
+        private fun invalidateCachedDiffs(file: File) {
+            synchronized(cache) { cache.remove(file.absoluteFile) }
+        }
+
+        private const val MAX_CACHED_FILES = 256
+
+        private const val MAGIC = 0x4B424446 // "KBDF"
+
+        private const val HEADER_SIZE = 2L * Int.SIZE_BYTES
+
         internal const val MAX_DIFFS_ENTRIES: Int = 10
 
+        internal const val COMPACTION_THRESHOLD: Int = 2 * MAX_DIFFS_ENTRIES
+
         @set:TestOnly
         var CURRENT_VERSION: Int = 0
     }
-}
\ No newline at end of file
+}
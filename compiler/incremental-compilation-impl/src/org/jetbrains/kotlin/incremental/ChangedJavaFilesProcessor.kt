@@ -16,22 +16,43 @@
 
 package org.jetbrains.kotlin.incremental
 
-import com.intellij.psi.PsiClass
-import com.intellij.psi.PsiFile
-import com.intellij.psi.PsiJavaFile
+import com.intellij.psi.*
+import org.jetbrains.kotlin.incremental.snapshots.JavaAbiSnapshotMap
+import org.jetbrains.kotlin.incremental.snapshots.md5
+import org.jetbrains.kotlin.name.FqName
 import java.io.File
+import java.nio.ByteBuffer
+import java.security.MessageDigest
 import java.util.*
 
+// ABI snapshot of a java file: a hash of the whole content, a hash of every class header (by fq name)
+// and a hash of all non-private members with the same name (by "<class fq name>#<name>").
+// Snapshots are persisted in the IC caches, so a change of a method body or a private member does not make
+// any Kotlin file dirty, and a file with unchanged content is not parsed at all.
+// New snapshots are persisted only after a successful build (see saveAbiSnapshots), so that the changes of a failed build
+// are detected again by the next one.
+private const val CONTENT_HASH_KEY = "#content"
+private const val MEMBER_SEPARATOR = '#'
+private val WHITESPACE = Regex("\\s+")
+
 internal class ChangedJavaFilesProcessor(
     private val reporter: ICReporter,
     private val psiFileFactory: (File) -> PsiFile?
 ) {
     private val allSymbols = HashSet<LookupSymbol>()
+    private val newAbiSnapshots = HashMap<File, Map<String, Long>>()
 
     val allChangedSymbols: Collection<LookupSymbol>
         get() = allSymbols
 
-    fun process(filesDiff: ChangedFiles.Known): ChangesEither {
+    val hasAbiSnapshotsToSave: Boolean
+        get() = newAbiSnapshots.isNotEmpty()
+
+    fun process(
+        filesDiff: ChangedFiles.Known,
+        abiSnapshots: JavaAbiSnapshotMap,
+        caches: Iterable<IncrementalCacheCommon>
+    ): ChangesEither {
         val modifiedJava = filesDiff.modified.filter(File::isJavaFile)
         val removedJava = filesDiff.removed.filter(File::isJavaFile)
 
@@ -40,28 +61,159 @@ internal class ChangedJavaFilesProcessor(
             return ChangesEither.Unknown()
         }
 
-        val symbols = HashSet<LookupSymbol>()
+        // reported as changes of compiled classes, so that the Kotlin subtypes of the changed java classes are affected too
+        val changesCollector = ChangesCollector()
         for (javaFile in modifiedJava) {
             assert(javaFile.extension.equals("java", ignoreCase = true))
 
-            val psiFile = psiFileFactory(javaFile)
-            if (psiFile !is PsiJavaFile) {
-                reporter.report { "Expected PsiJavaFile, got ${psiFile?.javaClass}" }
-                return ChangesEither.Unknown()
+            val oldSnapshot = abiSnapshots[javaFile]
+            val parsed = processIfChanged(javaFile, oldSnapshot) { _, newSnapshot ->
+                // without a snapshot (the first change after a rebuild) every class of the file is handled as a new one
+                collectAbiChanges(oldSnapshot ?: emptyMap(), newSnapshot, changesCollector)
             }
+            if (!parsed) return ChangesEither.Unknown()
+        }
 
-            psiFile.classes.forEach { it.addLookupSymbols(symbols) }
+        val (dirtyLookupSymbols, dirtyClassesFqNames) = changesCollector.getDirtyData(caches, reporter)
+        allSymbols.addAll(dirtyLookupSymbols)
+        return ChangesEither.Known(dirtyLookupSymbols, dirtyClassesFqNames)
+    }
+
+    // With precise java tracking, only the classes of a java file not tracked by the IC caches whose ABI has changed
+    // (together with their nested classes) are passed to onChangedClass. All classes of the file are passed
+    // if there is no stored snapshot of the file or if some of its classes were removed.
+    // Returns false if the file could not be parsed.
+    fun processUntrackedFile(javaFile: File, abiSnapshots: JavaAbiSnapshotMap, onChangedClass: (PsiClass) -> Unit): Boolean {
+        val oldSnapshot = abiSnapshots[javaFile]
+        return processIfChanged(javaFile, oldSnapshot) { psiFile, newSnapshot ->
+            val changedClasses = oldSnapshot?.let { changedClasses(it, newSnapshot) }
+            fun visit(psiClass: PsiClass, isOuterChanged: Boolean) {
+                val isChanged = isOuterChanged || changedClasses == null || psiClass.qualifiedName in changedClasses
+                if (isChanged) {
+                    onChangedClass(psiClass)
+                }
+                psiClass.innerClasses.forEach { visit(it, isChanged) }
+            }
+            psiFile.classes.forEach { visit(it, isOuterChanged = false) }
         }
-        allSymbols.addAll(symbols)
-        return ChangesEither.Known(lookupSymbols = symbols)
     }
 
-    private fun PsiClass.addLookupSymbols(symbols: MutableSet<LookupSymbol>) {
-        val fqn = qualifiedName.orEmpty()
+    private fun processIfChanged(
+        javaFile: File,
+        oldSnapshot: Map<String, Long>?,
+        onChanged: (PsiJavaFile, Map<String, Long>) -> Unit
+    ): Boolean {
+        val contentHash = ByteBuffer.wrap(javaFile.md5).long
+        if (oldSnapshot != null && oldSnapshot[CONTENT_HASH_KEY] == contentHash) {
+            reporter.reportVerbose { "Content of $javaFile is not changed" }
+            return true
+        }
+
+        val psiFile = psiFileFactory(javaFile)
+        if (psiFile !is PsiJavaFile) {
+            reporter.report { "Expected PsiJavaFile, got ${psiFile?.javaClass}" }
+            return false
+        }
 
-        symbols.add(LookupSymbol(name.orEmpty(), if (fqn == name) "" else fqn.removeSuffix("." + name!!)))
-        methods.forEach { symbols.add(LookupSymbol(it.name, fqn)) }
-        fields.forEach { symbols.add(LookupSymbol(it.name.orEmpty(), fqn)) }
-        innerClasses.forEach { it.addLookupSymbols(symbols) }
+        val newSnapshot = hashMapOf(CONTENT_HASH_KEY to contentHash)
+        psiFile.classes.forEach { it.addAbiHashes(newSnapshot) }
+
+        onChanged(psiFile, newSnapshot)
+        newAbiSnapshots[javaFile] = newSnapshot
+        return true
     }
+
+    fun saveAbiSnapshots(abiSnapshots: JavaAbiSnapshotMap) {
+        for ((javaFile, snapshot) in newAbiSnapshots) {
+            abiSnapshots[javaFile] = snapshot
+        }
+        newAbiSnapshots.clear()
+    }
+
+    private fun PsiClass.addAbiHashes(hashes: MutableMap<String, Long>) {
+        val fqn = qualifiedName ?: return
+
+        // `when` over an enum has to be rechecked for exhaustiveness when its set of constants changes
+        val enumConstants = fields.filterIsInstance<PsiEnumConstant>().joinToString { it.name }
+        hashes[fqn] = abiHash(
+            "$isInterface $isEnum $isAnnotationType $enumConstants", modifierList, typeParameterList, extendsList, implementsList
+        )
+
+        val members = HashMap<String, MutableList<Long>>()
+        for (method in methods) {
+            if (method.hasModifierProperty(PsiModifier.PRIVATE)) continue
+            val defaultValue = (method as? PsiAnnotationMethod)?.defaultValue
+            val hash = with(method) {
+                abiHash("method", modifierList, typeParameterList, returnTypeElement, parameterList, throwsList, defaultValue)
+            }
+            members.getOrPut(method.name, ::ArrayList).add(hash)
+        }
+        for (field in fields) {
+            if (field.hasModifierProperty(PsiModifier.PRIVATE)) continue
+            // initializers of final fields may be inlined as constants
+            val initializer = if (field.hasModifierProperty(PsiModifier.FINAL)) field.initializer else null
+            members.getOrPut(field.name.orEmpty(), ::ArrayList).add(abiHash("field", field.modifierList, field.typeElement, initializer))
+        }
+        for ((name, memberHashes) in members) {
+            hashes["$fqn$MEMBER_SEPARATOR$name"] = signatureHash(memberHashes.sorted().joinToString())
+        }
+
+        innerClasses.forEach { it.addAbiHashes(hashes) }
+    }
+
+    // a changed member affects lookups of its name in the class and its subtypes,
+    // a changed, added or removed class affects lookups of the class itself and all of its members
+    private fun collectAbiChanges(oldHashes: Map<String, Long>, newHashes: Map<String, Long>, changesCollector: ChangesCollector) {
+        val allKeys = oldHashes.keys + newHashes.keys
+        val changedClasses = HashSet<String>()
+
+        for (key in allKeys) {
+            if (key == CONTENT_HASH_KEY || oldHashes[key] == newHashes[key]) continue
+
+            val separatorIndex = key.indexOf(MEMBER_SEPARATOR)
+            if (separatorIndex < 0) {
+                changedClasses.add(key)
+                changesCollector.collectSignature(FqName(key), areSubclassesAffected = true)
+            } else {
+                val classFqName = FqName(key.substring(0, separatorIndex))
+                changesCollector.collectMemberIfValueWasChanged(classFqName, key.substring(separatorIndex + 1), oldHashes[key], newHashes[key])
+            }
+        }
+
+        if (changedClasses.isEmpty()) return
+
+        val membersOfChangedClasses = HashMap<String, MutableSet<String>>()
+        for (key in allKeys) {
+            val separatorIndex = key.indexOf(MEMBER_SEPARATOR)
+            if (separatorIndex <= 0) continue
+
+            val fqn = key.substring(0, separatorIndex)
+            if (fqn in changedClasses) {
+                membersOfChangedClasses.getOrPut(fqn, ::HashSet).add(key.substring(separatorIndex + 1))
+            }
+        }
+        for ((fqn, names) in membersOfChangedClasses) {
+            changesCollector.collectChangedMembers(FqName(fqn), names)
+        }
+    }
+
+    // fq names of the classes with a changed header or member, or null if some class was removed
+    private fun changedClasses(oldHashes: Map<String, Long>, newHashes: Map<String, Long>): Set<String>? {
+        val changedClasses = HashSet<String>()
+        for (key in oldHashes.keys + newHashes.keys) {
+            if (key == CONTENT_HASH_KEY || oldHashes[key] == newHashes[key]) continue
+
+            val separatorIndex = key.indexOf(MEMBER_SEPARATOR)
+            if (separatorIndex < 0 && key !in newHashes) return null
+
+            changedClasses.add(if (separatorIndex < 0) key else key.substring(0, separatorIndex))
+        }
+        return changedClasses
+    }
+
+    private fun abiHash(kind: String, vararg elements: PsiElement?): Long =
+        signatureHash(elements.joinToString(separator = "|", prefix = "$kind|") { it?.text?.replace(WHITESPACE, " ").orEmpty() })
+
+    private fun signatureHash(signature: String): Long =
+        ByteBuffer.wrap(MessageDigest.getInstance("MD5").digest(signature.toByteArray())).long
 }
@@ -16,6 +16,8 @@
 
 package org.jetbrains.kotlin.incremental
 
+import org.jetbrains.kotlin.incremental.snapshots.ClasspathAbiSnapshotCache
+import org.jetbrains.kotlin.incremental.snapshots.JavaAbiSnapshotCache
 import org.jetbrains.kotlin.incremental.storage.BasicMapsOwner
 import org.jetbrains.kotlin.incremental.storage.FileToCanonicalPathConverter
 import org.jetbrains.kotlin.serialization.SerializerExtensionProtocol
@@ -39,13 +41,17 @@ abstract class IncrementalCachesManager<PlatformCache : AbstractIncrementalCache
     val lookupCache: LookupStorage = LookupStorage(lookupCacheDir, PATH_CONVERTER).apply { registerCache() }
     abstract val platformCache: PlatformCache
 
-    fun close(flush: Boolean = false): Boolean {
+    fun close(flush: Boolean = false, metrics: ICMetrics? = null): Boolean {
         var successful = true
 
         for (cache in caches) {
             if (flush) {
                 try {
-                    cache.flush(false)
+                    if (metrics != null) {
+                        metrics.measure("caches.flush.${cache.cachesDir.name}") { cache.flush(false) }
+                    } else {
+                        cache.flush(false)
+                    }
                 } catch (e: Throwable) {
                     successful = false
                     reporter.report { "Exception when flushing cache ${cache.javaClass}: $e" }
@@ -72,6 +78,15 @@ class IncrementalJvmCachesManager(
 
     private val jvmCacheDir = File(cacheDirectory, "jvm").apply { mkdirs() }
     override val platformCache = IncrementalJvmCache(jvmCacheDir, outputDir, PATH_CONVERTER).apply { registerCache() }
+
+    // created on the first use: only changed java files not tracked by precise java tracking need ABI snapshots
+    val javaAbiCache by lazy {
+        val javaAbiCacheDir = File(cacheDirectory, "java-abi").apply { mkdirs() }
+        JavaAbiSnapshotCache(javaAbiCacheDir).apply { registerCache() }
+    }
+
+    private val classpathAbiCacheDir = File(cacheDirectory, "classpath-abi").apply { mkdirs() }
+    val classpathAbiCache = ClasspathAbiSnapshotCache(classpathAbiCacheDir).apply { registerCache() }
 }
 
 class IncrementalJsCachesManager(
@@ -54,6 +54,10 @@ abstract class IncrementalCompilerRunner<
     protected val lastBuildInfoFile = File(workingDir, LAST_BUILD_INFO_FILE_NAME)
     protected open val kotlinSourceFilesExtensions: List<String> = DEFAULT_KOTLIN_SOURCE_FILES_EXTENSIONS
 
+    // metrics of the current build, reported to [reporter] when the build is finished
+    protected var metrics = ICMetrics()
+        private set
+
     protected abstract fun isICEnabled(): Boolean
     protected abstract fun createCacheManager(args: Args): CacheManager
     protected abstract fun destinationDir(args: Args): File
@@ -67,6 +71,7 @@ abstract class IncrementalCompilerRunner<
         providedChangedFiles: ChangedFiles?
     ): ExitCode {
         assert(isICEnabled()) { "Incremental compilation is not enabled" }
+        metrics = ICMetrics()
         var caches = createCacheManager(args)
 
         fun rebuild(reason: () -> String): ExitCode {
@@ -75,15 +80,16 @@ abstract class IncrementalCompilerRunner<
             clearLocalStateOnRebuild(args)
             caches = createCacheManager(args)
             if (providedChangedFiles == null) {
-                caches.inputsCache.sourceSnapshotMap.compareAndUpdate(allSourceFiles)
+                metrics.measure("snapshot") { caches.inputsCache.sourceSnapshotMap.compareAndUpdate(allSourceFiles) }
             }
             val allKotlinFiles = allSourceFiles.filter { it.isKotlinFile(kotlinSourceFilesExtensions) }
             return compileIncrementally(args, caches, allKotlinFiles, CompilationMode.Rebuild(), messageCollector)
         }
 
         return try {
-            val changedFiles = providedChangedFiles ?: caches.inputsCache.sourceSnapshotMap.compareAndUpdate(allSourceFiles)
-            val compilationMode = sourcesToCompile(caches, changedFiles, args)
+            val changedFiles = providedChangedFiles
+                ?: metrics.measure("snapshot") { caches.inputsCache.sourceSnapshotMap.compareAndUpdate(allSourceFiles) }
+            val compilationMode = metrics.measure("changes.detection") { sourcesToCompile(caches, changedFiles, args) }
 
             val exitCode = when (compilationMode) {
                 is CompilationMode.Incremental -> {
@@ -94,12 +100,15 @@ abstract class IncrementalCompilerRunner<
                 }
             }
 
-            if (!caches.close(flush = true)) throw RuntimeException("Could not flush caches")
+            caches.lookupCache.collectMetrics(metrics)
+            if (!caches.close(flush = true, metrics = metrics)) throw RuntimeException("Could not flush caches")
 
             return exitCode
         } catch (e: Exception) {
             // todo: warn?
             rebuild { "Possible cache corruption. Rebuilding. $e" }
+        } finally {
+            reporter.reportMetrics(metrics)
         }
     }
 
@@ -164,6 +173,7 @@ abstract class IncrementalCompilerRunner<
     )
 
     protected open fun preBuildHook(args: Args, compilationMode: CompilationMode) {}
+    protected open fun postBuildHook(args: Args, caches: CacheManager) {}
     protected open fun additionalDirtyFiles(caches: CacheManager, generatedFiles: List<GeneratedFile>, services: Services): Iterable<File> =
         emptyList()
 
@@ -214,10 +224,12 @@ abstract class IncrementalCompilerRunner<
         var exitCode = ExitCode.OK
 
         while (dirtySources.any() || runWithNoDirtyKotlinSources(caches)) {
-            val complementaryFiles = caches.platformCache.getComplementaryFilesRecursive(dirtySources)
-            dirtySources.addAll(complementaryFiles)
-            caches.platformCache.markDirty(dirtySources)
-            caches.inputsCache.removeOutputForSourceFiles(dirtySources)
+            metrics.measure("dirty.expansion") {
+                val complementaryFiles = caches.platformCache.getComplementaryFilesRecursive(dirtySources)
+                dirtySources.addAll(complementaryFiles)
+                caches.platformCache.markDirty(dirtySources)
+                caches.inputsCache.removeOutputForSourceFiles(dirtySources)
+            }
 
             val lookupTracker = LookupTrackerImpl(LookupTracker.DO_NOTHING)
             val expectActualTracker = ExpectActualTrackerImpl()
@@ -237,13 +249,19 @@ abstract class IncrementalCompilerRunner<
             val temporaryMessageCollector = TemporaryMessageCollector(messageCollector)
             val messageCollectorAdapter = MessageCollectorToOutputItemsCollectorAdapter(temporaryMessageCollector, outputItemsCollector)
 
-            exitCode = runCompiler(sourcesToCompile.toSet(), args, caches, services, messageCollectorAdapter)
+            exitCode = metrics.measure("compile.iteration") {
+                runCompiler(sourcesToCompile.toSet(), args, caches, services, messageCollectorAdapter)
+            }
+            metrics.add("compile.iterations")
+            metrics.add("compile.files", sourcesToCompile.size.toLong())
 
             val generatedFiles = outputItemsCollector.outputs.map(SimpleOutputItem::toGeneratedFile)
             if (compilationMode is CompilationMode.Incremental) {
                 // todo: feels dirty, can this be refactored?
                 val dirtySourcesSet = dirtySources.toHashSet()
-                val additionalDirtyFiles = additionalDirtyFiles(caches, generatedFiles, services).filter { it !in dirtySourcesSet }
+                val additionalDirtyFiles = metrics.measure("dirty.expansion") {
+                    additionalDirtyFiles(caches, generatedFiles, services).filter { it !in dirtySourcesSet }
+                }
                 if (additionalDirtyFiles.isNotEmpty()) {
                     dirtySources.addAll(additionalDirtyFiles)
                     generatedFiles.forEach { it.outputFile.delete() }
@@ -258,28 +276,40 @@ abstract class IncrementalCompilerRunner<
 
             dirtySourcesSinceLastTimeFile.delete()
 
-            caches.platformCache.updateComplementaryFiles(dirtySources, expectActualTracker)
-            caches.inputsCache.registerOutputForSourceFiles(generatedFiles)
-            caches.lookupCache.update(lookupTracker, sourcesToCompile, removedKotlinSources)
             val changesCollector = ChangesCollector()
-            updateCaches(services, caches, generatedFiles, changesCollector)
+            metrics.measure("caches.update") {
+                caches.platformCache.updateComplementaryFiles(dirtySources, expectActualTracker)
+                caches.inputsCache.registerOutputForSourceFiles(generatedFiles)
+                caches.lookupCache.update(lookupTracker, sourcesToCompile, removedKotlinSources)
+                updateCaches(services, caches, generatedFiles, changesCollector)
+            }
 
             if (compilationMode is CompilationMode.Rebuild) break
 
-            val (dirtyLookupSymbols, dirtyClassFqNames) = changesCollector.getDirtyData(listOf(caches.platformCache), reporter)
-            val compiledInThisIterationSet = sourcesToCompile.toHashSet()
-
-            with(dirtySources) {
-                clear()
-                addAll(mapLookupSymbolsToFiles(caches.lookupCache, dirtyLookupSymbols, reporter, excludes = compiledInThisIterationSet))
-                addAll(
-                    mapClassesFqNamesToFiles(
-                        listOf(caches.platformCache),
-                        dirtyClassFqNames,
-                        reporter,
-                        excludes = compiledInThisIterationSet
+            val (dirtyLookupSymbols, dirtyClassFqNames) = metrics.measure("dirty.expansion") {
+                val dirtyData = changesCollector.getDirtyData(listOf(caches.platformCache), reporter)
+                val compiledInThisIterationSet = sourcesToCompile.toHashSet()
+
+                with(dirtySources) {
+                    clear()
+                    addAll(
+                        mapLookupSymbolsToFiles(
+                            caches.lookupCache,
+                            dirtyData.dirtyLookupSymbols,
+                            reporter,
+                            excludes = compiledInThisIterationSet
+                        )
+                    )
+                    addAll(
+                        mapClassesFqNamesToFiles(
+                            listOf(caches.platformCache),
+                            dirtyData.dirtyClassesFqNames,
+                            reporter,
+                            excludes = compiledInThisIterationSet
+                        )
                     )
-                )
+                }
+                dirtyData
             }
 
             buildDirtyLookupSymbols.addAll(dirtyLookupSymbols)
@@ -288,13 +318,14 @@ abstract class IncrementalCompilerRunner<
 
         if (exitCode == ExitCode.OK) {
             BuildInfo.write(currentBuildInfo, lastBuildInfoFile)
+            metrics.measure("post.build") { postBuildHook(args, caches) }
         }
         if (exitCode == ExitCode.OK && compilationMode is CompilationMode.Incremental) {
             buildDirtyLookupSymbols.addAll(additionalDirtyLookupSymbols())
         }
 
         val dirtyData = DirtyData(buildDirtyLookupSymbols, buildDirtyFqNames)
-        processChangesAfterBuild(compilationMode, currentBuildInfo, dirtyData)
+        metrics.measure("build.history") { processChangesAfterBuild(compilationMode, currentBuildInfo, dirtyData) }
 
         return exitCode
     }
@@ -330,7 +361,6 @@ abstract class IncrementalCompilerRunner<
         currentBuildInfo: BuildInfo,
         dirtyData: DirtyData
     ) {
-        val prevDiffs = BuildDiffsStorage.readFromFile(buildHistoryFile, reporter)?.buildDiffs ?: emptyList()
         val newDiff = if (compilationMode is CompilationMode.Incremental) {
             BuildDifference(currentBuildInfo.startTS, true, dirtyData)
         } else {
@@ -338,7 +368,7 @@ abstract class IncrementalCompilerRunner<
             BuildDifference(currentBuildInfo.startTS, false, emptyDirtyData)
         }
 
-        BuildDiffsStorage.writeToFile(buildHistoryFile, BuildDiffsStorage(prevDiffs + newDiff), reporter)
+        BuildDiffsStorage.appendToFile(buildHistoryFile, newDiff, reporter)
     }
 
     companion object {
@@ -21,7 +21,6 @@ import com.intellij.openapi.util.Disposer
 import com.intellij.psi.PsiClass
 import com.intellij.psi.PsiFile
 import com.intellij.psi.PsiFileFactory
-import com.intellij.psi.PsiJavaFile
 import org.jetbrains.kotlin.build.DEFAULT_KOTLIN_SOURCE_FILES_EXTENSIONS
 import org.jetbrains.kotlin.build.GeneratedFile
 import org.jetbrains.kotlin.build.GeneratedJvmClass
@@ -38,6 +37,7 @@ import org.jetbrains.kotlin.incremental.components.ExpectActualTracker
 import org.jetbrains.kotlin.incremental.components.LookupTracker
 import org.jetbrains.kotlin.incremental.multiproject.EmptyModulesApiHistory
 import org.jetbrains.kotlin.incremental.multiproject.ModulesApiHistory
+import org.jetbrains.kotlin.incremental.snapshots.JarAbiSnapshot
 import org.jetbrains.kotlin.load.java.JavaClassesTracker
 import org.jetbrains.kotlin.load.kotlin.header.KotlinClassHeader
 import org.jetbrains.kotlin.load.kotlin.incremental.components.IncrementalCompilationComponents
@@ -52,7 +52,9 @@ fun makeIncrementally(
     sourceRoots: Iterable<File>,
     args: K2JVMCompilerArguments,
     messageCollector: MessageCollector = MessageCollector.NONE,
-    reporter: ICReporter = EmptyICReporter
+    reporter: ICReporter = EmptyICReporter,
+    // Use precise setting in case of non-Gradle build
+    usePreciseJavaTracking: Boolean = true
 ) {
     val kotlinExtensions = DEFAULT_KOTLIN_SOURCE_FILES_EXTENSIONS
     val allExtensions = kotlinExtensions + "java"
@@ -66,8 +68,7 @@ fun makeIncrementally(
         val compiler = IncrementalJvmCompilerRunner(
             cachesDir,
             reporter,
-            // Use precise setting in case of non-Gradle build
-            usePreciseJavaTracking = true,
+            usePreciseJavaTracking = usePreciseJavaTracking,
             outputFiles = emptyList(),
             buildHistoryFile = buildHistoryFile,
             modulesApiHistory = EmptyModulesApiHistory,
@@ -125,6 +126,11 @@ class IncrementalJvmCompilerRunner(
 
     private var dirtyClasspathChanges: Collection<FqName> = emptySet()
 
+    private val withClasspathSnapshots = IncrementalCompilation.isClasspathSnapshotsEnabled()
+
+    // snapshots of the changed classpath jars computed by the changes detection, stored only after a successful build
+    private val newClasspathSnapshots = HashMap<File, JarAbiSnapshot>()
+
     private val psiFileFactory: PsiFileFactory by lazy {
         val rootDisposable = Disposer.newDisposable()
         val configuration = CompilerConfiguration()
@@ -135,11 +141,7 @@ class IncrementalJvmCompilerRunner(
 
     private val changedUntrackedJavaClasses = mutableSetOf<ClassId>()
 
-    private var javaFilesProcessor =
-        if (!usePreciseJavaTracking)
-            ChangedJavaFilesProcessor(reporter) { it.psiFile() }
-        else
-            null
+    private val javaFilesProcessor = ChangedJavaFilesProcessor(reporter) { it.psiFile() }
 
     override fun calculateSourcesToCompile(
         caches: IncrementalJvmCachesManager,
@@ -152,7 +154,21 @@ class IncrementalJvmCompilerRunner(
         val lastBuildInfo = BuildInfo.read(lastBuildInfoFile) ?: return CompilationMode.Rebuild { "No information on previous build" }
         reporter.reportVerbose { "Last Kotlin Build info -- $lastBuildInfo" }
 
-        val classpathChanges = getClasspathChanges(args.classpathAsList, changedFiles, lastBuildInfo, modulesApiHistory, reporter)
+        val historyChanges = metrics.measure("changes.detection.classpath") {
+            getClasspathChanges(args.classpathAsList, changedFiles, lastBuildInfo, modulesApiHistory, reporter)
+        }
+        val classpathChanges =
+            if (historyChanges is ChangesEither.Unknown && withClasspathSnapshots) {
+                reporter.report { "Could not get classpath's changes from build history${historyChanges.reason?.let { ": $it" }}" }
+                metrics.measure("changes.detection.classpath.snapshots") {
+                    getClasspathChangesFromAbiSnapshots(
+                        args.classpathAsList, changedFiles, caches.classpathAbiCache, listOf(caches.platformCache), reporter,
+                        newClasspathSnapshots
+                    )
+                }
+            } else {
+                historyChanges
+            }
 
         @Suppress("UNUSED_VARIABLE") // for sealed when
         val unused = when (classpathChanges) {
@@ -168,14 +184,18 @@ class IncrementalJvmCompilerRunner(
         }
 
         if (!usePreciseJavaTracking) {
-            val javaFilesChanges = javaFilesProcessor!!.process(changedFiles)
-            val affectedJavaSymbols = when (javaFilesChanges) {
-                is ChangesEither.Known -> javaFilesChanges.lookupSymbols
+            val javaFilesChanges = metrics.measure("changes.detection.java") {
+                javaFilesProcessor.process(changedFiles, caches.javaAbiCache.abiSnapshotMap, listOf(caches.platformCache))
+            }
+            when (javaFilesChanges) {
+                is ChangesEither.Known -> {
+                    dirtyFiles.addByDirtySymbols(javaFilesChanges.lookupSymbols)
+                    dirtyFiles.addByDirtyClasses(javaFilesChanges.fqNames)
+                }
                 is ChangesEither.Unknown -> return CompilationMode.Rebuild { "Could not get changes for java files" }
             }
-            dirtyFiles.addByDirtySymbols(affectedJavaSymbols)
         } else {
-            if (!processChangedJava(changedFiles, caches)) {
+            if (!metrics.measure("changes.detection.java") { processChangedJava(changedFiles, caches) }) {
                 return CompilationMode.Rebuild { "Could not get changes for java files" }
             }
         }
@@ -201,20 +221,23 @@ class IncrementalJvmCompilerRunner(
                     return false
                 }
 
-                val psiFile = javaFile.psiFile()
-                if (psiFile !is PsiJavaFile) {
-                    reporter.report { "[Precise Java tracking] Expected PsiJavaFile, got ${psiFile?.javaClass}" }
+                // only the classes whose ABI hashes have changed are recorded, a file with unchanged content is not parsed
+                var hasUnknownClass = false
+                val isParsed = javaFilesProcessor.processUntrackedFile(javaFile, caches.javaAbiCache.abiSnapshotMap) { psiClass ->
+                    val classId = psiClass.classId()
+                    if (classId != null) {
+                        changedUntrackedJavaClasses.add(classId)
+                    } else if (psiClass.containingClass == null) {
+                        hasUnknownClass = true
+                    }
+                }
+                if (!isParsed) {
+                    reporter.report { "[Precise Java tracking] Could not parse untracked java file $javaFile" }
                     return false
                 }
-
-                for (psiClass in psiFile.classes) {
-                    val qualifiedName = psiClass.qualifiedName
-                    if (qualifiedName == null) {
-                        reporter.report { "[Precise Java tracking] Class with unknown qualified name in $javaFile" }
-                        return false
-                    }
-
-                    processChangedUntrackedJavaClass(psiClass, ClassId.topLevel(FqName(qualifiedName)))
+                if (hasUnknownClass) {
+                    reporter.report { "[Precise Java tracking] Class with unknown qualified name in $javaFile" }
+                    return false
                 }
             }
         }
@@ -226,12 +249,10 @@ class IncrementalJvmCompilerRunner(
     private fun File.psiFile(): PsiFile? =
         psiFileFactory.createFileFromText(nameWithoutExtension, JavaLanguage.INSTANCE, readText())
 
-    private fun processChangedUntrackedJavaClass(psiClass: PsiClass, classId: ClassId) {
-        changedUntrackedJavaClasses.add(classId)
-        for (innerClass in psiClass.innerClasses) {
-            val name = innerClass.name ?: continue
-            processChangedUntrackedJavaClass(innerClass, classId.createNestedClassId(Name.identifier(name)))
-        }
+    private fun PsiClass.classId(): ClassId? {
+        val outerClass = containingClass ?: return qualifiedName?.let { ClassId.topLevel(FqName(it)) }
+        val name = name ?: return null
+        return outerClass.classId()?.createNestedClassId(Name.identifier(name))
     }
 
     private fun processLookupSymbolsForAndroidLayouts(changedFiles: ChangedFiles.Known): Collection<LookupSymbol> {
@@ -253,6 +274,16 @@ class IncrementalJvmCompilerRunner(
         }
     }
 
+    override fun postBuildHook(args: K2JVMCompilerArguments, caches: IncrementalJvmCachesManager) {
+        if (javaFilesProcessor.hasAbiSnapshotsToSave) {
+            javaFilesProcessor.saveAbiSnapshots(caches.javaAbiCache.abiSnapshotMap)
+        }
+        if (withClasspathSnapshots) {
+            updateClasspathAbiSnapshots(args.classpathAsList, caches.classpathAbiCache, newClasspathSnapshots)
+            newClasspathSnapshots.clear()
+        }
+    }
+
     override fun updateCaches(
         services: Services,
         caches: IncrementalJvmCachesManager,
@@ -312,7 +343,7 @@ class IncrementalJvmCompilerRunner(
     }
 
     override fun additionalDirtyLookupSymbols(): Iterable<LookupSymbol> =
-        javaFilesProcessor?.allChangedSymbols ?: emptyList()
+        javaFilesProcessor.allChangedSymbols
 
     override fun makeServices(
         args: K2JVMCompilerArguments,
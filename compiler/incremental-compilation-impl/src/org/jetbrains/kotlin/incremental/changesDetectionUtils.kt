@@ -6,9 +6,13 @@
 package org.jetbrains.kotlin.incremental
 
 import org.jetbrains.kotlin.incremental.multiproject.ModulesApiHistory
+import org.jetbrains.kotlin.incremental.snapshots.ClasspathAbiSnapshotCache
+import org.jetbrains.kotlin.incremental.snapshots.ClasspathAbiSnapshotter
+import org.jetbrains.kotlin.incremental.snapshots.JarAbiSnapshot
 import org.jetbrains.kotlin.incremental.util.Either
 import org.jetbrains.kotlin.name.FqName
 import java.io.File
+import java.util.stream.Collectors
 
 internal fun getClasspathChanges(
     classpath: List<File>,
@@ -17,14 +21,7 @@ internal fun getClasspathChanges(
     modulesApiHistory: ModulesApiHistory,
     reporter: ICReporter?
 ): ChangesEither {
-    val classpathSet = HashSet<File>()
-    for (file in classpath) {
-        when {
-            file.isFile -> classpathSet.add(file)
-            file.isDirectory -> file.walk().filterTo(classpathSet) { it.isFile }
-        }
-    }
-
+    val classpathSet = classpathFiles(classpath)
     val modifiedClasspath = changedFiles.modified.filterTo(HashSet()) { it in classpathSet }
     val removedClasspath = changedFiles.removed.filterTo(HashSet()) { it in classpathSet }
 
@@ -44,15 +41,18 @@ internal fun getClasspathChanges(
         is Either.Error -> return ChangesEither.Unknown(historyFilesEither.reason)
     }
 
+    val diffsByHistoryFile = readDiffsConcurrently(historyFiles, lastBuildTS)
+
     for (historyFile in historyFiles) {
-        val allBuilds = BuildDiffsStorage.readDiffsFromFile(historyFile, reporter = reporter)
+        val diffsSince = diffsByHistoryFile[historyFile]
+            // re-read to report the reason of the failure
+            ?: BuildDiffsStorage.readDiffsSince(historyFile, lastBuildTS, reporter = reporter)
             ?: return ChangesEither.Unknown("Could not read diffs from $historyFile")
-        val (knownBuilds, newBuilds) = allBuilds.partition { it.ts <= lastBuildTS }
-        if (knownBuilds.isEmpty()) {
+        if (!diffsSince.hasEarlierBuilds) {
             return ChangesEither.Unknown("No previously known builds for $historyFile")
         }
 
-        for (buildDiff in newBuilds) {
+        for (buildDiff in diffsSince.buildDiffs) {
             if (!buildDiff.isIncremental) return ChangesEither.Unknown("Non-incremental build from dependency $historyFile")
 
             val dirtyData = buildDiff.dirtyData
@@ -62,4 +62,77 @@ internal fun getClasspathChanges(
     }
 
     return ChangesEither.Known(symbols, fqNames)
-}
\ No newline at end of file
+}
+
+// history files of different modules are independent, so when several dependencies have changed, they are read in parallel
+private fun readDiffsConcurrently(historyFiles: Set<File>, sinceTs: Long): Map<File, BuildDiffsSince> {
+    if (historyFiles.size < 2) return emptyMap()
+
+    return historyFiles.parallelStream()
+        .map { it to BuildDiffsStorage.readDiffsSince(it, sinceTs, reporter = null) }
+        .collect(Collectors.toList())
+        .mapNotNull { (file, diffs) -> diffs?.let { file to it } }
+        .toMap()
+}
+
+// Diffs the modified classpath jars against their stored ABI snapshots.
+// Used when the changes could not be obtained from the build history of the modules producing the jars (e.g. third-party jars).
+// The stored snapshots are not updated here: the new ones are put to [newSnapshots] and stored by updateClasspathAbiSnapshots
+// only after a successful build, so that a failed build does not lose the changes.
+internal fun getClasspathChangesFromAbiSnapshots(
+    classpath: List<File>,
+    changedFiles: ChangedFiles.Known,
+    abiSnapshots: ClasspathAbiSnapshotCache,
+    caches: Iterable<IncrementalCacheCommon>,
+    reporter: ICReporter,
+    newSnapshots: MutableMap<File, JarAbiSnapshot>
+): ChangesEither {
+    val classpathSet = classpathFiles(classpath)
+    val modifiedClasspath = changedFiles.modified.filterTo(HashSet()) { it in classpathSet }
+    val removedClasspath = changedFiles.removed.filterTo(HashSet()) { it in classpathSet }
+
+    if (removedClasspath.isNotEmpty()) return ChangesEither.Unknown("Some files are removed from classpath $removedClasspath")
+
+    val notSnapshotted = modifiedClasspath.filter { !it.isJar() || !abiSnapshots.hasSnapshot(it) }
+    if (notSnapshotted.isNotEmpty()) return ChangesEither.Unknown("No ABI snapshots for $notSnapshotted")
+
+    val changesCollector = ChangesCollector()
+    for ((jar, snapshot) in ClasspathAbiSnapshotter.snapshotJars(modifiedClasspath)) {
+        abiSnapshots.collectChanges(jar, snapshot, changesCollector)
+        newSnapshots[jar] = snapshot
+    }
+
+    val (dirtyLookupSymbols, dirtyClassesFqNames) = changesCollector.getDirtyData(caches, reporter)
+    return ChangesEither.Known(dirtyLookupSymbols, dirtyClassesFqNames)
+}
+
+// stores the snapshots computed by the changes detection and snapshots the other classpath jars changed since the previous build,
+// so that their next changes could be diffed
+internal fun updateClasspathAbiSnapshots(
+    classpath: List<File>,
+    abiSnapshots: ClasspathAbiSnapshotCache,
+    newSnapshots: Map<File, JarAbiSnapshot>
+) {
+    for ((jar, snapshot) in newSnapshots) {
+        abiSnapshots.update(jar, snapshot)
+    }
+
+    val outdatedJars = classpath.filter { it.isJar() && it !in newSnapshots && !abiSnapshots.isUpToDate(it) }
+    for ((jar, snapshot) in ClasspathAbiSnapshotter.snapshotJars(outdatedJars)) {
+        abiSnapshots.update(jar, snapshot)
+    }
+}
+
+private fun classpathFiles(classpath: List<File>): Set<File> {
+    val classpathSet = HashSet<File>()
+    for (file in classpath) {
+        when {
+            file.isFile -> classpathSet.add(file)
+            file.isDirectory -> file.walk().filterTo(classpathSet) { it.isFile }
+        }
+    }
+    return classpathSet
+}
+
+private fun File.isJar(): Boolean =
+    isFile && extension.equals("jar", ignoreCase = true)
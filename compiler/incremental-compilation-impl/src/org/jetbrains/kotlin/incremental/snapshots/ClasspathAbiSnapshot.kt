@@ -0,0 +1,227 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental.snapshots
+
+import org.jetbrains.kotlin.incremental.ChangesCollector
+import org.jetbrains.kotlin.incremental.md5
+import org.jetbrains.kotlin.incremental.storage.ProtoMapValue
+import org.jetbrains.kotlin.incremental.toProtoData
+import org.jetbrains.kotlin.inline.inlineFunctionsJvmNames
+import org.jetbrains.kotlin.load.kotlin.FileBasedKotlinClass
+import org.jetbrains.kotlin.load.kotlin.header.KotlinClassHeader
+import org.jetbrains.kotlin.metadata.jvm.deserialization.BitEncoding
+import org.jetbrains.kotlin.resolve.jvm.JvmClassName
+import org.jetbrains.org.objectweb.asm.*
+import java.io.File
+import java.util.stream.Collectors
+import java.util.zip.ZipFile
+
+// ABI of a class from a classpath jar.
+// For a Kotlin class or file facade it is the metadata proto, plus hashes of the inline functions' bytecode and the constants' values
+// (keyed by jvm signature and name respectively), so that the changes are computed by the same proto comparison as for the sources.
+// For any other class it is the hash of the class header (keyed by JAVA_CLASS_HEADER_KEY) and a hash of all non-private members
+// with the same name (keyed by the name).
+class ClassAbiSnapshot(val proto: ProtoMapValue?, val members: Map<String, Long>) {
+    val hash: Long by lazy {
+        val signature = StringBuilder()
+        if (proto != null) {
+            signature.append(proto.isPackageFacade).append(proto.bytes.md5()).append(proto.strings.joinToString())
+        }
+        members.entries.sortedBy { it.key }.joinTo(signature)
+        signature.toString().toByteArray().md5()
+    }
+}
+
+// internal class name -> snapshot
+class JarAbiSnapshot(val classes: Map<String, ClassAbiSnapshot>)
+
+const val JAVA_CLASS_HEADER_KEY = "#header"
+
+object ClasspathAbiSnapshotter {
+    fun snapshotJar(jar: File): JarAbiSnapshot {
+        val classes = HashMap<String, ClassAbiSnapshot>()
+        ZipFile(jar).use { zip ->
+            for (entry in zip.entries()) {
+                val name = entry.name
+                if (entry.isDirectory || !name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+                    continue
+                }
+
+                val bytes = zip.getInputStream(entry).use { it.readBytes() }
+                val internalName = name.removeSuffix(".class")
+                snapshotClass(bytes)?.let { classes[internalName] = it }
+            }
+        }
+        return JarAbiSnapshot(classes)
+    }
+
+    // jars are independent, so they are snapshotted in parallel
+    fun snapshotJars(jars: Collection<File>): Map<File, JarAbiSnapshot> {
+        if (jars.size < 2) return jars.associateWith(::snapshotJar)
+
+        return jars.parallelStream()
+            .map { it to snapshotJar(it) }
+            .collect(Collectors.toList())
+            .toMap()
+    }
+
+    fun snapshotClass(bytes: ByteArray): ClassAbiSnapshot? {
+        val header = FileBasedKotlinClass.create(bytes) { _, _, header, _ -> header } ?: return snapshotJavaClass(bytes)
+        return when (header.kind) {
+            KotlinClassHeader.Kind.CLASS, KotlinClassHeader.Kind.FILE_FACADE, KotlinClassHeader.Kind.MULTIFILE_CLASS_PART ->
+                if (header.data != null && header.strings != null) snapshotKotlinClass(header, bytes) else snapshotJavaClass(bytes)
+            // synthetic classes and multifile facades have no ABI of their own
+            KotlinClassHeader.Kind.SYNTHETIC_CLASS, KotlinClassHeader.Kind.MULTIFILE_CLASS -> null
+            KotlinClassHeader.Kind.UNKNOWN -> snapshotJavaClass(bytes)
+        }
+    }
+
+    private fun snapshotKotlinClass(header: KotlinClassHeader, bytes: ByteArray): ClassAbiSnapshot {
+        val proto = ProtoMapValue(header.kind != KotlinClassHeader.Kind.CLASS, BitEncoding.decodeBytes(header.data!!), header.strings!!)
+        val inlineFunctions = inlineFunctionsJvmNames(header)
+        val members = HashMap<String, Long>()
+        var classVersion = -1
+
+        ClassReader(bytes).accept(object : ClassVisitor(Opcodes.API_VERSION) {
+            override fun visit(
+                version: Int, access: Int, name: String, signature: String?, superName: String?, interfaces: Array<out String>?
+            ) {
+                classVersion = version
+            }
+
+            override fun visitField(access: Int, name: String, desc: String, signature: String?, value: Any?): FieldVisitor? {
+                if (value != null && access and Opcodes.ACC_PRIVATE == 0) {
+                    members[name] = "$desc=$value".toByteArray().md5()
+                }
+                return null
+            }
+
+            override fun visitMethod(
+                access: Int, name: String, desc: String, signature: String?, exceptions: Array<out String>?
+            ): MethodVisitor? {
+                val jvmName = name + desc
+                if (jvmName !in inlineFunctions) return null
+
+                val methodWriter = ClassWriter(0)
+                methodWriter.visit(classVersion, 0, "dummy", null, "java/lang/Object", null)
+                return object : MethodVisitor(Opcodes.API_VERSION, methodWriter.visitMethod(access, name, desc, signature, exceptions)) {
+                    override fun visitEnd() {
+                        members[jvmName] = methodWriter.toByteArray().md5()
+                    }
+                }
+            }
+        }, ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES)
+
+        return ClassAbiSnapshot(proto, members)
+    }
+
+    private fun snapshotJavaClass(bytes: ByteArray): ClassAbiSnapshot? {
+        val header = StringBuilder()
+        val members = HashMap<String, MutableList<String>>()
+        var isPrivate = false
+
+        ClassReader(bytes).accept(object : ClassVisitor(Opcodes.API_VERSION) {
+            override fun visit(
+                version: Int, access: Int, name: String, signature: String?, superName: String?, interfaces: Array<out String>?
+            ) {
+                isPrivate = access and (Opcodes.ACC_PRIVATE or Opcodes.ACC_SYNTHETIC) != 0
+                header.append("$access|$signature|$superName|${interfaces?.joinToString()}")
+            }
+
+            override fun visitAnnotation(desc: String, visible: Boolean): AnnotationVisitor? {
+                header.append("|@").append(desc)
+                return null
+            }
+
+            override fun visitField(access: Int, name: String, desc: String, signature: String?, value: Any?): FieldVisitor? {
+                if (access and (Opcodes.ACC_PRIVATE or Opcodes.ACC_SYNTHETIC) != 0) return null
+
+                val member = StringBuilder("field|$access|$desc|$signature|$value")
+                return object : FieldVisitor(Opcodes.API_VERSION) {
+                    override fun visitAnnotation(desc: String, visible: Boolean): AnnotationVisitor? {
+                        member.append("|@").append(desc)
+                        return null
+                    }
+
+                    override fun visitEnd() {
+                        members.getOrPut(name, ::ArrayList).add(member.toString())
+                    }
+                }
+            }
+
+            override fun visitMethod(
+                access: Int, name: String, desc: String, signature: String?, exceptions: Array<out String>?
+            ): MethodVisitor? {
+                if (access and (Opcodes.ACC_PRIVATE or Opcodes.ACC_SYNTHETIC) != 0) return null
+
+                val member = StringBuilder("method|$access|$desc|$signature|${exceptions?.joinToString()}")
+                return object : MethodVisitor(Opcodes.API_VERSION) {
+                    // nullability annotations affect the types seen from Kotlin
+                    override fun visitAnnotation(desc: String, visible: Boolean): AnnotationVisitor? {
+                        member.append("|@").append(desc)
+                        return null
+                    }
+
+                    override fun visitParameterAnnotation(parameter: Int, desc: String, visible: Boolean): AnnotationVisitor? {
+                        member.append("|@$parameter").append(desc)
+                        return null
+                    }
+
+                    override fun visitAnnotationDefault(): AnnotationVisitor? {
+                        member.append("|default")
+                        return null
+                    }
+
+                    override fun visitEnd() {
+                        members.getOrPut(name, ::ArrayList).add(member.toString())
+                    }
+                }
+            }
+        }, ClassReader.SKIP_CODE or ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES)
+
+        if (isPrivate) return null
+
+        val hashes = members.mapValuesTo(HashMap()) { (_, signatures) -> signatures.sorted().joinToString("\n").toByteArray().md5() }
+        hashes[JAVA_CLASS_HEADER_KEY] = header.toString().toByteArray().md5()
+        return ClassAbiSnapshot(proto = null, members = hashes)
+    }
+
+    fun collectChanges(internalName: String, oldSnapshot: ClassAbiSnapshot?, newSnapshot: ClassAbiSnapshot?, collector: ChangesCollector) {
+        if (oldSnapshot?.hash == newSnapshot?.hash) return
+
+        val className = JvmClassName.byInternalName(internalName)
+        val classFqName = className.fqNameForClassNameWithoutDollars
+        val packageFqName = className.packageFqName
+        val oldProto = oldSnapshot?.proto
+        val newProto = newSnapshot?.proto
+        val oldMembers = oldSnapshot?.members.orEmpty()
+        val newMembers = newSnapshot?.members.orEmpty()
+
+        when {
+            oldProto == null && newProto == null -> {
+                if (oldMembers[JAVA_CLASS_HEADER_KEY] != newMembers[JAVA_CLASS_HEADER_KEY]) {
+                    collector.collectSignature(classFqName, areSubclassesAffected = true)
+                }
+                for (name in oldMembers.keys + newMembers.keys - JAVA_CLASS_HEADER_KEY) {
+                    collector.collectMemberIfValueWasChanged(classFqName, name, oldMembers[name], newMembers[name])
+                }
+            }
+            oldSnapshot != null && newSnapshot != null && (oldProto == null || newProto == null) -> {
+                // a Java class was replaced with a Kotlin one or vice versa
+                collector.collectSignature(classFqName, areSubclassesAffected = true)
+            }
+            else -> {
+                collector.collectProtoChanges(oldProto?.toProtoData(packageFqName), newProto?.toProtoData(packageFqName))
+
+                val isPackageFacade = (oldProto ?: newProto)!!.isPackageFacade
+                val scope = if (isPackageFacade) packageFqName else classFqName
+                for (key in oldMembers.keys + newMembers.keys) {
+                    collector.collectMemberIfValueWasChanged(scope, key.substringBefore('('), oldMembers[key], newMembers[key])
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental.snapshots
+
+import org.jetbrains.kotlin.incremental.ChangesCollector
+import org.jetbrains.kotlin.incremental.dumpMap
+import org.jetbrains.kotlin.incremental.md5
+import org.jetbrains.kotlin.incremental.storage.*
+import java.io.File
+
+// Stores ABI snapshots of classpath jars between builds, so that a changed jar can be diffed at class granularity
+// when the build history of the module producing it is not available.
+class ClasspathAbiSnapshotCache(workingDir: File) : BasicMapsOwner(workingDir) {
+    companion object {
+        private const val JAR_SNAPSHOTS = "jar-snapshot"
+        private const val CLASS_PROTOS = "class-proto"
+        private const val CLASS_MEMBERS = "class-members"
+
+        private const val LENGTH_KEY = "#length"
+        private const val LAST_MODIFIED_KEY = "#last-modified"
+    }
+
+    // jar path -> internal class name -> class ABI hash
+    private val jarSnapshots = registerMap(JarSnapshotMap(JAR_SNAPSHOTS.storageFile))
+    // jar path!internal class name -> class ABI
+    private val classProtos = registerMap(ClassProtoMap(CLASS_PROTOS.storageFile))
+    private val classMembers = registerMap(ClassMembersMap(CLASS_MEMBERS.storageFile))
+
+    fun hasSnapshot(jar: File): Boolean =
+        jarSnapshots[jar] != null
+
+    fun isUpToDate(jar: File): Boolean {
+        val hashes = jarSnapshots[jar] ?: return false
+        return hashes[LENGTH_KEY] == jar.length() && hashes[LAST_MODIFIED_KEY] == jar.lastModified()
+    }
+
+    // reports the differences of [snapshot] from the stored snapshot of the jar, the stored one is left intact
+    fun collectChanges(jar: File, snapshot: JarAbiSnapshot, changesCollector: ChangesCollector) {
+        val oldHashes = jarSnapshots[jar].orEmpty()
+
+        for ((internalName, classSnapshot) in snapshot.classes) {
+            if (oldHashes[internalName] == classSnapshot.hash) continue
+
+            val oldSnapshot = if (internalName in oldHashes) loadClassSnapshot(classKey(jar, internalName)) else null
+            ClasspathAbiSnapshotter.collectChanges(internalName, oldSnapshot, classSnapshot, changesCollector)
+        }
+
+        for (internalName in oldHashes.keys) {
+            if (internalName.isStampKey() || internalName in snapshot.classes) continue
+
+            ClasspathAbiSnapshotter.collectChanges(internalName, loadClassSnapshot(classKey(jar, internalName)), null, changesCollector)
+        }
+    }
+
+    // replaces the stored snapshot of the jar
+    fun update(jar: File, snapshot: JarAbiSnapshot) {
+        val oldHashes = jarSnapshots[jar].orEmpty()
+        val newHashes = HashMap<String, Long>(snapshot.classes.size + 2)
+        newHashes[LENGTH_KEY] = jar.length()
+        newHashes[LAST_MODIFIED_KEY] = jar.lastModified()
+
+        for ((internalName, classSnapshot) in snapshot.classes) {
+            val hash = classSnapshot.hash
+            newHashes[internalName] = hash
+            if (oldHashes[internalName] == hash) continue
+
+            val key = classKey(jar, internalName)
+            val proto = classSnapshot.proto
+            if (proto != null) classProtos[key] = proto else classProtos.remove(key)
+            classMembers[key] = classSnapshot.members
+        }
+
+        for (internalName in oldHashes.keys) {
+            if (internalName.isStampKey() || internalName in snapshot.classes) continue
+
+            val key = classKey(jar, internalName)
+            classProtos.remove(key)
+            classMembers.remove(key)
+        }
+
+        jarSnapshots[jar] = newHashes
+    }
+
+    private fun String.isStampKey(): Boolean =
+        this == LENGTH_KEY || this == LAST_MODIFIED_KEY
+
+    private fun loadClassSnapshot(key: String): ClassAbiSnapshot =
+        ClassAbiSnapshot(classProtos[key], classMembers[key].orEmpty())
+
+    private fun classKey(jar: File, internalName: String): String =
+        "${jar.canonicalPath}!$internalName"
+}
+
+private class JarSnapshotMap(storageFile: File) :
+    BasicStringMap<Map<String, Long>>(storageFile, PathStringDescriptor, StringToLongMapExternalizer) {
+
+    operator fun get(jar: File): Map<String, Long>? =
+        storage[jar.canonicalPath]
+
+    operator fun set(jar: File, hashes: Map<String, Long>) {
+        storage[jar.canonicalPath] = hashes
+    }
+
+    override fun dumpValue(value: Map<String, Long>): String =
+        value.dumpMap { java.lang.Long.toHexString(it) }
+}
+
+private class ClassProtoMap(storageFile: File) : BasicStringMap<ProtoMapValue>(storageFile, ProtoMapValueExternalizer) {
+    operator fun get(key: String): ProtoMapValue? =
+        storage[key]
+
+    operator fun set(key: String, value: ProtoMapValue) {
+        storage[key] = value
+    }
+
+    fun remove(key: String) {
+        storage.remove(key)
+    }
+
+    override fun dumpValue(value: ProtoMapValue): String =
+        (if (value.isPackageFacade) "1" else "0") + java.lang.Long.toHexString(value.bytes.md5())
+}
+
+private class ClassMembersMap(storageFile: File) : BasicStringMap<Map<String, Long>>(storageFile, StringToLongMapExternalizer) {
+    operator fun get(key: String): Map<String, Long>? =
+        storage[key]
+
+    operator fun set(key: String, members: Map<String, Long>) {
+        storage[key] = members
+    }
+
+    fun remove(key: String) {
+        storage.remove(key)
+    }
+
+    override fun dumpValue(value: Map<String, Long>): String =
+        value.dumpMap { java.lang.Long.toHexString(it) }
+}
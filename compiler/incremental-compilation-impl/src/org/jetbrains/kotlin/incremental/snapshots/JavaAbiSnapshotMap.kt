@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental.snapshots
+
+import org.jetbrains.kotlin.incremental.dumpMap
+import org.jetbrains.kotlin.incremental.storage.BasicMapsOwner
+import org.jetbrains.kotlin.incremental.storage.BasicStringMap
+import org.jetbrains.kotlin.incremental.storage.PathStringDescriptor
+import org.jetbrains.kotlin.incremental.storage.StringToLongMapExternalizer
+import java.io.File
+
+// Java source path -> ABI hashes of the classes declared in the file (see ChangedJavaFilesProcessor)
+class JavaAbiSnapshotMap(storageFile: File) :
+    BasicStringMap<Map<String, Long>>(storageFile, PathStringDescriptor, StringToLongMapExternalizer) {
+
+    operator fun get(file: File): Map<String, Long>? =
+        storage[file.canonicalPath]
+
+    operator fun set(file: File, hashes: Map<String, Long>) {
+        storage[file.canonicalPath] = hashes
+    }
+
+    fun remove(file: File) {
+        storage.remove(file.canonicalPath)
+    }
+
+    override fun dumpValue(value: Map<String, Long>): String =
+        value.dumpMap { java.lang.Long.toHexString(it) }
+}
+
+class JavaAbiSnapshotCache(workingDir: File) : BasicMapsOwner(workingDir) {
+    companion object {
+        private const val JAVA_ABI_SNAPSHOTS = "java-abi-snapshot"
+    }
+
+    val abiSnapshotMap = registerMap(JavaAbiSnapshotMap(JAVA_ABI_SNAPSHOTS.storageFile))
+}
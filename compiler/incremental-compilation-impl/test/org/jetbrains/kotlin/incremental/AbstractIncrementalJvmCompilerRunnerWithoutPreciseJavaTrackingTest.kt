@@ -0,0 +1,12 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental
+
+// changes of java files are detected by ChangedJavaFilesProcessor, as in Gradle builds with precise java tracking disabled
+abstract class AbstractIncrementalJvmCompilerRunnerWithoutPreciseJavaTrackingTest : AbstractIncrementalJvmCompilerRunnerTest() {
+    override val usePreciseJavaTracking: Boolean
+        get() = false
+}
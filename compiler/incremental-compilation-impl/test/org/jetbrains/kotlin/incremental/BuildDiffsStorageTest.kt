@@ -93,6 +93,137 @@ class BuildDiffsStorageTest {
         }
     }
 
+    @Test
+    fun appendAndReadSince() {
+        val generated = (1L..5L).map { BuildDifference(it, true, DirtyData(listOf(LookupSymbol("foo$it", "bar")), emptyList())) }
+        for (diff in generated) {
+            BuildDiffsStorage.appendToFile(storageFile, diff, reporter = null)
+        }
+
+        Assert.assertEquals(generated, BuildDiffsStorage.readFromFile(storageFile, reporter = null)?.buildDiffs)
+        Assert.assertEquals(
+            BuildDiffsSince(hasEarlierBuilds = true, buildDiffs = generated.drop(3)),
+            BuildDiffsStorage.readDiffsSince(storageFile, 3L, reporter = null)
+        )
+        Assert.assertEquals(
+            BuildDiffsSince(hasEarlierBuilds = false, buildDiffs = generated),
+            BuildDiffsStorage.readDiffsSince(storageFile, 0L, reporter = null)
+        )
+    }
+
+    @Test
+    fun appendAfterIncompatibleVersion() {
+        BuildDiffsStorage.writeToFile(storageFile, BuildDiffsStorage(listOf(getRandomDiff())), reporter = null)
+
+        val versionBackup = BuildDiffsStorage.CURRENT_VERSION
+        try {
+            BuildDiffsStorage.CURRENT_VERSION++
+            val diff = getRandomDiff()
+            BuildDiffsStorage.appendToFile(storageFile, diff, reporter = null)
+            Assert.assertEquals(listOf(diff), BuildDiffsStorage.readFromFile(storageFile, reporter = null)?.buildDiffs)
+        } finally {
+            BuildDiffsStorage.CURRENT_VERSION = versionBackup
+        }
+    }
+
+    @Test
+    fun truncatedRecordIsIgnored() {
+        val generated = (1L..3L).map { BuildDifference(it, true, DirtyData(listOf(LookupSymbol("foo", "bar")), emptyList())) }
+        BuildDiffsStorage.writeToFile(storageFile, BuildDiffsStorage(generated), reporter = null)
+        storageFile.writeBytes(storageFile.readBytes().let { it.copyOf(it.size - 3) })
+
+        Assert.assertEquals(generated.dropLast(1), BuildDiffsStorage.readFromFile(storageFile, reporter = null)?.buildDiffs)
+    }
+
+    @Test
+    fun recordTruncatedInLengthIsIgnored() {
+        val generated = (1L..3L).map { BuildDifference(it, true, DirtyData(listOf(LookupSymbol("foo", "bar")), emptyList())) }
+        BuildDiffsStorage.writeToFile(storageFile, BuildDiffsStorage(generated.dropLast(1)), reporter = null)
+        val completeBytes = storageFile.readBytes()
+        // only 2 of the 4 bytes of the next record length were written
+        storageFile.writeBytes(completeBytes + byteArrayOf(0, 0))
+
+        Assert.assertEquals(generated.dropLast(1), BuildDiffsStorage.readFromFile(storageFile, reporter = null)?.buildDiffs)
+        Assert.assertEquals(
+            BuildDiffsSince(hasEarlierBuilds = true, buildDiffs = generated.subList(1, 2)),
+            BuildDiffsStorage.readDiffsSince(storageFile, 1L, reporter = null)
+        )
+
+        // the partial record is replaced, the complete ones are kept
+        BuildDiffsStorage.appendToFile(storageFile, generated.last(), reporter = null)
+        Assert.assertEquals(generated, BuildDiffsStorage.readFromFile(storageFile, reporter = null)?.buildDiffs)
+    }
+
+    @Test
+    fun recordWithInvalidLengthIsIgnored() {
+        val generated = (1L..3L).map { BuildDifference(it, true, DirtyData(listOf(LookupSymbol("foo", "bar")), emptyList())) }
+        BuildDiffsStorage.writeToFile(storageFile, BuildDiffsStorage(generated.dropLast(1)), reporter = null)
+        val completeBytes = storageFile.readBytes()
+
+        for (length in listOf(-1, 0, Long.SIZE_BYTES - 1, Int.MAX_VALUE)) {
+            withFile(completeBytes + intBytes(length) + ByteArray(Long.SIZE_BYTES + 1)) { file ->
+                Assert.assertEquals(generated.dropLast(1), BuildDiffsStorage.readFromFile(file, reporter = null)?.buildDiffs)
+                Assert.assertEquals(
+                    BuildDiffsSince(hasEarlierBuilds = true, buildDiffs = generated.subList(1, 2)),
+                    BuildDiffsStorage.readDiffsSince(file, 1L, reporter = null)
+                )
+
+                // the damaged record is replaced, the complete ones are kept
+                BuildDiffsStorage.appendToFile(file, generated.last(), reporter = null)
+                Assert.assertEquals(generated, BuildDiffsStorage.readFromFile(file, reporter = null)?.buildDiffs)
+            }
+        }
+    }
+
+    @Test
+    fun recordWithInvalidContentIsNotUsed() {
+        val diff = BuildDifference(1L, true, DirtyData(listOf(LookupSymbol("foo", "bar")), emptyList()))
+        BuildDiffsStorage.writeToFile(storageFile, BuildDiffsStorage(listOf(diff)), reporter = null)
+        val bytes = storageFile.readBytes()
+        // header, record length, ts and isIncremental precede the number of lookup symbols
+        val countOffset = 2 * Int.SIZE_BYTES + Int.SIZE_BYTES + Long.SIZE_BYTES + 1
+
+        for (count in listOf(-1, Int.MAX_VALUE)) {
+            withFile(bytes.copyOf().also { intBytes(count).copyInto(it, countOffset) }) { file ->
+                Assert.assertNull(BuildDiffsStorage.readFromFile(file, reporter = null))
+                Assert.assertNull(BuildDiffsStorage.readDiffsSince(file, 0L, reporter = null))
+            }
+        }
+    }
+
+    @Test
+    fun compaction() {
+        val generated = (1L..BuildDiffsStorage.COMPACTION_THRESHOLD.toLong()).map {
+            BuildDifference(it, true, DirtyData(listOf(LookupSymbol("foo", "bar")), emptyList()))
+        }
+        for (diff in generated) {
+            BuildDiffsStorage.appendToFile(storageFile, diff, reporter = null)
+        }
+        val sizeBeforeCompaction = storageFile.length()
+
+        BuildDiffsStorage.compact(storageFile, reporter = null)
+
+        Assert.assertTrue(storageFile.length() < sizeBeforeCompaction)
+        Assert.assertEquals(
+            generated.takeLast(BuildDiffsStorage.MAX_DIFFS_ENTRIES),
+            BuildDiffsStorage.readFromFile(storageFile, reporter = null)?.buildDiffs
+        )
+    }
+
+    // parsed files are cached by their size and modification time, so every damaged content is written to a new file
+    private fun withFile(bytes: ByteArray, block: (File) -> Unit) {
+        val file = File.createTempFile("BuildDiffsStorageTest", "damaged")
+        try {
+            file.writeBytes(bytes)
+            block(file)
+        } finally {
+            file.delete()
+        }
+    }
+
+    private fun intBytes(value: Int): ByteArray =
+        byteArrayOf((value ushr 24).toByte(), (value ushr 16).toByte(), (value ushr 8).toByte(), value.toByte())
+
     private fun getRandomDiff(): BuildDifference {
         val ts = random.nextLong()
         val lookupSymbols = listOf(LookupSymbol("foo", "bar"))
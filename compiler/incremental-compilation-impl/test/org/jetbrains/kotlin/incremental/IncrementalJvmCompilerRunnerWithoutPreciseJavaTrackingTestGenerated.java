@@ -0,0 +1,45 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental;
+
+import com.intellij.testFramework.TestDataPath;
+import org.jetbrains.kotlin.test.JUnit3RunnerWithInners;
+import org.jetbrains.kotlin.test.KotlinTestUtils;
+import org.jetbrains.kotlin.test.TestMetadata;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+/** This class is generated by {@link org.jetbrains.kotlin.generators.tests.TestsPackage}. DO NOT MODIFY MANUALLY */
+@SuppressWarnings("all")
+@TestMetadata("jps-plugin/testData/incremental/withJavaWithoutPreciseTracking")
+@TestDataPath("$PROJECT_ROOT")
+@RunWith(JUnit3RunnerWithInners.class)
+public class IncrementalJvmCompilerRunnerWithoutPreciseJavaTrackingTestGenerated extends AbstractIncrementalJvmCompilerRunnerWithoutPreciseJavaTrackingTest {
+    private void runTest(String testDataFilePath) throws Exception {
+        KotlinTestUtils.runTest(this::doTest, this, testDataFilePath);
+    }
+
+    public void testAllFilesPresentInWithJavaWithoutPreciseTracking() throws Exception {
+        KotlinTestUtils.assertAllTestsPresentByMetadataWithExcluded(this.getClass(), new File("jps-plugin/testData/incremental/withJavaWithoutPreciseTracking"), Pattern.compile("^([^\\.]+)$"), null, false);
+    }
+
+    @TestMetadata("javaEnumEntryAdded")
+    public void testJavaEnumEntryAdded() throws Exception {
+        runTest("jps-plugin/testData/incremental/withJavaWithoutPreciseTracking/javaEnumEntryAdded/");
+    }
+
+    @TestMetadata("javaMethodBodyChanged")
+    public void testJavaMethodBodyChanged() throws Exception {
+        runTest("jps-plugin/testData/incremental/withJavaWithoutPreciseTracking/javaMethodBodyChanged/");
+    }
+
+    @TestMetadata("javaSuperclassMemberChanged")
+    public void testJavaSuperclassMemberChanged() throws Exception {
+        runTest("jps-plugin/testData/incremental/withJavaWithoutPreciseTracking/javaSuperclassMemberChanged/");
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental.snapshots
+
+import org.jetbrains.kotlin.TestWithWorkingDir
+import org.jetbrains.kotlin.incremental.ChangeInfo
+import org.jetbrains.kotlin.incremental.ChangesCollector
+import org.jetbrains.org.objectweb.asm.ClassWriter
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import kotlin.properties.Delegates
+
+class ClasspathAbiSnapshotCacheTest : TestWithWorkingDir() {
+    private class Method(val name: String, val desc: String, val access: Int = Opcodes.ACC_PUBLIC, val result: Int = 0)
+
+    private var cache: ClasspathAbiSnapshotCache by Delegates.notNull()
+    private var jar: File by Delegates.notNull()
+
+    @Before
+    override fun setUp() {
+        super.setUp()
+        cache = ClasspathAbiSnapshotCache(File(workingDir, "caches").apply { mkdirs() })
+        jar = File(workingDir, "lib.jar")
+    }
+
+    @After
+    override fun tearDown() {
+        cache.flush(false)
+        cache.close()
+        super.tearDown()
+    }
+
+    @Test
+    fun testMethodBodyChange() {
+        snapshot(mapOf("foo/A" to listOf(Method("a", "()I", result = 1))))
+        val changes = snapshot(mapOf("foo/A" to listOf(Method("a", "()I", result = 2))))
+        assertTrue("Unexpected changes: $changes", changes.isEmpty())
+    }
+
+    @Test
+    fun testPrivateMethodAdded() {
+        snapshot(mapOf("foo/A" to listOf(Method("a", "()I"))))
+        val changes = snapshot(mapOf("foo/A" to listOf(Method("a", "()I"), Method("b", "()I", Opcodes.ACC_PRIVATE))))
+        assertTrue("Unexpected changes: $changes", changes.isEmpty())
+    }
+
+    @Test
+    fun testMethodSignatureChange() {
+        snapshot(mapOf("foo/A" to listOf(Method("a", "()I"), Method("b", "()I")), "foo/B" to listOf(Method("c", "()I"))))
+        val changes = snapshot(mapOf("foo/A" to listOf(Method("a", "()J"), Method("b", "()I")), "foo/B" to listOf(Method("c", "()I"))))
+        assertEquals(listOf("MembersChanged(fqName = foo.A, names = [a])"), changes)
+    }
+
+    @Test
+    fun testClassRemoved() {
+        snapshot(mapOf("foo/A" to listOf(Method("a", "()I")), "foo/B" to listOf(Method("b", "()I"))))
+        val changes = snapshot(mapOf("foo/A" to listOf(Method("a", "()I"))))
+        assertEquals(listOf("Removed(fqName = foo.B, names = [b])", "SignatureChanged(fqName = foo.B)"), changes)
+    }
+
+    @Test
+    fun testChangesAreNotStoredUntilUpdate() {
+        snapshot(mapOf("foo/A" to listOf(Method("a", "()I"))))
+        writeJar(mapOf("foo/A" to listOf(Method("a", "()J"))))
+        val newSnapshot = ClasspathAbiSnapshotter.snapshotJar(jar)
+
+        // e.g. the build failed after the changes detection, the next build should see the same changes
+        repeat(2) {
+            assertEquals(listOf("MembersChanged(fqName = foo.A, names = [a])"), collectChanges(newSnapshot))
+        }
+
+        cache.update(jar, newSnapshot)
+        assertTrue(collectChanges(newSnapshot).isEmpty())
+    }
+
+    private fun snapshot(classes: Map<String, List<Method>>): List<String> {
+        writeJar(classes)
+        val snapshot = ClasspathAbiSnapshotter.snapshotJar(jar)
+        val changes = collectChanges(snapshot)
+        cache.update(jar, snapshot)
+        return changes
+    }
+
+    private fun collectChanges(snapshot: JarAbiSnapshot): List<String> {
+        val collector = ChangesCollector()
+        cache.collectChanges(jar, snapshot, collector)
+        return collector.changes().map(ChangeInfo::toString).sorted()
+    }
+
+    private fun writeJar(classes: Map<String, List<Method>>) {
+        ZipOutputStream(jar.outputStream()).use { zip ->
+            for ((internalName, methods) in classes) {
+                zip.putNextEntry(ZipEntry("$internalName.class"))
+                zip.write(classBytes(internalName, methods))
+                zip.closeEntry()
+            }
+        }
+    }
+
+    private fun classBytes(internalName: String, methods: List<Method>): ByteArray {
+        val writer = ClassWriter(ClassWriter.COMPUTE_MAXS)
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC or Opcodes.ACC_SUPER, internalName, null, "java/lang/Object", null)
+        for (method in methods) {
+            val visitor = writer.visitMethod(method.access, method.name, method.desc, null, null)
+            visitor.visitCode()
+            if (method.desc.endsWith("J")) {
+                visitor.visitLdcInsn(method.result.toLong())
+                visitor.visitInsn(Opcodes.LRETURN)
+            } else {
+                visitor.visitLdcInsn(method.result)
+                visitor.visitInsn(Opcodes.IRETURN)
+            }
+            visitor.visitMaxs(0, 0)
+            visitor.visitEnd()
+        }
+        writer.visitEnd()
+        return writer.toByteArray()
+    }
+}
@@ -10,6 +10,7 @@ import org.jetbrains.kotlin.backend.common.ir.Ir
 import org.jetbrains.kotlin.backend.common.ir.Symbols
 import org.jetbrains.kotlin.builtins.PrimitiveType
 import org.jetbrains.kotlin.config.CompilerConfiguration
+import org.jetbrains.kotlin.config.CompilerConfigurationKey
 import org.jetbrains.kotlin.descriptors.*
 import org.jetbrains.kotlin.descriptors.impl.EmptyPackageFragmentDescriptor
 import org.jetbrains.kotlin.incremental.components.NoLookupLocation
@@ -33,6 +34,9 @@ import org.jetbrains.kotlin.name.FqName
 import org.jetbrains.kotlin.name.Name
 import org.jetbrains.kotlin.resolve.scopes.MemberScope
 import org.jetbrains.kotlin.types.Variance
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
 
 class JsIrBackendContext(
     val module: ModuleDescriptor,
@@ -60,6 +64,30 @@ class JsIrBackendContext(
 
     val devMode = configuration[JSConfigurationKeys.DEVELOPER_MODE] ?: false
 
+    private val loweringExecutorDelegate = executorDelegate(JSConfigurationKeys.LOWERING_THREADS, "JS IR lowering")
+    private val translationExecutorDelegate = executorDelegate(JSConfigurationKeys.TRANSLATION_THREADS, "JS IR translation")
+
+    // Shared by all concurrently run lowerings of the compilation, null if lowerings are run sequentially
+    val loweringExecutor: ExecutorService? by loweringExecutorDelegate
+
+    // Shared by all concurrent translations of the compilation (e.g. full and DCE output), null if files are translated sequentially
+    val translationExecutor: ExecutorService? by translationExecutorDelegate
+
+    fun shutdownExecutors() {
+        for (delegate in listOf(loweringExecutorDelegate, translationExecutorDelegate)) {
+            if (delegate.isInitialized()) delegate.value?.shutdownNow()
+        }
+    }
+
+    private fun executorDelegate(threadsKey: CompilerConfigurationKey<Int>, name: String) = lazy {
+        val threads = configuration[threadsKey] ?: 1
+        if (threads > 1) Executors.newFixedThreadPool(threads, daemonThreadFactory(name)) else null
+    }
+
+    private fun daemonThreadFactory(name: String) = ThreadFactory { runnable ->
+        Thread(runnable, name).apply { isDaemon = true }
+    }
+
     val externalPackageFragment = mutableMapOf<IrFileSymbol, IrFile>()
     val externalDeclarations = hashSetOf<IrDeclaration>()
 
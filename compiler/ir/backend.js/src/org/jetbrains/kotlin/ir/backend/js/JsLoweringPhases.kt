@@ -24,6 +24,9 @@ import org.jetbrains.kotlin.ir.backend.js.lower.inline.CopyInlineFunctionBodyLow
 import org.jetbrains.kotlin.ir.backend.js.lower.inline.RemoveInlineFunctionsWithReifiedTypeParametersLowering
 import org.jetbrains.kotlin.ir.declarations.IrFile
 import org.jetbrains.kotlin.ir.declarations.IrModuleFragment
+import org.jetbrains.kotlin.ir.declarations.StageController
+import org.jetbrains.kotlin.ir.declarations.stageController
+import java.util.concurrent.ExecutionException
 
 private fun DeclarationContainerLoweringPass.runOnFilesPostfix(files: Iterable<IrFile>) = files.forEach { runOnFilePostfix(it) }
 
@@ -41,6 +44,45 @@ private fun makeJsModulePhase(
     prerequisite = prerequisite
 )
 
+// File-local lowerings only touch declarations of the file they are run on,
+// so files of a module can be lowered concurrently, each with its own lowering instance.
+// They must not depend on the state of the lowering instance, so that the result is the same as when lowering sequentially
+private fun makeFileLocalJsModulePhase(
+    lowering: (JsIrBackendContext) -> FileLoweringPass,
+    name: String,
+    description: String,
+    prerequisite: Set<NamedCompilerPhase<JsIrBackendContext, *>> = emptySet()
+): NamedCompilerPhase<JsIrBackendContext, Iterable<IrModuleFragment>> = makeCustomJsModulePhase(
+    op = { context, module -> lowerFilesConcurrently(context, module.files, lowering) },
+    name = name,
+    description = description,
+    prerequisite = prerequisite
+)
+
+private fun lowerFilesConcurrently(
+    context: JsIrBackendContext,
+    files: List<IrFile>,
+    lowering: (JsIrBackendContext) -> FileLoweringPass
+) {
+    val executor = context.loweringExecutor
+    // Other stage controllers (e.g. the DCE-driven MutableController) keep the current stage as mutable global state
+    if (executor == null || files.size <= 1 || stageController.javaClass != StageController::class.java) {
+        val pass = lowering(context)
+        files.forEach { pass.lower(it) }
+        return
+    }
+
+    files.map { file ->
+        executor.submit { lowering(context).lower(file) }
+    }.forEach {
+        try {
+            it.get()
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
+    }
+}
+
 private fun makeCustomJsModulePhase(
     op: (JsIrBackendContext, IrModuleFragment) -> Unit,
     description: String,
@@ -95,13 +137,18 @@ class BodyLowering(
     name: String,
     description: String,
     prerequisite: Set<NamedCompilerPhase<JsIrBackendContext, *>> = emptySet(),
+    val isFileLocal: Boolean = false,
     private val factory: (JsIrBackendContext) -> BodyLoweringPass
 ) : Lowering(name) {
     fun bodyLowering(context: JsIrBackendContext): BodyLoweringPass {
         return factory(context)
     }
 
-    override val modulePhase = makeJsModulePhase(factory, name, description, prerequisite)
+    override val modulePhase =
+        if (isFileLocal)
+            makeFileLocalJsModulePhase(factory, name, description, prerequisite)
+        else
+            makeJsModulePhase(factory, name, description, prerequisite)
 }
 
 class ModuleLowering(
@@ -120,8 +167,9 @@ private fun makeBodyLoweringPhase(
     lowering: (JsIrBackendContext) -> BodyLoweringPass,
     name: String,
     description: String,
-    prerequisite: Set<Lowering> = emptySet()
-) = BodyLowering(name, description, prerequisite.map { it.modulePhase }.toSet(), lowering)
+    prerequisite: Set<Lowering> = emptySet(),
+    isFileLocal: Boolean = false
+) = BodyLowering(name, description, prerequisite.map { it.modulePhase }.toSet(), isFileLocal, lowering)
 
 fun NamedCompilerPhase<JsIrBackendContext, Iterable<IrModuleFragment>>.toModuleLowering() = ModuleLowering(this.name, this)
 
@@ -465,7 +513,8 @@ private val varargLoweringPhase = makeBodyLoweringPhase(
     ::VarargLowering,
     name = "VarargLowering",
     description = "Lower vararg arguments",
-    prerequisite = setOf(interopCallableReferenceLoweringPhase)
+    prerequisite = setOf(interopCallableReferenceLoweringPhase),
+    isFileLocal = true
 )
 
 private val propertiesLoweringPhase = makeDeclarationTransformerPhase(
@@ -511,7 +560,8 @@ private val initializersCleanupLoweringPhase = makeDeclarationTransformerPhase(
 private val multipleCatchesLoweringPhase = makeBodyLoweringPhase(
     ::MultipleCatchesLowering,
     name = "MultipleCatchesLowering",
-    description = "Replace multiple catches with single one"
+    description = "Replace multiple catches with single one",
+    isFileLocal = true
 )
 
 private val bridgesConstructionPhase = makeDeclarationTransformerPhase(
@@ -535,7 +585,8 @@ private val typeOperatorLoweringPhase = makeBodyLoweringPhase(
         bridgesConstructionPhase,
         removeInlineFunctionsWithReifiedTypeParametersLoweringPhase,
         singleAbstractMethodPhase
-    )
+    ),
+    isFileLocal = true
 )
 
 private val es6AddInternalParametersToConstructorPhase = makeBodyLoweringPhase(
@@ -580,14 +631,16 @@ private val inlineClassUsageLoweringPhase = makeBodyLoweringPhase(
 private val autoboxingTransformerPhase = makeBodyLoweringPhase(
     ::AutoboxingTransformer,
     name = "AutoboxingTransformer",
-    description = "Insert box/unbox intrinsics"
+    description = "Insert box/unbox intrinsics",
+    isFileLocal = true
 )
 
 private val blockDecomposerLoweringPhase = makeBodyLoweringPhase(
     ::JsBlockDecomposerLowering,
     name = "BlockDecomposerLowering",
     description = "Transform statement-like-expression nodes into pure-statement to make it easily transform into JS",
-    prerequisite = setOf(typeOperatorLoweringPhase, suspendFunctionsLoweringPhase)
+    prerequisite = setOf(typeOperatorLoweringPhase, suspendFunctionsLoweringPhase),
+    isFileLocal = true
 )
 
 private val classReferenceLoweringPhase = makeBodyLoweringPhase(
@@ -605,7 +658,8 @@ private val primitiveCompanionLoweringPhase = makeBodyLoweringPhase(
 private val constLoweringPhase = makeBodyLoweringPhase(
     ::ConstLowering,
     name = "ConstLowering",
-    description = "Wrap Long and Char constants into constructor invocation"
+    description = "Wrap Long and Char constants into constructor invocation",
+    isFileLocal = true
 )
 
 private val callsLoweringPhase = makeBodyLoweringPhase(
@@ -641,7 +695,8 @@ private val captureStackTraceInThrowablesPhase = makeBodyLoweringPhase(
 private val cleanupLoweringPhase = makeBodyLoweringPhase(
     { CleanupLowering() },
     name = "CleanupLowering",
-    description = "Clean up IR before codegen"
+    description = "Clean up IR before codegen",
+    isFileLocal = true
 )
 
 val loweringList = listOf<Lowering>(
@@ -9,8 +9,12 @@ import com.intellij.openapi.project.Project
 import org.jetbrains.kotlin.analyzer.AbstractAnalyzerWithCompilerReport
 import org.jetbrains.kotlin.backend.common.phaser.PhaseConfig
 import org.jetbrains.kotlin.backend.common.phaser.invokeToplevel
+import org.jetbrains.kotlin.config.CommonConfigurationKeys
 import org.jetbrains.kotlin.config.CompilerConfiguration
 import org.jetbrains.kotlin.config.languageVersionSettings
+import org.jetbrains.kotlin.incremental.components.ExpectActualTracker
+import org.jetbrains.kotlin.incremental.components.LookupTracker
+import org.jetbrains.kotlin.ir.backend.js.ic.JsIrBuildCache
 import org.jetbrains.kotlin.ir.backend.js.lower.generateTests
 import org.jetbrains.kotlin.ir.backend.js.lower.moveBodilessDeclarationsToSeparatePlace
 import org.jetbrains.kotlin.ir.backend.js.transformers.irToJs.IrModuleToJsTransformer
@@ -21,6 +25,7 @@ import org.jetbrains.kotlin.ir.declarations.persistent.PersistentIrFactory
 import org.jetbrains.kotlin.ir.declarations.stageController
 import org.jetbrains.kotlin.ir.util.ExternalDependenciesGenerator
 import org.jetbrains.kotlin.ir.util.noUnboundLeft
+import org.jetbrains.kotlin.js.config.JSConfigurationKeys
 import org.jetbrains.kotlin.library.KotlinLibrary
 import org.jetbrains.kotlin.library.resolver.KotlinLibraryResolveResult
 import org.jetbrains.kotlin.name.FqName
@@ -48,7 +53,69 @@ fun compile(
     dceDriven: Boolean = false,
     es6mode: Boolean = false,
     multiModule: Boolean = false,
-    relativeRequirePath: Boolean = false
+    relativeRequirePath: Boolean = false,
+    buildCache: JsIrBuildCache? = null
+): CompilerResult {
+    val doCompile = {
+        compileWithoutCache(
+            project, mainModule, analyzer, configuration, phaseConfig, allDependencies, friendDependencies, mainArguments,
+            exportedDeclarations, generateFullJs, generateDceJs, dceDriven, es6mode, multiModule, relativeRequirePath
+        )
+    }
+
+    if (buildCache == null || hasSideEffectsBesidesOutput(configuration, phaseConfig)) return doCompile()
+
+    val fingerprint = buildCache.fingerprint(
+        mainModule,
+        allDependencies.getFullList(),
+        friendDependencies,
+        listOf(
+            mainArguments, exportedDeclarations.sortedBy { it.asString() },
+            generateFullJs, generateDceJs, dceDriven, es6mode, multiModule, relativeRequirePath
+        )
+    )
+
+    val cachedResult = buildCache.load(fingerprint) ?: return doCompile().also { buildCache.store(fingerprint, it) }
+
+    // The cached output is only valid for error-free sources, but warnings still have to be reported on every build
+    if (mainModule is MainModule.SourceFiles) {
+        runFrontendAnalysis(project, mainModule, analyzer, configuration, allDependencies, friendDependencies)
+    }
+
+    return cachedResult
+}
+
+/**
+ * Whether the compilation has side effects other than the output, so that it must not be served from [JsIrBuildCache].
+ */
+private fun hasSideEffectsBesidesOutput(configuration: CompilerConfiguration, phaseConfig: PhaseConfig): Boolean {
+    val hasIncrementalConsumers = configuration[JSConfigurationKeys.INCREMENTAL_DATA_PROVIDER] != null ||
+            configuration[JSConfigurationKeys.INCREMENTAL_RESULTS_CONSUMER] != null ||
+            configuration[JSConfigurationKeys.INCREMENTAL_NEXT_ROUND_CHECKER] != null
+    val hasTrackers = (configuration[CommonConfigurationKeys.LOOKUP_TRACKER] ?: LookupTracker.DO_NOTHING) != LookupTracker.DO_NOTHING ||
+            (configuration[CommonConfigurationKeys.EXPECT_ACTUAL_TRACKER] ?: ExpectActualTracker.DoNothing) != ExpectActualTracker.DoNothing
+    val hasPhaseSideEffects = phaseConfig.verbose.isNotEmpty() || phaseConfig.needProfiling ||
+            phaseConfig.toDumpStateBefore.isNotEmpty() || phaseConfig.toDumpStateAfter.isNotEmpty()
+
+    return hasIncrementalConsumers || hasTrackers || hasPhaseSideEffects || configuration.getBoolean(JSConfigurationKeys.PRINT_REACHABILITY_INFO)
+}
+
+private fun compileWithoutCache(
+    project: Project,
+    mainModule: MainModule,
+    analyzer: AbstractAnalyzerWithCompilerReport,
+    configuration: CompilerConfiguration,
+    phaseConfig: PhaseConfig,
+    allDependencies: KotlinLibraryResolveResult,
+    friendDependencies: List<KotlinLibrary>,
+    mainArguments: List<String>?,
+    exportedDeclarations: Set<FqName>,
+    generateFullJs: Boolean,
+    generateDceJs: Boolean,
+    dceDriven: Boolean,
+    es6mode: Boolean,
+    multiModule: Boolean,
+    relativeRequirePath: Boolean
 ): CompilerResult {
     stageController = StageController()
 
@@ -64,51 +131,55 @@ fun compile(
 
     val context = JsIrBackendContext(moduleDescriptor, irBuiltIns, symbolTable, allModules.first(), exportedDeclarations, configuration, es6mode = es6mode)
 
-    // Load declarations referenced during `context` initialization
-    val irProviders = listOf(deserializer)
-    ExternalDependenciesGenerator(symbolTable, irProviders, configuration.languageVersionSettings).generateUnboundSymbolsAsDependencies()
-
-    deserializer.postProcess()
-    symbolTable.noUnboundLeft("Unbound symbols at the end of linker")
-
-    allModules.forEach { module ->
-        moveBodilessDeclarationsToSeparatePlace(context, module)
-    }
-
-    // TODO should be done incrementally
-    generateTests(context, allModules.last())
-
-    if (dceDriven) {
-        val controller = MutableController(context, pirLowerings)
-        stageController = controller
-
-        controller.currentStage = controller.lowerings.size + 1
-
-        eliminateDeadDeclarations(allModules, context)
-
-        // TODO investigate whether this is needed anymore
-        stageController = StageController(controller.currentStage)
-
-        val transformer = IrModuleToJsTransformer(
-            context,
-            mainArguments,
-            fullJs = true,
-            dceJs = false,
-            multiModule = multiModule,
-            relativeRequirePath = relativeRequirePath
-        )
-        return transformer.generateModule(allModules)
-    } else {
-        jsPhases.invokeToplevel(phaseConfig, context, allModules)
-        val transformer = IrModuleToJsTransformer(
-            context,
-            mainArguments,
-            fullJs = generateFullJs,
-            dceJs = generateDceJs,
-            multiModule = multiModule,
-            relativeRequirePath = relativeRequirePath
-        )
-        return transformer.generateModule(allModules)
+    try {
+        // Load declarations referenced during `context` initialization
+        val irProviders = listOf(deserializer)
+        ExternalDependenciesGenerator(symbolTable, irProviders, configuration.languageVersionSettings).generateUnboundSymbolsAsDependencies()
+
+        deserializer.postProcess()
+        symbolTable.noUnboundLeft("Unbound symbols at the end of linker")
+
+        allModules.forEach { module ->
+            moveBodilessDeclarationsToSeparatePlace(context, module)
+        }
+
+        // TODO should be done incrementally
+        generateTests(context, allModules.last())
+
+        if (dceDriven) {
+            val controller = MutableController(context, pirLowerings)
+            stageController = controller
+
+            controller.currentStage = controller.lowerings.size + 1
+
+            eliminateDeadDeclarations(allModules, context)
+
+            // TODO investigate whether this is needed anymore
+            stageController = StageController(controller.currentStage)
+
+            val transformer = IrModuleToJsTransformer(
+                context,
+                mainArguments,
+                fullJs = true,
+                dceJs = false,
+                multiModule = multiModule,
+                relativeRequirePath = relativeRequirePath
+            )
+            return transformer.generateModule(allModules)
+        } else {
+            jsPhases.invokeToplevel(phaseConfig, context, allModules)
+            val transformer = IrModuleToJsTransformer(
+                context,
+                mainArguments,
+                fullJs = generateFullJs,
+                dceJs = generateDceJs,
+                multiModule = multiModule,
+                relativeRequirePath = relativeRequirePath
+            )
+            return transformer.generateModule(allModules)
+        }
+    } finally {
+        context.shutdownExecutors()
     }
 }
 
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.ir.backend.js.ic
+
+import org.jetbrains.kotlin.config.KotlinCompilerVersion
+import org.jetbrains.kotlin.ir.backend.js.CompilerResult
+import org.jetbrains.kotlin.ir.backend.js.JsCode
+import org.jetbrains.kotlin.ir.backend.js.MainModule
+import org.jetbrains.kotlin.library.KotlinLibrary
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+
+/**
+ * Persistent cache of the JS IR backend output.
+ *
+ * Every library is fingerprinted by the hash of its klib contents. Library fingerprints are memoized per klib
+ * (keyed by its path, size and modification stamp), so that unchanged libraries are not re-hashed on every invocation.
+ * Source files of the main module are fingerprinted by their text.
+ *
+ * The caller supplies all settings the output depends on as [compilerSettings], e.g. the complete list of compiler
+ * arguments, and the classpath of the loaded compiler plugins as [pluginClasspath]. Plugin jars are fingerprinted
+ * by their contents the same way as libraries, since plugins can change the generated code arbitrarily.
+ *
+ * When the combined fingerprint of all inputs matches the stored one, the previously generated JS is returned
+ * and IR loading, lowering and JS generation are skipped altogether. The frontend still has to run on a hit to report
+ * diagnostics, see [org.jetbrains.kotlin.ir.backend.js.compile].
+ *
+ * The cache is whole-output: any change of the inputs results in a full recompilation, and compilations driven
+ * by the incremental compilation (with lookup trackers or incremental data consumers) don't use it at all.
+ * Reusing the output of unchanged libraries or files would require persisting lowered IR and name tables,
+ * which the JS IR backend doesn't support yet.
+ */
+class JsIrBuildCache(
+    cacheDir: File,
+    private val compilerSettings: List<String>,
+    private val pluginClasspath: List<File>
+) {
+    private val librariesDir = File(cacheDir, "libraries")
+    private val outputDir = File(cacheDir, "output")
+    private val fingerprintFile = File(outputDir, "fingerprint")
+
+    fun fingerprint(
+        mainModule: MainModule,
+        libraries: List<KotlinLibrary>,
+        friendLibraries: List<KotlinLibrary>,
+        options: List<Any?>
+    ): String {
+        val digest = MessageDigest.getInstance("MD5")
+
+        digest.update(KotlinCompilerVersion.VERSION)
+        compilerSettings.forEach { digest.update(it) }
+        options.forEach { digest.update(it.toString()) }
+
+        for (pluginFile in pluginClasspath) {
+            digest.update(pluginFile.name)
+            digest.update(fileFingerprint(pluginFile))
+        }
+
+        for (library in libraries) {
+            digest.update(library.libraryName)
+            digest.update(fileFingerprint(File(library.libraryFile.absolutePath)))
+        }
+
+        friendLibraries.map { File(it.libraryFile.absolutePath).absolutePath }.sorted().forEach { digest.update(it) }
+
+        when (mainModule) {
+            is MainModule.SourceFiles -> mainModule.files.sortedBy { it.virtualFilePath }.forEach {
+                digest.update(it.virtualFilePath)
+                digest.update(it.text)
+            }
+            is MainModule.Klib -> digest.update(fileFingerprint(File(mainModule.lib.libraryFile.absolutePath)))
+        }
+
+        return digest.digest().toHexString()
+    }
+
+    fun load(fingerprint: String): CompilerResult? {
+        if (!fingerprintFile.exists()) return null
+
+        return try {
+            val lines = fingerprintFile.readLines()
+            if (lines.firstOrNull() != fingerprint) return null
+            val storedParts = lines.drop(1).toSet()
+
+            CompilerResult(
+                if (FULL_JS_DIR in storedParts) loadJsCode(File(outputDir, FULL_JS_DIR)) else null,
+                if (DCE_JS_DIR in storedParts) loadJsCode(File(outputDir, DCE_JS_DIR)) else null,
+                if (TS_DEFINITIONS_FILE in storedParts) File(outputDir, TS_DEFINITIONS_FILE).readText() else null
+            )
+        } catch (e: IOException) {
+            // Some of the stored files are missing or unreadable, e.g. the cache directory was partially cleaned up
+            null
+        }
+    }
+
+    fun store(fingerprint: String, result: CompilerResult) {
+        outputDir.deleteRecursively()
+        outputDir.mkdirs()
+
+        val storedParts = mutableListOf<String>()
+        result.jsCode?.let {
+            storeJsCode(File(outputDir, FULL_JS_DIR), it)
+            storedParts.add(FULL_JS_DIR)
+        }
+        result.dceJsCode?.let {
+            storeJsCode(File(outputDir, DCE_JS_DIR), it)
+            storedParts.add(DCE_JS_DIR)
+        }
+        result.tsDefinitions?.let {
+            File(outputDir, TS_DEFINITIONS_FILE).writeText(it)
+            storedParts.add(TS_DEFINITIONS_FILE)
+        }
+
+        // Written last, so that an interrupted store never leaves a valid-looking cache behind
+        fingerprintFile.writeText((listOf(fingerprint) + storedParts).joinToString("\n"))
+    }
+
+    // A klib or a plugin jar, which can be either a file or a directory
+    private fun fileFingerprint(file: File): String {
+        val stamp = "${file.absolutePath}:${file.totalLength()}:${file.lastModifiedRecursively()}"
+
+        val memoFile = File(librariesDir, MessageDigest.getInstance("MD5").apply { update(file.absolutePath) }.digest().toHexString())
+        if (memoFile.exists()) {
+            val (cachedStamp, cachedHash) = memoFile.readLines().takeIf { it.size == 2 } ?: listOf("", "")
+            if (cachedStamp == stamp) return cachedHash
+        }
+
+        val digest = MessageDigest.getInstance("MD5")
+        file.walkTopDown().filter { it.isFile }.sortedBy { it.path }.forEach { entry ->
+            digest.update(entry.relativeTo(file).path)
+            entry.inputStream().use { input ->
+                val buffer = ByteArray(8192)
+                while (true) {
+                    val len = input.read(buffer)
+                    if (len < 0) break
+                    digest.update(buffer, 0, len)
+                }
+            }
+        }
+        val hash = digest.digest().toHexString()
+
+        librariesDir.mkdirs()
+        memoFile.writeText("$stamp\n$hash")
+        return hash
+    }
+
+    private fun loadJsCode(dir: File): JsCode {
+        val dependencies = File(dir, DEPENDENCIES_FILE).readLines().filter { it.isNotEmpty() }.mapIndexed { index, name ->
+            name to File(dir, "$index.js").readText()
+        }
+
+        return JsCode(File(dir, MAIN_MODULE_FILE).readText(), dependencies)
+    }
+
+    private fun storeJsCode(dir: File, jsCode: JsCode) {
+        dir.mkdirs()
+        File(dir, MAIN_MODULE_FILE).writeText(jsCode.mainModule)
+
+        val names = jsCode.dependencies.mapIndexed { index, (name, content) ->
+            File(dir, "$index.js").writeText(content)
+            name
+        }
+        File(dir, DEPENDENCIES_FILE).writeText(names.joinToString("\n"))
+    }
+
+    private fun File.totalLength(): Long = walkTopDown().filter { it.isFile }.map { it.length() }.sum()
+
+    private fun File.lastModifiedRecursively(): Long = walkTopDown().map { it.lastModified() }.maxOrNull() ?: 0L
+
+    private fun MessageDigest.update(value: String) {
+        update(value.toByteArray())
+        // Separator, so that ("ab", "c") and ("a", "bc") do not collide
+        update(0)
+    }
+
+    private fun ByteArray.toHexString(): String = joinToString("") { "%02x".format(it) }
+
+    companion object {
+        private const val FULL_JS_DIR = "full"
+        private const val DCE_JS_DIR = "dce"
+        private const val MAIN_MODULE_FILE = "main.js"
+        private const val DEPENDENCIES_FILE = "dependencies"
+        private const val TS_DEFINITIONS_FILE = "module.d.ts"
+    }
+}
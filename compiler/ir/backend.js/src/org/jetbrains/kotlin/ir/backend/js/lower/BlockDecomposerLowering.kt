@@ -115,6 +115,7 @@ class BlockDecomposerTransformer(
 
     override fun visitScript(declaration: IrScript): IrStatement {
         function = declaration
+        tmpVarCounter = 0
 
         with(declaration) {
             val transformedDeclarations = declarations.map { it.transform(statementTransformer, null) as IrDeclaration }
@@ -5,6 +5,7 @@
 
 package org.jetbrains.kotlin.ir.backend.js.transformers.irToJs
 
+import org.jetbrains.kotlin.ir.IrElement
 import org.jetbrains.kotlin.ir.backend.js.CompilerResult
 import org.jetbrains.kotlin.ir.backend.js.JsCode
 import org.jetbrains.kotlin.ir.backend.js.JsIrBackendContext
@@ -15,14 +16,17 @@ import org.jetbrains.kotlin.ir.backend.js.export.ExportedModule
 import org.jetbrains.kotlin.ir.backend.js.export.toTypeScript
 import org.jetbrains.kotlin.ir.backend.js.lower.StaticMembersLowering
 import org.jetbrains.kotlin.ir.backend.js.utils.*
-import org.jetbrains.kotlin.ir.declarations.IrDeclarationWithName
-import org.jetbrains.kotlin.ir.declarations.IrModuleFragment
-import org.jetbrains.kotlin.ir.declarations.IrSimpleFunction
-import org.jetbrains.kotlin.ir.declarations.path
+import org.jetbrains.kotlin.ir.declarations.*
 import org.jetbrains.kotlin.ir.symbols.IrClassSymbol
+import org.jetbrains.kotlin.ir.util.constructedClass
+import org.jetbrains.kotlin.ir.visitors.IrElementVisitorVoid
+import org.jetbrains.kotlin.ir.visitors.acceptChildrenVoid
+import org.jetbrains.kotlin.ir.visitors.acceptVoid
 import org.jetbrains.kotlin.js.backend.ast.*
 import org.jetbrains.kotlin.js.config.JSConfigurationKeys
 import org.jetbrains.kotlin.utils.DFS
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
 
 class IrModuleToJsTransformer(
     private val backendContext: JsIrBackendContext,
@@ -36,6 +40,9 @@ class IrModuleToJsTransformer(
 ) {
     private val generateRegionComments = backendContext.configuration.getBoolean(JSConfigurationKeys.GENERATE_REGION_COMMENTS)
 
+    // Cross-module reference tracking records imports in the order they are requested, so per-module output is always translated sequentially
+    private val translationExecutor = if (multiModule) null else backendContext.translationExecutor
+
     fun generateModule(modules: Iterable<IrModuleFragment>): CompilerResult {
         val additionalPackages = with(backendContext) {
             externalPackageFragment.values + listOf(
@@ -251,33 +258,34 @@ class IrModuleToJsTransformer(
         val generateFilePaths = backendContext.configuration.getBoolean(JSConfigurationKeys.GENERATE_COMMENTS_WITH_FILE_PATH)
         val pathPrefixMap = backendContext.configuration.getMap(JSConfigurationKeys.FILE_PATHS_PREFIX_MAP)
 
-        modules.forEach { module ->
-            module.files.forEach {
-                val fileStatements = it.accept(IrFileToJsTransformer(), context).statements
-                if (fileStatements.isNotEmpty()) {
-                    var startComment = ""
-
-                    if (generateRegionComments) {
-                        startComment = "region "
-                    }
-
-                    if (generateRegionComments || generateFilePaths) {
-                        val originalPath = it.path
-                        val path = pathPrefixMap.entries
-                            .find { (k, _) -> originalPath.startsWith(k) }
-                            ?.let { (k, v) -> v + originalPath.substring(k.length) }
-                            ?: originalPath
-
-                        startComment += "file: $path"
-                    }
-
-                    if (startComment.isNotEmpty()) {
-                        statements.add(JsSingleLineComment(startComment))
-                    }
-
-                    statements.addAll(fileStatements)
-                    statements.endRegion()
+        val files = modules.flatMap { it.files }
+        val fileBlocks = translateFiles(files, context)
+
+        files.zip(fileBlocks).forEach { (file, fileBlock) ->
+            val fileStatements = fileBlock.statements
+            if (fileStatements.isNotEmpty()) {
+                var startComment = ""
+
+                if (generateRegionComments) {
+                    startComment = "region "
+                }
+
+                if (generateRegionComments || generateFilePaths) {
+                    val originalPath = file.path
+                    val path = pathPrefixMap.entries
+                        .find { (k, _) -> originalPath.startsWith(k) }
+                        ?.let { (k, v) -> v + originalPath.substring(k.length) }
+                        ?: originalPath
+
+                    startComment += "file: $path"
                 }
+
+                if (startComment.isNotEmpty()) {
+                    statements.add(JsSingleLineComment(startComment))
+                }
+
+                statements.addAll(fileStatements)
+                statements.endRegion()
             }
         }
 
@@ -298,6 +306,50 @@ class IrModuleToJsTransformer(
         return statements
     }
 
+    private fun translateFiles(files: List<IrFile>, context: JsGenerationContext): List<JsBlock> {
+        preassignAssociatedObjectKeys(files, context)
+
+        val executor = translationExecutor
+        if (executor == null || files.size <= 1) {
+            return files.map { it.accept(IrFileToJsTransformer(), context) }
+        }
+
+        val fileContexts = files.map { context.staticContext.fork() }
+        val fileBlocks = files.zip(fileContexts).map { (file, fileContext) ->
+            executor.submit(Callable {
+                file.accept(IrFileToJsTransformer(), JsGenerationContext(currentFunction = null, staticContext = fileContext))
+            })
+        }.map {
+            try {
+                it.get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+
+        fileContexts.forEach { context.staticContext.merge(it) }
+
+        return fileBlocks
+    }
+
+    // Associated object keys are handed out in the order they are first requested.
+    // Request them upfront in declaration order, so that the keys don't depend on the order in which files are translated.
+    private fun preassignAssociatedObjectKeys(files: List<IrFile>, context: JsGenerationContext) {
+        val visitor = object : IrElementVisitorVoid {
+            override fun visitElement(element: IrElement) {
+                element.acceptChildrenVoid(this)
+            }
+
+            override fun visitClass(declaration: IrClass) {
+                context.getAssociatedObjectKey(declaration)
+                declaration.annotations.forEach { context.getAssociatedObjectKey(it.symbol.owner.constructedClass) }
+                super.visitClass(declaration)
+            }
+        }
+
+        files.forEach { it.acceptVoid(visitor) }
+    }
+
     private fun generateMainArguments(mainFunction: IrSimpleFunction, rootContext: JsGenerationContext): List<JsExpression> {
         val mainArguments = this.mainArguments!!
         val mainArgumentsArray =
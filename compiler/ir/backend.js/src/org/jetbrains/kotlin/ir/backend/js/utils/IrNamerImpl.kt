@@ -76,6 +76,7 @@ class IrNamerImpl(private val newNameTables: NameTables) : IrNamer {
 
     private val associatedObjectKeyMap = mutableMapOf<IrClass, Int>()
 
+    @Synchronized
     override fun getAssociatedObjectKey(irClass: IrClass): Int? {
         if (irClass.isAssociatedObjectAnnotatedAnnotation) {
 
@@ -15,12 +15,21 @@ import org.jetbrains.kotlin.js.backend.ast.JsGlobalBlock
 
 class JsStaticContext(
     val backendContext: JsIrBackendContext,
-    private val irNamer: IrNamer
+    private val irNamer: IrNamer,
+    val intrinsics: JsIntrinsicTransformers = JsIntrinsicTransformers(backendContext)
 ) : IrNamer by irNamer {
 
-    val intrinsics = JsIntrinsicTransformers(backendContext)
     val classModels = mutableMapOf<IrClassSymbol, JsIrClassModel>()
     val coroutineImplDeclaration = backendContext.ir.symbols.coroutineImpl.owner
 
     val initializerBlock = JsGlobalBlock()
+
+    // Shares names and intrinsics, but collects class models and initializers separately,
+    // so that files can be translated concurrently and their results merged back in file order
+    fun fork(): JsStaticContext = JsStaticContext(backendContext, irNamer, intrinsics)
+
+    fun merge(other: JsStaticContext) {
+        classModels += other.classModels
+        initializerBlock.statements += other.initializerBlock.statements
+    }
 }
\ No newline at end of file
@@ -19,7 +19,10 @@ import org.jetbrains.kotlin.ir.builders.declarations.buildClass
 import org.jetbrains.kotlin.ir.declarations.IrClass
 import org.jetbrains.kotlin.ir.declarations.IrEnumEntry
 import org.jetbrains.kotlin.ir.declarations.IrField
+import org.jetbrains.kotlin.ir.declarations.IrFunction
+import org.jetbrains.kotlin.ir.expressions.IrBlock
 import org.jetbrains.kotlin.ir.expressions.IrExpression
+import org.jetbrains.kotlin.ir.expressions.IrStatementOrigin
 import org.jetbrains.kotlin.ir.expressions.impl.IrGetEnumValueImpl
 import org.jetbrains.kotlin.ir.types.defaultType
 import org.jetbrains.kotlin.ir.types.getClass
@@ -58,6 +61,10 @@ internal val enumWhenPhase = makeIrFilePhase(
 // The latter would not need to be recompiled if new entries were added before `X`
 // at the negligible cost of an additional initializer per run + one array read per call.
 //
+// If the enum is declared in the same file as the `when`, both are always recompiled together, so the ordinals
+// are used directly, as in EnumWhenLowering. This is not done in inline functions, since their bodies are
+// copied to other modules, which could then see a different version of the enum.
+//
 private class MappedEnumWhenLowering(context: CommonBackendContext) : EnumWhenLowering(context) {
     private val intArray = context.irBuiltIns.primitiveArrayForType.getValue(context.irBuiltIns.intType)
     private val intArrayConstructor = intArray.constructors.single { it.owner.valueParameters.size == 1 }
@@ -65,6 +72,8 @@ private class MappedEnumWhenLowering(context: CommonBackendContext) : EnumWhenLo
     private val intArraySet = intArray.functions.single { it.owner.name == OperatorNameConventions.SET }
     private val refArraySize = context.irBuiltIns.arrayClass.owner.properties.single { it.name.toString() == "size" }.getter!!
 
+    private var isInInlineFunction = false
+
     // To avoid visibility-related issues, classes containing the mappings are direct children
     // of the classes in which they are used. This field tracks which container is the innermost one.
     private var state: EnumMappingState? = null
@@ -92,18 +101,39 @@ private class MappedEnumWhenLowering(context: CommonBackendContext) : EnumWhenLo
             }
     }
 
+    private fun canUseOrdinals(enumClass: IrClass): Boolean =
+        !isInInlineFunction && enumClass.fileOrNull == currentFile
+
     override fun mapConstEnumEntry(entry: IrEnumEntry): Int {
+        if (canUseOrdinals(entry.parentAsClass)) return super.mapConstEnumEntry(entry)
         val (mapping) = state!!.getMappingForClass(entry.parentAsClass)
         // Index 0 (default value for integers) is reserved for unknown ordinals.
         return mapping.getOrPut(entry) { mapping.size + 1 }
     }
 
-    override fun mapRuntimeEnumEntry(builder: IrBuilderWithScope, subject: IrExpression): IrExpression =
-        builder.irCall(intArrayGet).apply {
-            val (_, field) = state!!.getMappingForClass(subject.type.getClass()!!)
+    override fun mapRuntimeEnumEntry(builder: IrBuilderWithScope, subject: IrExpression): IrExpression {
+        val enumClass = subject.type.getClass()!!
+        if (canUseOrdinals(enumClass)) return super.mapRuntimeEnumEntry(builder, subject)
+        return builder.irCall(intArrayGet).apply {
+            val (_, field) = state!!.getMappingForClass(enumClass)
             dispatchReceiver = builder.irGetField(null, field)
             putValueArgument(0, super.mapRuntimeEnumEntry(builder, subject))
         }
+    }
+
+    // Both the subject and the branches of a `when` have to be mapped in the same way, so whether it is in an inline function
+    // is computed once for the whole `when` (a nested `when` may be in a local inline function).
+    override fun visitBlock(expression: IrBlock): IrExpression {
+        if (expression.origin != IrStatementOrigin.WHEN) return super.visitBlock(expression)
+
+        val oldIsInInlineFunction = isInInlineFunction
+        isInInlineFunction = allScopes.any { (it.irElement as? IrFunction)?.isInline == true }
+        try {
+            return super.visitBlock(expression)
+        } finally {
+            isInInlineFunction = oldIsInInlineFunction
+        }
+    }
 
     override fun visitClassNew(declaration: IrClass): IrStatement {
         val oldState = state
@@ -294,6 +294,21 @@ fun loadIr(
     }
 }
 
+/**
+ * Runs only the frontend over [mainModule], reporting diagnostics through [analyzer].
+ * Throws [JsIrCompilationError] if there are errors.
+ */
+fun runFrontendAnalysis(
+    project: Project,
+    mainModule: MainModule.SourceFiles,
+    analyzer: AbstractAnalyzerWithCompilerReport,
+    configuration: CompilerConfiguration,
+    allDependencies: KotlinLibraryResolveResult,
+    friendDependencies: List<KotlinLibrary>
+) {
+    ModulesStructure(project, mainModule, analyzer, configuration, allDependencies, friendDependencies).runAnalysis()
+}
+
 private fun runAnalysisAndPreparePsi2Ir(depsDescriptors: ModulesStructure, irFactory: IrFactory): GeneratorContext {
     val (bindingContext, moduleDescriptor) = depsDescriptors.runAnalysis()
     val psi2Ir = Psi2IrTranslator(depsDescriptors.compilerConfiguration.languageVersionSettings, Psi2IrConfiguration())
@@ -0,0 +1,77 @@
+// WITH_RUNTIME
+
+import kotlin.test.assertEquals
+
+fun lastEven(xs: IntArray): Int? {
+    var result: Int? = null
+    for (x in xs) {
+        if (x % 2 == 0) result = x
+    }
+    return result
+}
+
+fun sumOfNonNull(n: Int): Int {
+    var sum = 0
+    var x: Int? = null
+    for (i in 0 until n) {
+        if (x != null) sum += x
+        x = if (i % 2 == 0) i else null
+    }
+    return sum
+}
+
+fun orDefault(c: Boolean): Long {
+    var x: Long? = null
+    if (c) x = 42L
+    return x ?: -1L
+}
+
+fun notNull(c: Boolean): Int {
+    var x: Int? = null
+    if (c) x = 42
+    return x!!
+}
+
+inline fun <T> applyTo(x: T, f: (T) -> Int): Int = f(x)
+
+fun genericLambdaParameter(c: Boolean): Int {
+    var x: Int? = null
+    if (c) x = 42
+    return applyTo(x) { it ?: -1 }
+}
+
+fun genericLambdaParameterNotNull(c: Boolean): Int {
+    var x: Int? = null
+    if (c) x = 42
+    return applyTo(x) { it!! }
+}
+
+inline fun expectNpe(block: () -> Unit) {
+    try {
+        block()
+    } catch (e: NullPointerException) {
+        return
+    }
+    throw AssertionError("NullPointerException expected")
+}
+
+fun box(): String {
+    assertEquals(null, lastEven(intArrayOf(1, 3, 5)))
+    assertEquals(4, lastEven(intArrayOf(1, 2, 3, 4, 5)))
+
+    assertEquals(0 + 2 + 4, sumOfNonNull(6))
+
+    assertEquals(-1L, orDefault(false))
+    assertEquals(42L, orDefault(true))
+
+    assertEquals(42, notNull(true))
+    expectNpe { notNull(false) }
+
+    assertEquals(-1, genericLambdaParameter(false))
+    assertEquals(42, genericLambdaParameter(true))
+
+    assertEquals(42, genericLambdaParameterNotNull(true))
+    expectNpe { genericLambdaParameterNotNull(false) }
+
+    return "OK"
+}
@@ -0,0 +1,57 @@
+// TARGET_BACKEND: JVM
+// WITH_RUNTIME
+
+inline fun <T> twice(value: T, f: (T) -> T): T = f(f(value))
+
+inline fun <reified T> Any?.cast(): T = this as T
+
+fun castInLambda(): String {
+    var x: Any = "O"
+    run { x = x.cast<String>() + "K" }
+    return x as String
+}
+
+fun castOfCapturedValue(): Int {
+    var x: Any? = 20
+    run { x = (x as Int) + 1 }
+    twice(0) { x = x.cast<Int>() * 2; it }
+    return x as Int
+}
+
+fun nestedInlineLambdas(): Int {
+    var counter = 0
+    run {
+        run { counter++ }
+        run {
+            run { counter += 10 }
+        }
+    }
+    repeat(2) { run { counter *= 2 } }
+    return counter
+}
+
+fun sameVarInSeveralInlinedCalls(): String {
+    var s = "a"
+    s = twice(s) { it + "b" }
+    twice(0) { s += "c"; it }
+    listOf(1, 2).forEach { s += it }
+    return s
+}
+
+fun genericCapture(): String {
+    var result: CharSequence = ""
+    listOf("x", "y").forEach { item ->
+        result = twice(result) { "$it$item" }
+    }
+    return result.toString()
+}
+
+fun box(): String {
+    castInLambda().let { if (it != "OK") return "fail 1: $it" }
+    castOfCapturedValue().let { if (it != 84) return "fail 2: $it" }
+    nestedInlineLambdas().let { if (it != 44) return "fail 3: $it" }
+    sameVarInSeveralInlinedCalls().let { if (it != "abbcc12") return "fail 4: $it" }
+    genericCapture().let { if (it != "xxyy") return "fail 5: $it" }
+
+    return "OK"
+}
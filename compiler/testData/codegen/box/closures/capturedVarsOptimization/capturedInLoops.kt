@@ -0,0 +1,69 @@
+// TARGET_BACKEND: JVM
+// WITH_RUNTIME
+
+fun sumOfProducts(xss: List<List<Int>>): Int {
+    var sum = 0
+    for (xs in xss) {
+        var product = 1
+        xs.forEach { product *= it }
+        sum += product
+    }
+    return sum
+}
+
+fun updatedAcrossIterations(n: Int): String {
+    var s = ""
+    var i = 0
+    while (i < n) {
+        run { s += i }
+        i++
+    }
+    return s
+}
+
+fun withBreakAndContinue(xs: List<Int>): Int {
+    var acc = 0
+    for (x in xs) {
+        if (x < 0) continue
+        run { acc += x }
+        if (acc > 10) break
+    }
+    return acc
+}
+
+fun nestedLoops(n: Int): Long {
+    var total = 0L
+    repeat(n) { i ->
+        var row = 0L
+        repeat(n) { j -> row += i * j }
+        total += row
+    }
+    return total
+}
+
+fun doWhile(): Int {
+    var count = 0
+    do {
+        run { count++ }
+    } while (count < 5)
+    return count
+}
+
+fun box(): String {
+    val r1 = sumOfProducts(listOf(listOf(1, 2, 3), listOf(4, 5), listOf()))
+    if (r1 != 27) return "fail 1: $r1"
+
+    val r2 = updatedAcrossIterations(4)
+    if (r2 != "0123") return "fail 2: $r2"
+
+    val r3 = withBreakAndContinue(listOf(1, -5, 4, 7, 100))
+    if (r3 != 12) return "fail 3: $r3"
+
+    val r4 = nestedLoops(4)
+    if (r4 != 36L) return "fail 4: $r4"
+
+    val r5 = doWhile()
+    if (r5 != 5) return "fail 5: $r5"
+
+    return "OK"
+}
@@ -0,0 +1,89 @@
+// TARGET_BACKEND: JVM
+// WITH_RUNTIME
+
+var resultOfFinally = 0
+
+fun writtenInTryReadInCatch(fail: Boolean): String {
+    var state = "initial"
+    try {
+        run { state = "try" }
+        if (fail) throw IllegalStateException()
+        run { state += " done" }
+    } catch (e: IllegalStateException) {
+        return "catch after $state"
+    }
+    return state
+}
+
+fun writtenInTryReadInFinally(fail: Boolean): String {
+    var log = ""
+    try {
+        try {
+            run { log += "a" }
+            if (fail) throw RuntimeException()
+            run { log += "b" }
+        } finally {
+            run { log += "f" }
+        }
+    } catch (e: RuntimeException) {
+        log += "c"
+    }
+    return log
+}
+
+fun writtenInLambdaBeforeThrow(fail: Boolean): String {
+    var step = 0
+    try {
+        run {
+            step = 1
+            if (fail) error("fail")
+            step = 2
+        }
+    } catch (e: IllegalStateException) {
+        return "caught at step $step"
+    }
+    return "step $step"
+}
+
+fun returnFromTry(): Int {
+    var x = 1
+    try {
+        run { x = 2 }
+        return x
+    } finally {
+        run { x = 3 }
+        resultOfFinally = x
+    }
+}
+
+fun tryCatchFinallyInLoop(xs: List<Int>): Int {
+    var sum = 0
+    for (x in xs) {
+        try {
+            run { sum += 10 / x }
+        } catch (e: ArithmeticException) {
+            sum = -sum
+        } finally {
+            run { sum++ }
+        }
+    }
+    return sum
+}
+
+fun box(): String {
+    writtenInTryReadInCatch(false).let { if (it != "try done") return "fail 1: $it" }
+    writtenInTryReadInCatch(true).let { if (it != "catch after try") return "fail 2: $it" }
+
+    writtenInTryReadInFinally(false).let { if (it != "abf") return "fail 3: $it" }
+    writtenInTryReadInFinally(true).let { if (it != "afc") return "fail 4: $it" }
+
+    writtenInLambdaBeforeThrow(false).let { if (it != "step 2") return "fail 5: $it" }
+    writtenInLambdaBeforeThrow(true).let { if (it != "caught at step 1") return "fail 6: $it" }
+
+    returnFromTry().let { if (it != 2) return "fail 7: $it" }
+    if (resultOfFinally != 3) return "fail 8: $resultOfFinally"
+
+    tryCatchFinallyInLoop(listOf(5, 0, 2)).let { if (it != 4) return "fail 9: $it" }
+
+    return "OK"
+}
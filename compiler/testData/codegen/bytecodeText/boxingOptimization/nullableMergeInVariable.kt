@@ -0,0 +1,33 @@
+fun sumInts(n: Int): Int {
+    var x: Int? = null
+    for (i in 0 until n) {
+        x = (x ?: 0) + i
+    }
+    return x ?: -1
+}
+
+fun sumLongs(n: Int): Long {
+    var x: Long? = null
+    for (i in 0 until n) {
+        if (x != null) {
+            x += i
+        } else {
+            x = i.toLong()
+        }
+    }
+    return x!!
+}
+
+// 0 valueOf
+// 0 IFNULL
+// 0 IFNONNULL
+
+// -- unboxings right after a null check of the same value are removed,
+// -- other unboxings are kept behind a check of the nullability flag to throw NPE for `null`
+// JVM_TEMPLATES:
+// 0 intValue
+// 1 longValue
+
+// JVM_IR_TEMPLATES:
+// 2 intValue
+// 1 longValue
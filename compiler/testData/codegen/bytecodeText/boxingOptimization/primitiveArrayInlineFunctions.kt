@@ -0,0 +1,23 @@
+// Only operations without a boxed destination: map and filter box when adding to their List<Int> result, and that is not checked here
+
+fun ints(x: IntArray): Int {
+    var result = x.fold(0) { acc, it -> acc + it }
+    result += x.reduce { acc, it -> acc * it }
+    result += x.count { it > 0 }
+    if (x.any { it < 0 }) result++
+    x.forEach { result -= it }
+    x.forEachIndexed { i, it -> result += i * it }
+    return result
+}
+
+fun longs(x: LongArray): Long {
+    var result = x.fold(0L) { acc, it -> acc + it }
+    result += x.reduce { acc, it -> acc * it }
+    result += x.count { it > 0L }
+    if (x.all { it < 0L }) result++
+    x.forEach { result -= it }
+    return result
+}
+
+// 0 valueOf
+// 0 Value\s\(\)
@@ -0,0 +1,27 @@
+fun sumOfProducts(xss: List<List<Int>>): Int {
+    var sum = 0
+    for (xs in xss) {
+        var product = 1
+        xs.forEach { product *= it }
+        sum += product
+    }
+    return sum
+}
+
+fun sumOrMinusOne(xs: List<Int>): Int {
+    var sum = 0
+    for (x in xs) {
+        try {
+            xs.forEach { sum += it * x }
+        } catch (e: ArithmeticException) {
+            sum = -1
+        } finally {
+            run { sum++ }
+        }
+    }
+    return sum
+}
+
+// 0 NEW
+// 0 GETFIELD
+// 0 PUTFIELD
@@ -1,3 +1,4 @@
+// FILE: X.kt
 package test
 
 enum class X {
@@ -5,6 +6,9 @@ enum class X {
     B
 }
 
+// FILE: test.kt
+package test
+
 inline fun test(x: X, s: (X) -> String): String {
     return s(x)
 }
@@ -25,4 +29,4 @@ fun box(): String {
 }
 
 // no additional mappings cause when in inline lambda (same module)
-// 1 class test/.*\$WhenMappings
\ No newline at end of file
+// 1 class test/.*\$WhenMappings
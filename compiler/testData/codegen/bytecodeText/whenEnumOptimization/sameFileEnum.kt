@@ -0,0 +1,23 @@
+enum class Season {
+    WINTER,
+    SPRING,
+    SUMMER,
+    AUTUMN
+}
+
+fun bar(x : Season) : String {
+    return when (x) {
+        Season.WINTER -> "winter"
+        Season.SPRING -> "spring"
+        Season.SUMMER -> "summer"
+        Season.AUTUMN -> "autumn"
+    }
+}
+
+// 1 TABLESWITCH
+
+// JVM_TEMPLATES
+// 1 class SameFileEnumKt\$WhenMappings
+
+// JVM_IR_TEMPLATES
+// 0 WhenMappings
@@ -0,0 +1,19 @@
+enum class Season {
+    WINTER,
+    SPRING,
+    SUMMER,
+    AUTUMN
+}
+
+inline fun bar(x : Season) : String {
+    return when (x) {
+        Season.WINTER -> "winter"
+        Season.SPRING -> "spring"
+        Season.SUMMER -> "summer"
+        Season.AUTUMN -> "autumn"
+    }
+}
+
+// mappings are kept in inline functions: their bodies can be inlined into other modules
+// 1 TABLESWITCH
+// 1 class SameFileEnumInInlineFunctionKt\$WhenMappings
@@ -1,8 +1,10 @@
+// FILE: BigEnum.kt
 enum class BigEnum {
     ITEM1,
     ITEM2
 }
 
+// FILE: mappingWhen.kt
 fun bar1(x : BigEnum) : String {
     when (x) {
         BigEnum.ITEM1 -> return "123"
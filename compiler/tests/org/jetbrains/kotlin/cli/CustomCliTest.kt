@@ -10,7 +10,9 @@ import org.jetbrains.kotlin.test.CompilerTestUtil
 import org.jetbrains.kotlin.test.TestCaseWithTmpdir
 import org.junit.Assert
 import java.io.File
+import java.net.URLClassLoader
 import java.util.jar.JarFile
+import java.util.zip.ZipEntry
 
 private const val EMPTY_MAIN_FUN = "fun main() {}"
 
@@ -39,6 +41,40 @@ class CustomCliTest : TestCaseWithTmpdir() {
         compileAndCheckMainClass(listOf(main1Kt, main2Kt), expectedMainClass = null)
     }
 
+    fun testNoJarCompression() {
+        checkStoredJar(includeRuntime = false)
+    }
+
+    fun testNoJarCompressionWithRuntime() {
+        checkStoredJar(includeRuntime = true)
+    }
+
+    private fun checkStoredJar(includeRuntime: Boolean) {
+        val mainKt = tmpdir.resolve("main.kt").apply {
+            writeText("fun greet() = listOf(\"O\", \"K\").joinToString(\"\")\n\n$EMPTY_MAIN_FUN")
+        }
+        val jarFile = tmpdir.resolve("out.jar")
+        val args = listOfNotNull(
+            "-include-runtime".takeIf { includeRuntime }, "-d", jarFile.absolutePath, "-Xno-jar-compression", mainKt.absolutePath
+        )
+        CompilerTestUtil.executeCompilerAssertSuccessful(K2JVMCompiler(), args)
+
+        JarFile(jarFile).use { jar ->
+            Assert.assertEquals("MainKt", jar.manifest.mainAttributes.getValue("Main-Class"))
+            val entries = jar.entries().toList()
+            Assert.assertEquals(includeRuntime, entries.any { it.name == "kotlin/collections/CollectionsKt.class" })
+            for (entry in entries) {
+                Assert.assertEquals("Entry ${entry.name} is compressed", ZipEntry.STORED, entry.method)
+            }
+        }
+
+        // without the runtime in the jar, the stdlib comes from the test classpath
+        val parent = if (includeRuntime) null else javaClass.classLoader
+        URLClassLoader(arrayOf(jarFile.toURI().toURL()), parent).use { loader ->
+            Assert.assertEquals("OK", loader.loadClass("MainKt").getMethod("greet").invoke(null))
+        }
+    }
+
     private fun compileAndCheckMainClass(sourceFiles: List<File>, expectedMainClass: String?) {
         val jarFile = tmpdir.resolve("output.jar")
         val args = listOf("-include-runtime", "-d", jarFile.absolutePath) + sourceFiles.map { it.absolutePath }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm
+
+import com.intellij.openapi.vfs.impl.jar.CoreJarFileSystem
+import com.intellij.util.io.URLUtil
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.cli.jvm.index.JavaRoot
+import org.jetbrains.kotlin.cli.jvm.index.JvmDependenciesIndex
+import org.jetbrains.kotlin.cli.jvm.index.JvmDependenciesIndexPool
+import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.KotlinTestWithEnvironment
+import org.jetbrains.kotlin.test.TestJdkKind
+import java.io.File
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class JvmDependenciesIndexPoolTest : KotlinTestWithEnvironment() {
+    private lateinit var tmpDir: File
+
+    private val jarFileSystem: CoreJarFileSystem
+        get() = environment.projectEnvironment.environment.jarFileSystem as CoreJarFileSystem
+
+    fun testHitForSameClasspath() {
+        val pool = JvmDependenciesIndexPool(4)
+        val roots = roots(createJar("lib.jar", "foo/A.class"))
+
+        val first = pool.lease(roots)
+        first.release()
+        val second = pool.lease(roots)
+
+        assertSame(first.index, second.index)
+        assertEquals(1L, pool.hits)
+        assertEquals(1L, pool.misses)
+        assertTrue(second.index.canFind("foo/A"))
+    }
+
+    fun testLeasedIndexIsExclusive() {
+        val pool = JvmDependenciesIndexPool(4)
+        val roots = roots(createJar("lib.jar", "foo/A.class"))
+
+        val first = pool.lease(roots)
+        val second = pool.lease(roots)
+
+        assertNotSame(first.index, second.index)
+        assertEquals(0L, pool.hits)
+        assertEquals(2L, pool.misses)
+    }
+
+    fun testMissForDifferentClasspath() {
+        val pool = JvmDependenciesIndexPool(4)
+
+        pool.lease(roots(createJar("a.jar", "foo/A.class"))).release()
+        val lease = pool.lease(roots(createJar("b.jar", "foo/B.class")))
+
+        assertEquals(0L, pool.hits)
+        assertEquals(2L, pool.misses)
+        assertTrue(lease.index.canFind("foo/B"))
+        assertFalse(lease.index.canFind("foo/A"))
+    }
+
+    fun testSurvivesJarCacheClearing() {
+        val pool = JvmDependenciesIndexPool(4)
+        val jar = createJar("lib.jar", "foo/A.class")
+
+        pool.lease(roots(jar)).release()
+        jarFileSystem.clearHandlersCache()
+        val lease = pool.lease(roots(jar))
+
+        assertEquals(1L, pool.hits)
+        assertTrue(lease.index.canFind("foo/A"))
+    }
+
+    fun testInvalidatedByModifiedJar() {
+        val pool = JvmDependenciesIndexPool(4)
+        val jar = createJar("lib.jar", "foo/A.class")
+
+        pool.lease(roots(jar)).release()
+
+        createJar("lib.jar", "foo/A.class", "foo/B.class")
+        jar.setLastModified(jar.lastModified() + 10000)
+        jarFileSystem.clearHandlersCache()
+        val lease = pool.lease(roots(jar))
+
+        assertEquals(0L, pool.hits)
+        assertEquals(2L, pool.misses)
+        assertTrue(lease.index.canFind("foo/B"))
+    }
+
+    fun testNotReturnedIfJarModifiedWhileLeased() {
+        val pool = JvmDependenciesIndexPool(4)
+        val jar = createJar("lib.jar", "foo/A.class")
+
+        val lease = pool.lease(roots(jar))
+        createJar("lib.jar", "foo/A.class", "foo/B.class")
+        jar.setLastModified(jar.lastModified() + 10000)
+        lease.release()
+
+        assertEquals(0, pool.idleSize)
+    }
+
+    fun testTrimAndSizeLimit() {
+        val pool = JvmDependenciesIndexPool(2)
+        val jars = listOf("a.jar", "b.jar", "c.jar").map { createJar(it, "foo/A.class") }
+
+        jars.map { pool.lease(roots(it)) }.forEach { it.release() }
+        assertEquals(2, pool.idleSize)
+
+        // the least recently used classpath is evicted first
+        pool.lease(roots(jars[0])).release()
+        assertEquals(0L, pool.hits)
+
+        assertEquals(2, pool.trimTo(0))
+        assertEquals(0, pool.idleSize)
+        assertEquals(0, pool.trimTo(0))
+        pool.lease(roots(jars[2]))
+        assertEquals(0L, pool.hits)
+    }
+
+    private fun createJar(name: String, vararg entries: String): File {
+        val jar = File(tmpDir, name)
+        ZipOutputStream(jar.outputStream()).use { zip ->
+            for (entry in entries) {
+                zip.putNextEntry(ZipEntry(entry))
+                zip.write(ByteArray(0))
+                zip.closeEntry()
+            }
+        }
+        return jar
+    }
+
+    private fun roots(jar: File): List<JavaRoot> {
+        val root = jarFileSystem.findFileByPath("${jar.path}${URLUtil.JAR_SEPARATOR}") ?: error("Can't find jar root for $jar")
+        return listOf(JavaRoot(root, JavaRoot.RootType.BINARY))
+    }
+
+    private fun JvmDependenciesIndex.canFind(classPath: String): Boolean {
+        val classId = ClassId.topLevel(FqName(classPath.replace('/', '.')))
+        return findClass(classId) { directory, _ -> directory.findChild("${classId.shortClassName}.class") } != null
+    }
+
+    override fun createEnvironment(): KotlinCoreEnvironment {
+        tmpDir = KotlinTestUtils.tmpDir("jvm-dependencies-index-pool-test")
+
+        val configuration = KotlinTestUtils.newConfiguration(ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK)
+        return KotlinCoreEnvironment.createForTests(testRootDisposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES)
+    }
+}
@@ -610,6 +610,16 @@ public class IrBytecodeTextTestGenerated extends AbstractIrBytecodeTextTest {
             runTest("compiler/testData/codegen/bytecodeText/boxingOptimization/nullCheck.kt");
         }
 
+        @TestMetadata("nullableMergeInVariable.kt")
+        public void testNullableMergeInVariable() throws Exception {
+            runTest("compiler/testData/codegen/bytecodeText/boxingOptimization/nullableMergeInVariable.kt");
+        }
+
+        @TestMetadata("primitiveArrayInlineFunctions.kt")
+        public void testPrimitiveArrayInlineFunctions() throws Exception {
+            runTest("compiler/testData/codegen/bytecodeText/boxingOptimization/primitiveArrayInlineFunctions.kt");
+        }
+
         @TestMetadata("progressions.kt")
         public void testProgressions() throws Exception {
             runTest("compiler/testData/codegen/bytecodeText/boxingOptimization/progressions.kt");
@@ -837,6 +847,11 @@ public class IrBytecodeTextTestGenerated extends AbstractIrBytecodeTextTest {
             runTest("compiler/testData/codegen/bytecodeText/capturedVarsOptimization/capturedValInLambdaInitializedOutside.kt");
         }
 
+        @TestMetadata("capturedVarsInLoopsAndTryCatch.kt")
+        public void testCapturedVarsInLoopsAndTryCatch() throws Exception {
+            runTest("compiler/testData/codegen/bytecodeText/capturedVarsOptimization/capturedVarsInLoopsAndTryCatch.kt");
+        }
+
         @TestMetadata("capturedVarsOfSize2.kt")
         public void testCapturedVarsOfSize2() throws Exception {
             runTest("compiler/testData/codegen/bytecodeText/capturedVarsOptimization/capturedVarsOfSize2.kt");
@@ -4866,6 +4881,16 @@ public class IrBytecodeTextTestGenerated extends AbstractIrBytecodeTextTest {
             runTest("compiler/testData/codegen/bytecodeText/whenEnumOptimization/nullability.kt");
         }
 
+        @TestMetadata("sameFileEnum.kt")
+        public void testSameFileEnum() throws Exception {
+            runTest("compiler/testData/codegen/bytecodeText/whenEnumOptimization/sameFileEnum.kt");
+        }
+
+        @TestMetadata("sameFileEnumInInlineFunction.kt")
+        public void testSameFileEnumInInlineFunction() throws Exception {
+            runTest("compiler/testData/codegen/bytecodeText/whenEnumOptimization/sameFileEnumInInlineFunction.kt");
+        }
+
         @TestMetadata("subjectAny.kt")
         public void testSubjectAny() throws Exception {
             runTest("compiler/testData/codegen/bytecodeText/whenEnumOptimization/subjectAny.kt");
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.codegen.optimization.common.SparseFrames
+import org.jetbrains.kotlin.codegen.optimization.transformer.CompositeMethodTransformer
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisCache
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformerStatistics
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.tree.*
+
+class CompositeMethodTransformerTest : TestCase() {
+    // requests the shared basic frames and reports [changes]
+    private class FramesRecorder(private val changes: Boolean, private val frames: MutableList<SparseFrames<*>>) : MethodTransformer() {
+        override fun transform(internalClassName: String, methodNode: MethodNode) {
+            throw AssertionError("The shared analyses should be used")
+        }
+
+        override fun transform(internalClassName: String, methodNode: MethodNode, analyses: MethodAnalysisCache): Boolean {
+            frames.add(analyses.getBasicFrames())
+            return changes
+        }
+    }
+
+    private class LegacyTransformer : MethodTransformer() {
+        override fun transform(internalClassName: String, methodNode: MethodNode) {
+        }
+    }
+
+    fun testAnalysesSharedWhileMethodIsUnchanged() {
+        val frames = arrayListOf<SparseFrames<*>>()
+        val method = straightLineMethod()
+        val changed = CompositeMethodTransformer(
+            FramesRecorder(changes = false, frames = frames),
+            FramesRecorder(changes = false, frames = frames),
+            FramesRecorder(changes = false, frames = frames)
+        ).transform("Test", method, MethodAnalysisCache("Test", method))
+
+        assertFalse(changed)
+        assertEquals(3, frames.size)
+        assertSame(frames[0], frames[1])
+        assertSame(frames[1], frames[2])
+    }
+
+    fun testAnalysesInvalidatedAfterChange() {
+        val frames = arrayListOf<SparseFrames<*>>()
+        val method = straightLineMethod()
+        val changed = CompositeMethodTransformer(
+            FramesRecorder(changes = false, frames = frames),
+            FramesRecorder(changes = true, frames = frames),
+            FramesRecorder(changes = false, frames = frames),
+            FramesRecorder(changes = false, frames = frames)
+        ).transform("Test", method, MethodAnalysisCache("Test", method))
+
+        assertTrue(changed)
+        assertSame(frames[0], frames[1])
+        assertNotSame(frames[1], frames[2])
+        assertSame(frames[2], frames[3])
+    }
+
+    fun testLegacyTransformerInvalidatesAnalyses() {
+        val frames = arrayListOf<SparseFrames<*>>()
+        val method = straightLineMethod()
+        val changed = CompositeMethodTransformer(
+            FramesRecorder(changes = false, frames = frames),
+            LegacyTransformer(),
+            FramesRecorder(changes = false, frames = frames)
+        ).transform("Test", method, MethodAnalysisCache("Test", method))
+
+        assertTrue(changed)
+        assertNotSame(frames[0], frames[1])
+    }
+
+    fun testAnalysesInvalidatedByNestedComposite() {
+        val frames = arrayListOf<SparseFrames<*>>()
+        val method = straightLineMethod()
+        CompositeMethodTransformer(
+            FramesRecorder(changes = false, frames = frames),
+            CompositeMethodTransformer(
+                FramesRecorder(changes = false, frames = frames),
+                FramesRecorder(changes = true, frames = frames)
+            ),
+            FramesRecorder(changes = false, frames = frames)
+        ).transform("Test", method, MethodAnalysisCache("Test", method))
+
+        assertSame(frames[0], frames[2])
+        assertNotSame(frames[2], frames[3])
+    }
+
+    fun testDeadCodeEliminationReportsRemovedTryCatchBlocks() {
+        val method = methodWithEmptyTryCatchBlock()
+        val instructionsBefore = method.instructions.size()
+
+        val changed = DeadCodeEliminationMethodTransformer().transform("Test", method, MethodAnalysisCache("Test", method))
+
+        assertTrue("Removal of an empty try/catch block was not reported", changed)
+        assertEquals(instructionsBefore, method.instructions.size())
+        assertTrue(method.tryCatchBlocks.isEmpty())
+    }
+
+    fun testCodeOfRemovedTryCatchBlockIsEliminatedByNextPass() {
+        val method = methodWithEmptyTryCatchBlock()
+
+        // the handler is reachable only through the try/catch block removed by the first pass,
+        // it is removed by the second pass only if the frames were invalidated after the first one
+        CompositeMethodTransformer(
+            DeadCodeEliminationMethodTransformer(),
+            DeadCodeEliminationMethodTransformer()
+        ).transform("Test", method)
+
+        assertFalse("Handler of the removed try/catch block was not eliminated", method.instructions.toArray().any { it.opcode == Opcodes.ATHROW })
+    }
+
+    fun testStatistics() {
+        val statistics = MethodTransformerStatistics()
+        val method = straightLineMethod()
+        val transformer = CompositeMethodTransformer(statistics, LegacyTransformer(), DeadCodeEliminationMethodTransformer())
+        transformer.transform("Test", method)
+        transformer.transform("Test", method)
+
+        val counts = linkedMapOf<String, Int>()
+        statistics.report { name, count, _ -> counts[name] = count }
+        assertEquals(mapOf("DeadCodeEliminationMethodTransformer" to 2, "LegacyTransformer" to 2), counts)
+    }
+
+    private fun straightLineMethod(): MethodNode =
+        MethodNode(Opcodes.ACC_STATIC, "test", "(I)I", null, null).apply {
+            instructions.add(VarInsnNode(Opcodes.ILOAD, 0))
+            instructions.add(InsnNode(Opcodes.ICONST_1))
+            instructions.add(InsnNode(Opcodes.IADD))
+            instructions.add(InsnNode(Opcodes.IRETURN))
+            maxLocals = 1
+            maxStack = 2
+        }
+
+    // the try/catch block covers no meaningful instructions, but its handler is reachable from the labels in its range
+    private fun methodWithEmptyTryCatchBlock(): MethodNode =
+        MethodNode(Opcodes.ACC_STATIC, "test", "()V", null, null).apply {
+            val start = LabelNode()
+            val end = LabelNode()
+            val handler = LabelNode()
+            instructions.add(start)
+            instructions.add(end)
+            instructions.add(InsnNode(Opcodes.RETURN))
+            instructions.add(handler)
+            instructions.add(InsnNode(Opcodes.ATHROW))
+            tryCatchBlocks.add(TryCatchBlockNode(start, end, handler, null))
+            maxLocals = 0
+            maxStack = 1
+        }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization
+
+import org.jetbrains.kotlin.codegen.CodegenTestCase
+import org.jetbrains.kotlin.codegen.CodegenTestFiles
+import org.jetbrains.kotlin.codegen.optimization.common.BasicBlocks
+import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
+import org.jetbrains.kotlin.codegen.optimization.common.SparseMethodAnalyzer
+import org.jetbrains.kotlin.codegen.optimization.transformer.CompositeMethodTransformer
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.org.objectweb.asm.ClassReader
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.tree.*
+import org.jetbrains.org.objectweb.asm.tree.analysis.Analyzer
+import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
+import org.jetbrains.org.objectweb.asm.tree.analysis.Interpreter
+import org.jetbrains.org.objectweb.asm.tree.analysis.SourceInterpreter
+import org.jetbrains.org.objectweb.asm.tree.analysis.Value
+
+class SparseMethodAnalyzerTest : CodegenTestCase() {
+    fun testLoops() {
+        doTestSameFramesAsAnalyzer(
+            """
+                fun loops(n: Int): Long {
+                    var sum = 0L
+                    var d = 1.0
+                    outer@ for (i in 0 until n) {
+                        var j = i
+                        while (j > 0) {
+                            if (j % 7 == 0) continue@outer
+                            if (sum > 1000) break@outer
+                            sum += j
+                            d *= 1.5
+                            j--
+                        }
+                    }
+                    do {
+                        sum--
+                    } while (sum > d)
+                    return sum
+                }
+            """
+        )
+    }
+
+    fun testTryCatchFinally() {
+        doTestSameFramesAsAnalyzer(
+            """
+                inline fun <T> guarded(block: () -> T): T? =
+                    try { block() } catch (e: IllegalStateException) { null }
+
+                fun tryCatchFinally(s: String?): Int {
+                    var x = 0
+                    var y: Any? = null
+                    try {
+                        x = s!!.length
+                        y = s
+                        try {
+                            if (x > 3) throw IllegalStateException()
+                            x++
+                        } finally {
+                            x *= 2
+                        }
+                    } catch (e: IllegalStateException) {
+                        x = -x
+                        y = e
+                    } catch (e: NullPointerException) {
+                        return x
+                    } finally {
+                        x += y.hashCode()
+                    }
+                    for (i in 0..x) {
+                        try {
+                            if (i == 5) break
+                            if (i == 3) continue
+                        } finally {
+                            x--
+                        }
+                    }
+                    return x + (guarded { s!!.toInt() } ?: 0)
+                }
+            """
+        )
+    }
+
+    fun testSwitches() {
+        doTestSameFramesAsAnalyzer(
+            """
+                fun switches(x: Int, s: String): String =
+                    when (x) {
+                        1 -> "a"
+                        2 -> "b"
+                        3 -> "c"
+                        100 -> "d"
+                        1000 -> when (s) {
+                            "x" -> "e"
+                            "y" -> "f"
+                            else -> "g"
+                        }
+                        else -> s
+                    }
+            """
+        )
+    }
+
+    fun testLargeMethod() {
+        doTestSameFramesAsAnalyzer(
+            buildString {
+                appendLine("fun large(x: Int, s: String?): Long {")
+                appendLine("    var r = 0L")
+                appendLine("    var t: Any? = s")
+                for (i in 0 until 300) {
+                    appendLine("    if (x == $i) r += $i else r -= x * $i")
+                    if (i % 50 == 0) {
+                        appendLine("    try { t = s!!.substring($i) } catch (e: RuntimeException) { t = e; r++ }")
+                    }
+                    if (i % 75 == 0) {
+                        appendLine("    while (r > $i) { r /= 2; if (r == 7L) break }")
+                    }
+                }
+                appendLine("    return r + t.hashCode()")
+                appendLine("}")
+            }
+        )
+    }
+
+    fun testSubroutinesAreRejected() {
+        val method = MethodNode(Opcodes.ACC_STATIC, "subroutine", "()V", null, null).apply {
+            val subroutine = LabelNode()
+            instructions.add(JumpInsnNode(Opcodes.JSR, subroutine))
+            instructions.add(InsnNode(Opcodes.RETURN))
+            instructions.add(subroutine)
+            instructions.add(VarInsnNode(Opcodes.ASTORE, 0))
+            instructions.add(VarInsnNode(Opcodes.RET, 0))
+            maxLocals = 1
+            maxStack = 1
+        }
+
+        try {
+            SparseMethodAnalyzer("Test", method, OptimizationBasicInterpreter()).analyze()
+            fail("Subroutines should not be analyzed")
+        } catch (e: AssertionError) {
+            assertEquals("Subroutines are deprecated since Java 6", e.message)
+        }
+    }
+
+    fun testMethodOverInstructionBudgetIsOptimizedUsingSparseFrames() {
+        // a few basic blocks with a lot of instructions and a large frame:
+        // too large for a frame per instruction, but not for a frame per block
+        val method = MethodNode(Opcodes.ACC_STATIC, "large", "()I", null, null).apply {
+            val dead = LabelNode()
+            instructions.add(InsnNode(Opcodes.ICONST_1))
+            instructions.add(JumpInsnNode(Opcodes.IFEQ, dead))
+            repeat(3000) { instructions.add(InsnNode(Opcodes.NOP)) }
+            instructions.add(InsnNode(Opcodes.ICONST_0))
+            instructions.add(InsnNode(Opcodes.IRETURN))
+            instructions.add(dead)
+            instructions.add(InsnNode(Opcodes.ICONST_1))
+            instructions.add(InsnNode(Opcodes.IRETURN))
+            maxLocals = 20000
+            maxStack = 2
+        }
+
+        assertFalse(OptimizationMethodVisitor.canBeOptimized(method))
+        assertTrue(OptimizationMethodVisitor.canBeOptimizedUsingSparseFrames(method))
+
+        CompositeMethodTransformer(
+            ConstantConditionEliminationMethodTransformer(),
+            DeadCodeEliminationMethodTransformer()
+        ).transform("Test", method)
+
+        assertFalse("Constant condition was not eliminated", method.instructions.toArray().any { it.opcode == Opcodes.IFEQ })
+        assertEquals("Dead branch was not eliminated", 1, method.instructions.toArray().count { it.opcode == Opcodes.IRETURN })
+    }
+
+    fun testMethodOverBlockBudgetIsNotOptimized() {
+        val method = MethodNode(Opcodes.ACC_STATIC, "large", "()V", null, null).apply {
+            val labels = List(500) { LabelNode() }
+            for (label in labels) {
+                instructions.add(JumpInsnNode(Opcodes.GOTO, label))
+                instructions.add(label)
+            }
+            instructions.add(InsnNode(Opcodes.RETURN))
+            maxLocals = 65535
+            maxStack = 65535
+        }
+
+        assertEquals(501, BasicBlocks(method).count)
+        assertFalse(OptimizationMethodVisitor.canBeOptimized(method))
+        assertFalse(OptimizationMethodVisitor.canBeOptimizedUsingSparseFrames(method))
+    }
+
+    private fun doTestSameFramesAsAnalyzer(sourceText: String) {
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.ALL)
+        myFiles = CodegenTestFiles.create("file.kt", sourceText, myEnvironment!!.project)
+
+        var methodsWithBranches = 0
+        for (classFile in generateClassesInFile().asList().filter { it.relativePath.endsWith(".class") }) {
+            val classNode = ClassNode()
+            ClassReader(classFile.asByteArray()).accept(classNode, ClassReader.SKIP_FRAMES)
+            for (method in classNode.methods) {
+                if (method.instructions.size() == 0) continue
+                if (BasicBlocks(method).count > 1) methodsWithBranches++
+
+                assertSameFrames(classNode.name, method, OptimizationBasicInterpreter())
+                assertSameFrames(classNode.name, method, SourceInterpreter())
+            }
+        }
+        assertTrue("No methods with several basic blocks in the test", methodsWithBranches > 0)
+    }
+
+    private fun <V : Value> assertSameFrames(owner: String, method: MethodNode, interpreter: Interpreter<V>) {
+        val expected = Analyzer(interpreter).analyze(owner, method)
+        val frames = SparseMethodAnalyzer(owner, method, interpreter).analyze()
+        val insns = method.instructions.toArray()
+        assertEquals(expected.size, frames.size)
+
+        // sequential access reuses the frame computed for the previous instruction, reverse access replays each block from its entry
+        for (index in insns.indices + insns.indices.reversed()) {
+            val message = "${method.name}${method.desc}, instruction #$index"
+            val expectedFrame = expected[index]
+            assertEquals(message, expectedFrame != null, frames.isReachable(index))
+            assertSameFrame(message, expectedFrame, frames[index])
+        }
+    }
+
+    private fun <V : Value> assertSameFrame(message: String, expected: Frame<V>?, actual: Frame<V>?) {
+        if (expected == null || actual == null) {
+            assertEquals(message, expected, actual)
+            return
+        }
+        assertEquals(message, expected.locals, actual.locals)
+        assertEquals(message, expected.stackSize, actual.stackSize)
+        for (i in 0 until expected.locals) {
+            assertEquals("$message, local $i", expected.getLocal(i), actual.getLocal(i))
+        }
+        for (i in 0 until expected.stackSize) {
+            assertEquals("$message, stack $i", expected.getStack(i), actual.getStack(i))
+        }
+    }
+}
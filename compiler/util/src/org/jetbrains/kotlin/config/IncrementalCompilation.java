@@ -23,6 +23,7 @@ import java.util.List;
 public class IncrementalCompilation {
     public static final String INCREMENTAL_COMPILATION_JVM_PROPERTY = "kotlin.incremental.compilation";
     public static final String INCREMENTAL_COMPILATION_JS_PROPERTY = "kotlin.incremental.compilation.js";
+    public static final String INCREMENTAL_CLASSPATH_SNAPSHOTS_PROPERTY = "kotlin.incremental.classpath.snapshots";
 
     public static boolean isEnabledForJvm() {
         return "true".equals(System.getProperty(INCREMENTAL_COMPILATION_JVM_PROPERTY));
@@ -32,6 +33,10 @@ public class IncrementalCompilation {
         return "true".equals(System.getProperty(INCREMENTAL_COMPILATION_JS_PROPERTY));
     }
 
+    public static boolean isClasspathSnapshotsEnabled() {
+        return "true".equals(System.getProperty(INCREMENTAL_CLASSPATH_SNAPSHOTS_PROPERTY));
+    }
+
     @TestOnly
     public static void setIsEnabledForJvm(boolean value) {
         System.setProperty(INCREMENTAL_COMPILATION_JVM_PROPERTY, String.valueOf(value));
@@ -45,6 +50,7 @@ public class IncrementalCompilation {
     public static void toJvmArgs(List<String> jvmArgs) {
         if (isEnabledForJvm()) addJvmSystemFlag(jvmArgs, INCREMENTAL_COMPILATION_JVM_PROPERTY);
         if (isEnabledForJs()) addJvmSystemFlag(jvmArgs, INCREMENTAL_COMPILATION_JS_PROPERTY);
+        if (isClasspathSnapshotsEnabled()) addJvmSystemFlag(jvmArgs, INCREMENTAL_CLASSPATH_SNAPSHOTS_PROPERTY);
     }
 
     private static void addJvmSystemFlag(List<String> jvmArgs, String name) {
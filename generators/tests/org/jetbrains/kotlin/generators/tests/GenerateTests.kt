@@ -1405,6 +1405,10 @@ fun main(args: Array<String>) {
             testClass<AbstractIncrementalJvmCompilerRunnerTest>(init = incrementalJvmTestData(TargetBackend.JVM))
             testClass<AbstractIrIncrementalJvmCompilerRunnerTest>(init = incrementalJvmTestData(TargetBackend.JVM_IR))
 
+            testClass<AbstractIncrementalJvmCompilerRunnerWithoutPreciseJavaTrackingTest> {
+                model("incremental/withJavaWithoutPreciseTracking", extension = null, recursive = false)
+            }
+
             testClass<AbstractIncrementalJsCompilerRunnerTest> {
                 model("incremental/pureKotlin", extension = null, recursive = false)
                 model("incremental/classHierarchyAffected", extension = null, recursive = false)
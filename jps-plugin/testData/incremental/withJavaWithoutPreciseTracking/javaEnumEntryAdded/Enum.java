@@ -0,0 +1,4 @@
+public enum Enum {
+    A,
+    B
+}
@@ -0,0 +1,7 @@
+import Enum.*
+
+fun use(e: Enum): String =
+        when (e) {
+            A -> "A"
+            B -> "B"
+        }
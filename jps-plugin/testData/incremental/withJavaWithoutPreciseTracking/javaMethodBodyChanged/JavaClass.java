@@ -0,0 +1,5 @@
+public class JavaClass {
+    public int foo() {
+        return 1;
+    }
+}
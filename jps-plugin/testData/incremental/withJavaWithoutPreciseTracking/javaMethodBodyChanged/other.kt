@@ -0,0 +1 @@
+fun other() = 42
@@ -0,0 +1 @@
+fun useFoo() = JavaClass().foo()
@@ -0,0 +1,3 @@
+class Sub : Super() {
+    override fun x(): Int = 3
+}
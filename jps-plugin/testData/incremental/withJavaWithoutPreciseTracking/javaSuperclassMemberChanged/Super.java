@@ -0,0 +1,9 @@
+public class Super {
+    public int x() {
+        return 1;
+    }
+
+    public int y() {
+        return 2;
+    }
+}
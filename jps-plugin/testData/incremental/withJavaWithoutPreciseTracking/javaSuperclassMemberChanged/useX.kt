@@ -0,0 +1 @@
+fun useX() = Sub().x()
@@ -0,0 +1 @@
+fun useY() = Sub().y()
@@ -86,4 +86,10 @@ public class JSConfigurationKeys {
 
     public static final CompilerConfigurationKey<Boolean> DISABLE_FAKE_OVERRIDE_VALIDATOR =
             CompilerConfigurationKey.create("disable IR fake override validator");
+
+    public static final CompilerConfigurationKey<Integer> LOWERING_THREADS =
+            CompilerConfigurationKey.create("number of threads used to run file-local IR lowerings");
+
+    public static final CompilerConfigurationKey<Integer> TRANSLATION_THREADS =
+            CompilerConfigurationKey.create("number of threads used to translate IR files to JS");
 }
@@ -86,31 +86,39 @@ data class JsonArray(val elements: MutableList<JsonNode>) : JsonNode() {
 data class JsonString(val value: String) : JsonNode() {
     override fun write(writer: Writer) {
         writer.append('"')
-        for (c in value) {
-            when (c) {
-                '\\' -> writer.append("\\\\")
-                '"' -> writer.append("\\\"")
-                '\r' -> writer.append("\\r")
-                '\n' -> writer.append("\\n")
-                '\t' -> writer.append("\\t")
-                '\b' -> writer.append("\\b")
-                '\u000C' -> writer.append("\\f")
-                in ' '..126.toChar() -> writer.append(c)
-                else -> {
-                    writer.append("\\u")
-                    var shift = 16
-                    repeat(4) {
-                        shift -= 4
-                        val digit = (c.toInt() ushr shift) and 0xF
-                        writer.append(if (digit < 10) (digit + '0'.toInt()).toChar() else (digit - 10 + 'a'.toInt()).toChar())
-                    }
-                }
-            }
+        // Source maps embed whole source files and mappings here, so runs of plain characters are written in bulk
+        var plainStart = 0
+        for (index in value.indices) {
+            val escaped = escape(value[index]) ?: continue
+            writer.write(value, plainStart, index - plainStart)
+            writer.append(escaped)
+            plainStart = index + 1
         }
+        writer.write(value, plainStart, value.length - plainStart)
         writer.append('"')
     }
 
     override fun toString(): String = super.toString()
+
+    private fun escape(c: Char): String? = when (c) {
+        '\\' -> "\\\\"
+        '"' -> "\\\""
+        '\r' -> "\\r"
+        '\n' -> "\\n"
+        '\t' -> "\\t"
+        '\b' -> "\\b"
+        '\u000C' -> "\\f"
+        in ' '..126.toChar() -> null
+        else -> buildString {
+            append("\\u")
+            var shift = 16
+            repeat(4) {
+                shift -= 4
+                val digit = (c.toInt() ushr shift) and 0xF
+                append(if (digit < 10) (digit + '0'.toInt()).toChar() else (digit - 10 + 'a'.toInt()).toChar())
+            }
+        }
+    }
 }
 
 data class JsonNumber(val value: Double) : JsonNode() {
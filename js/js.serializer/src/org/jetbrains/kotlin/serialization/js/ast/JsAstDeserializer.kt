@@ -38,12 +38,17 @@ class JsAstDeserializer(program: JsProgram, private val sourceRoots: Iterable<Fi
     private val nameCache = mutableListOf<JsName?>()
     private val fileStack: Deque<String> = ArrayDeque()
 
+    // Survive across chunks: the same identifiers and file paths recur in every fragment of a module,
+    // and the source root lookup hits the file system, so neither should be repeated per chunk or per node
+    private val internedStrings = hashMapOf<String, String>()
+    private val contentFiles = hashMapOf<String, File?>()
+
     fun deserialize(input: InputStream): JsProgramFragment {
         return deserialize(Chunk.parseFrom(CodedInputStream.newInstance(input).apply { setRecursionLimit(4096) }))
     }
 
     fun deserialize(proto: Chunk): JsProgramFragment {
-        stringTable += proto.stringTable.entryList
+        proto.stringTable.entryList.mapTo(stringTable) { internedStrings.getOrPut(it) { it } }
         nameTable += proto.nameTable.entryList
         nameCache += nameTable.map { null }
         try {
@@ -557,6 +562,15 @@ class JsAstDeserializer(program: JsProgram, private val sourceRoots: Iterable<Fi
         JsAstProtoBuf.SpecialFunction.GET_REIFIED_TYPE_PARAMETER_KTYPE -> SpecialFunction.GET_REIFIED_TYPE_PARAMETER_KTYPE
     }
 
+    private fun findContentFile(file: String): File? {
+        if (file in contentFiles) return contentFiles[file]
+
+        return sourceRoots
+                .map { File(it, file) }
+                .firstOrNull { it.exists() }
+                .also { contentFiles[file] = it }
+    }
+
     private fun <T : JsNode> withLocation(fileId: Int?, location: Location?, action: () -> T): T {
         val deserializedFile = fileId?.let { deserializeString(it) }
         val file = deserializedFile ?: fileStack.peek()
@@ -573,9 +587,7 @@ class JsAstDeserializer(program: JsProgram, private val sourceRoots: Iterable<Fi
         }
         val node = action()
         if (deserializedLocation != null) {
-            val contentFile = sourceRoots
-                    .map { File(it, file) }
-                    .firstOrNull { it.exists() }
+            val contentFile = findContentFile(file)
             node.source = if (contentFile != null) {
                 JsLocationWithEmbeddedSource(deserializedLocation, null) { InputStreamReader(FileInputStream(contentFile), "UTF-8") }
             }
@@ -30,6 +30,11 @@ fun main(args: Array<String>) {
                 model("box/", pattern = "^([^_](.+))\\.kt$", targetBackend = TargetBackend.JS_IR)
             }
 
+            testClass<AbstractIrBoxJsConcurrentTest> {
+                model("box/multiFile/", pattern = "^([^_](.+))\\.kt$", targetBackend = TargetBackend.JS_IR)
+                model("box/inlineMultiFile/", pattern = "^([^_](.+))\\.kt$", targetBackend = TargetBackend.JS_IR)
+            }
+
             testClass<AbstractIrBoxJsES6Test> {
                 model("box/", pattern = "^([^_](.+))\\.kt$", targetBackend = TargetBackend.JS_IR_ES6)
             }
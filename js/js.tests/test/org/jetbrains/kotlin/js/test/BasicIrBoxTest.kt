@@ -10,6 +10,7 @@ import org.jetbrains.kotlin.backend.common.phaser.toPhaseMap
 import org.jetbrains.kotlin.cli.common.messages.AnalyzerWithCompilerReport
 import org.jetbrains.kotlin.cli.common.messages.MessageCollector
 import org.jetbrains.kotlin.cli.js.messageCollectorLogger
+import org.jetbrains.kotlin.config.CompilerConfiguration
 import org.jetbrains.kotlin.ir.backend.js.*
 import org.jetbrains.kotlin.ir.declarations.persistent.PersistentIrFactory
 import org.jetbrains.kotlin.js.config.JSConfigurationKeys
@@ -59,6 +60,10 @@ abstract class BasicIrBoxTest(
 
     val perModule: Boolean = getBoolean("kotlin.js.ir.perModule")
 
+    // When greater than 1, the generated code is also checked to be the same as with sequential lowering and translation
+    protected open val loweringThreads: Int = 1
+    protected open val translationThreads: Int = 1
+
     private val osName: String = System.getProperty("os.name").toLowerCase()
 
     // TODO Design incremental compilation for IR and add test support
@@ -130,21 +135,31 @@ abstract class BasicIrBoxTest(
             }
 
             if (!skipRegularMode) {
-                val compiledModule = compile(
-                    project = config.project,
-                    mainModule = MainModule.SourceFiles(filesToCompile),
-                    analyzer = AnalyzerWithCompilerReport(config.configuration),
-                    configuration = config.configuration,
-                    phaseConfig = phaseConfig,
-                    allDependencies = resolvedLibraries,
-                    friendDependencies = emptyList(),
-                    mainArguments = mainCallParameters.run { if (shouldBeGenerated()) arguments() else null },
-                    exportedDeclarations = setOf(FqName.fromSegments(listOfNotNull(testPackage, testFunction))),
-                    generateFullJs = true,
-                    generateDceJs = runIrDce,
-                    es6mode = runEs6Mode,
-                    multiModule = splitPerModule || perModule
-                )
+                val compileRegular = { configuration: CompilerConfiguration ->
+                    compile(
+                        project = config.project,
+                        mainModule = MainModule.SourceFiles(filesToCompile),
+                        analyzer = AnalyzerWithCompilerReport(configuration),
+                        configuration = configuration,
+                        phaseConfig = phaseConfig,
+                        allDependencies = resolvedLibraries,
+                        friendDependencies = emptyList(),
+                        mainArguments = mainCallParameters.run { if (shouldBeGenerated()) arguments() else null },
+                        exportedDeclarations = setOf(FqName.fromSegments(listOfNotNull(testPackage, testFunction))),
+                        generateFullJs = true,
+                        generateDceJs = runIrDce,
+                        es6mode = runEs6Mode,
+                        multiModule = splitPerModule || perModule
+                    )
+                }
+
+                val compiledModule = compileRegular(config.configuration.withThreads())
+
+                if (loweringThreads > 1 || translationThreads > 1) {
+                    val sequentialModule = compileRegular(config.configuration)
+                    assertEquals("Output changed with concurrent compilation", sequentialModule.jsCode!!.asText(), compiledModule.jsCode!!.asText())
+                    assertEquals("DCE output changed with concurrent compilation", sequentialModule.dceJsCode?.asText(), compiledModule.dceJsCode?.asText())
+                }
 
                 compiledModule.jsCode!!.writeTo(outputFile, config)
 
@@ -189,6 +204,17 @@ abstract class BasicIrBoxTest(
         }
     }
 
+    private fun CompilerConfiguration.withThreads(): CompilerConfiguration {
+        if (loweringThreads <= 1 && translationThreads <= 1) return this
+        return copy().apply {
+            put(JSConfigurationKeys.LOWERING_THREADS, loweringThreads)
+            put(JSConfigurationKeys.TRANSLATION_THREADS, translationThreads)
+        }
+    }
+
+    private fun JsCode.asText(): String =
+        (listOf(mainModule) + dependencies.map { (moduleId, code) -> "// $moduleId\n$code" }).joinToString("\n")
+
     private fun JsCode.writeTo(outputFile: File, config: JsConfig) {
         val wrappedCode =
             wrapWithModuleEmulationMarkers(mainModule, moduleId = config.moduleId, moduleKind = config.moduleKind)
@@ -929,6 +929,11 @@ public class IrJsCodegenBoxES6TestGenerated extends AbstractIrJsCodegenBoxES6Tes
             runTest("compiler/testData/codegen/box/boxingOptimization/nullCheck.kt");
         }
 
+        @TestMetadata("nullableMerge.kt")
+        public void testNullableMerge() throws Exception {
+            runTest("compiler/testData/codegen/box/boxingOptimization/nullableMerge.kt");
+        }
+
         @TestMetadata("progressions.kt")
         public void testProgressions() throws Exception {
             runTest("compiler/testData/codegen/box/boxingOptimization/progressions.kt");
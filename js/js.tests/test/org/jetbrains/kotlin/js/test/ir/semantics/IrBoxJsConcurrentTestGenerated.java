@@ -0,0 +1,232 @@
+/*
+ * Copyright 2010-2020 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.js.test.ir.semantics;
+
+import com.intellij.testFramework.TestDataPath;
+import org.jetbrains.kotlin.test.JUnit3RunnerWithInners;
+import org.jetbrains.kotlin.test.KotlinTestUtils;
+import org.jetbrains.kotlin.test.TargetBackend;
+import org.jetbrains.kotlin.test.TestMetadata;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+/** This class is generated by {@link org.jetbrains.kotlin.generators.tests.TestsPackage}. DO NOT MODIFY MANUALLY */
+@SuppressWarnings("all")
+@RunWith(JUnit3RunnerWithInners.class)
+public class IrBoxJsConcurrentTestGenerated extends AbstractIrBoxJsConcurrentTest {
+    @TestMetadata("js/js.translator/testData/box/multiFile")
+    @TestDataPath("$PROJECT_ROOT")
+    @RunWith(JUnit3RunnerWithInners.class)
+    public static class MultiFile extends AbstractIrBoxJsConcurrentTest {
+        private void runTest(String testDataFilePath) throws Exception {
+            KotlinTestUtils.runTest0(this::doTest, TargetBackend.JS_IR, testDataFilePath);
+        }
+
+        public void testAllFilesPresentInMultiFile() throws Exception {
+            KotlinTestUtils.assertAllTestsPresentByMetadataWithExcluded(this.getClass(), new File("js/js.translator/testData/box/multiFile"), Pattern.compile("^([^_](.+))\\.kt$"), null, TargetBackend.JS_IR, true);
+        }
+
+        @TestMetadata("associatedObjectKeys.kt")
+        public void testAssociatedObjectKeys() throws Exception {
+            runTest("js/js.translator/testData/box/multiFile/associatedObjectKeys.kt");
+        }
+
+        @TestMetadata("classOfTheSameNameInAnotherPackage.kt")
+        public void testClassOfTheSameNameInAnotherPackage() throws Exception {
+            runTest("js/js.translator/testData/box/multiFile/classOfTheSameNameInAnotherPackage.kt");
+        }
+
+        @TestMetadata("classesInheritedFromOtherFile.kt")
+        public void testClassesInheritedFromOtherFile() throws Exception {
+            runTest("js/js.translator/testData/box/multiFile/classesInheritedFromOtherFile.kt");
+        }
+
+        @TestMetadata("functionsVisibleFromOtherFile.kt")
+        public void testFunctionsVisibleFromOtherFile() throws Exception {
+            runTest("js/js.translator/testData/box/multiFile/functionsVisibleFromOtherFile.kt");
+        }
+
+        @TestMetadata("importedDeclarationMangling.kt")
+        public void testImportedDeclarationMangling() throws Exception {
+            runTest("js/js.translator/testData/box/multiFile/importedDeclarationMangling.kt");
+        }
+
+        @TestMetadata("packageAndMangledMethodDoNotClash.kt")
+        public void testPackageAndMangledMethodDoNotClash() throws Exception {
+            runTest("js/js.translator/testData/box/multiFile/packageAndMangledMethodDoNotClash.kt");
+        }
+
+        @TestMetadata("packageAndPrivateDeclarationDoNotClash.kt")
+        public void testPackageAndPrivateDeclarationDoNotClash() throws Exception {
+            runTest("js/js.translator/testData/box/multiFile/packageAndPrivateDeclarationDoNotClash.kt");
+        }
+    }
+
+    @TestMetadata("js/js.translator/testData/box/inlineMultiFile")
+    @TestDataPath("$PROJECT_ROOT")
+    @RunWith(JUnit3RunnerWithInners.class)
+    public static class InlineMultiFile extends AbstractIrBoxJsConcurrentTest {
+        private void runTest(String testDataFilePath) throws Exception {
+            KotlinTestUtils.runTest0(this::doTest, TargetBackend.JS_IR, testDataFilePath);
+        }
+
+        public void testAllFilesPresentInInlineMultiFile() throws Exception {
+            KotlinTestUtils.assertAllTestsPresentByMetadataWithExcluded(this.getClass(), new File("js/js.translator/testData/box/inlineMultiFile"), Pattern.compile("^([^_](.+))\\.kt$"), null, TargetBackend.JS_IR, true);
+        }
+
+        @TestMetadata("anonymousObjectInSimilarFunctions.kt")
+        public void testAnonymousObjectInSimilarFunctions() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/anonymousObjectInSimilarFunctions.kt");
+        }
+
+        @TestMetadata("anonymousObjectOnCallSite.kt")
+        public void testAnonymousObjectOnCallSite() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/anonymousObjectOnCallSite.kt");
+        }
+
+        @TestMetadata("anonymousObjectOnCallSiteSuperParams.kt")
+        public void testAnonymousObjectOnCallSiteSuperParams() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/anonymousObjectOnCallSiteSuperParams.kt");
+        }
+
+        @TestMetadata("anonymousObjectOnDeclarationSite.kt")
+        public void testAnonymousObjectOnDeclarationSite() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/anonymousObjectOnDeclarationSite.kt");
+        }
+
+        @TestMetadata("anonymousObjectOnDeclarationSiteSuperParams.kt")
+        public void testAnonymousObjectOnDeclarationSiteSuperParams() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/anonymousObjectOnDeclarationSiteSuperParams.kt");
+        }
+
+        @TestMetadata("builders.kt")
+        public void testBuilders() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/builders.kt");
+        }
+
+        @TestMetadata("buildersAndLambdaCapturing.kt")
+        public void testBuildersAndLambdaCapturing() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/buildersAndLambdaCapturing.kt");
+        }
+
+        @TestMetadata("captureInlinable.kt")
+        public void testCaptureInlinable() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/captureInlinable.kt");
+        }
+
+        @TestMetadata("captureInlinableAndOther.kt")
+        public void testCaptureInlinableAndOther() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/captureInlinableAndOther.kt");
+        }
+
+        @TestMetadata("captureThisAndReceiver.kt")
+        public void testCaptureThisAndReceiver() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/captureThisAndReceiver.kt");
+        }
+
+        @TestMetadata("closureChain.kt")
+        public void testClosureChain() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/closureChain.kt");
+        }
+
+        @TestMetadata("defaultMethod.kt")
+        public void testDefaultMethod() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/defaultMethod.kt");
+        }
+
+        @TestMetadata("generics.kt")
+        public void testGenerics() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/generics.kt");
+        }
+
+        @TestMetadata("inlineInDefaultParameter.kt")
+        public void testInlineInDefaultParameter() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/inlineInDefaultParameter.kt");
+        }
+
+        @TestMetadata("inlineMultiFileSimple.kt")
+        public void testInlineMultiFileSimple() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/inlineMultiFileSimple.kt");
+        }
+
+        @TestMetadata("lambdaCloning.kt")
+        public void testLambdaCloning() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/lambdaCloning.kt");
+        }
+
+        @TestMetadata("lambdaInLambda2.kt")
+        public void testLambdaInLambda2() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/lambdaInLambda2.kt");
+        }
+
+        @TestMetadata("lambdaInLambdaNoInline.kt")
+        public void testLambdaInLambdaNoInline() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/lambdaInLambdaNoInline.kt");
+        }
+
+        @TestMetadata("privateVarFromInline.kt")
+        public void testPrivateVarFromInline() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/privateVarFromInline.kt");
+        }
+
+        @TestMetadata("regeneratedLambdaName.kt")
+        public void testRegeneratedLambdaName() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/regeneratedLambdaName.kt");
+        }
+
+        @TestMetadata("sameCaptured.kt")
+        public void testSameCaptured() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/sameCaptured.kt");
+        }
+
+        @TestMetadata("simpleCapturingInClass.kt")
+        public void testSimpleCapturingInClass() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/simpleCapturingInClass.kt");
+        }
+
+        @TestMetadata("simpleCapturingInPackage.kt")
+        public void testSimpleCapturingInPackage() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/simpleCapturingInPackage.kt");
+        }
+
+        @TestMetadata("simpleDefaultMethod.kt")
+        public void testSimpleDefaultMethod() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/simpleDefaultMethod.kt");
+        }
+
+        @TestMetadata("trait.kt")
+        public void testTrait() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/trait.kt");
+        }
+
+        @TestMetadata("tryCatch.kt")
+        public void testTryCatch() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/tryCatch.kt");
+        }
+
+        @TestMetadata("tryCatch2.kt")
+        public void testTryCatch2() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/tryCatch2.kt");
+        }
+
+        @TestMetadata("tryCatchFinally.kt")
+        public void testTryCatchFinally() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/tryCatchFinally.kt");
+        }
+
+        @TestMetadata("use.kt")
+        public void testUse() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/use.kt");
+        }
+
+        @TestMetadata("with.kt")
+        public void testWith() throws Exception {
+            runTest("js/js.translator/testData/box/inlineMultiFile/with.kt");
+        }
+    }
+}
@@ -5540,6 +5540,11 @@ public class IrBoxJsTestGenerated extends AbstractIrBoxJsTest {
             KotlinTestUtils.assertAllTestsPresentByMetadataWithExcluded(this.getClass(), new File("js/js.translator/testData/box/multiFile"), Pattern.compile("^([^_](.+))\\.kt$"), null, TargetBackend.JS_IR, true);
         }
 
+        @TestMetadata("associatedObjectKeys.kt")
+        public void testAssociatedObjectKeys() throws Exception {
+            runTest("js/js.translator/testData/box/multiFile/associatedObjectKeys.kt");
+        }
+
         @TestMetadata("classOfTheSameNameInAnotherPackage.kt")
         public void testClassOfTheSameNameInAnotherPackage() throws Exception {
             runTest("js/js.translator/testData/box/multiFile/classOfTheSameNameInAnotherPackage.kt");
@@ -9,6 +9,11 @@ import org.jetbrains.kotlin.js.test.BasicIrBoxTest
 
 abstract class AbstractIrBoxJsTest : BasicIrBoxTest(TEST_DATA_DIR_PATH + "box/", "irBox/")
 
+abstract class AbstractIrBoxJsConcurrentTest : BasicIrBoxTest(TEST_DATA_DIR_PATH + "box/", "irBoxConcurrent/") {
+    override val loweringThreads = 4
+    override val translationThreads = 4
+}
+
 abstract class AbstractIrJsCodegenBoxTest : BasicIrBoxTest(
     "compiler/testData/codegen/box/",
     "codegen/irBox/"
@@ -5555,6 +5555,11 @@ public class BoxJsTestGenerated extends AbstractBoxJsTest {
             KotlinTestUtils.assertAllTestsPresentByMetadataWithExcluded(this.getClass(), new File("js/js.translator/testData/box/multiFile"), Pattern.compile("^([^_](.+))\\.kt$"), null, TargetBackend.JS, true);
         }
 
+        @TestMetadata("associatedObjectKeys.kt")
+        public void testAssociatedObjectKeys() throws Exception {
+            runTest("js/js.translator/testData/box/multiFile/associatedObjectKeys.kt");
+        }
+
         @TestMetadata("classOfTheSameNameInAnotherPackage.kt")
         public void testClassOfTheSameNameInAnotherPackage() throws Exception {
             runTest("js/js.translator/testData/box/multiFile/classOfTheSameNameInAnotherPackage.kt");
@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Supplier;
 
 public class SourceMap3Builder implements SourceMapBuilder {
@@ -57,6 +58,11 @@ public class SourceMap3Builder implements SourceMapBuilder {
     private int previousPreviousSourceColumn;
     private boolean currentMappingIsEmpty = true;
 
+    // Consecutive mappings almost always come from the same source, so remember the last one to skip the lookup
+    private String lastSource;
+    private Object lastIdentityObject;
+    private int lastSourceIndex = -1;
+
     public SourceMap3Builder(File generatedFile, TextOutput textOutput, String pathPrefix) {
         this.generatedFile = generatedFile;
         this.textOutput = textOutput;
@@ -127,8 +133,16 @@ public class SourceMap3Builder implements SourceMapBuilder {
             @NotNull String source, @Nullable Object identityObject, @NotNull Supplier<Reader> sourceContent,
             int sourceLine, int sourceColumn
     ) {
-        source = source.replace(File.separatorChar, '/');
-        int sourceIndex = getSourceIndex(source, identityObject, sourceContent);
+        int sourceIndex;
+        if (lastSourceIndex != -1 && source.equals(lastSource) && Objects.equals(identityObject, lastIdentityObject)) {
+            sourceIndex = lastSourceIndex;
+        }
+        else {
+            sourceIndex = getSourceIndex(source.replace(File.separatorChar, '/'), identityObject, sourceContent);
+            lastSource = source;
+            lastIdentityObject = identityObject;
+            lastSourceIndex = sourceIndex;
+        }
 
         if (!currentMappingIsEmpty && previousSourceIndex == sourceIndex && previousSourceLine == sourceLine &&
             previousSourceColumn == sourceColumn) {
@@ -215,6 +229,13 @@ public class SourceMap3Builder implements SourceMapBuilder {
 
         public static void encode(StringBuilder out, int value) {
             value = toVLQSigned(value);
+
+            // Most deltas between adjacent mappings are small and fit into a single digit
+            if ((value & ~VLQ_BASE_MASK) == 0) {
+                out.append(BASE64_MAP[value]);
+                return;
+            }
+
             do {
                 int digit = value & VLQ_BASE_MASK;
                 value >>>= VLQ_BASE_SHIFT;
@@ -0,0 +1,66 @@
+// IGNORE_BACKEND: JS
+// KJS_WITH_FULL_RUNTIME
+// FILE: a.kt
+package foo
+
+@Key3(Obj3::class)
+@Key1(Obj1::class)
+class Foo
+
+@Key2(Obj2::class)
+class Bar
+
+// FILE: b.kt
+package foo
+
+import kotlin.reflect.*
+
+@OptIn(ExperimentalAssociatedObjects::class)
+@AssociatedObjectKey
+@Retention(AnnotationRetention.BINARY)
+annotation class Key1(val kClass: KClass<*>)
+
+object Obj1
+
+// FILE: c.kt
+package foo
+
+import kotlin.reflect.*
+
+@OptIn(ExperimentalAssociatedObjects::class)
+@AssociatedObjectKey
+@Retention(AnnotationRetention.BINARY)
+annotation class Key2(val kClass: KClass<*>)
+
+@OptIn(ExperimentalAssociatedObjects::class)
+@AssociatedObjectKey
+@Retention(AnnotationRetention.BINARY)
+annotation class Key3(val kClass: KClass<*>)
+
+object Obj2
+object Obj3
+
+@Key1(Obj2::class)
+@Key2(Obj3::class)
+class Baz
+
+// FILE: main.kt
+package foo
+
+import kotlin.reflect.*
+
+@OptIn(ExperimentalAssociatedObjects::class)
+fun box(): String {
+    if (Foo::class.findAssociatedObject<Key1>() != Obj1) return "fail 1"
+    if (Foo::class.findAssociatedObject<Key2>() != null) return "fail 2"
+    if (Foo::class.findAssociatedObject<Key3>() != Obj3) return "fail 3"
+
+    if (Bar::class.findAssociatedObject<Key1>() != null) return "fail 4"
+    if (Bar::class.findAssociatedObject<Key2>() != Obj2) return "fail 5"
+
+    if (Baz::class.findAssociatedObject<Key1>() != Obj2) return "fail 6"
+    if (Baz::class.findAssociatedObject<Key2>() != Obj3) return "fail 7"
+    if (Baz::class.findAssociatedObject<Key3>() != null) return "fail 8"
+
+    return "OK"
+}
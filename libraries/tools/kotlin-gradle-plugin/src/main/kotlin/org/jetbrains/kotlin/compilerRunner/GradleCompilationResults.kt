@@ -44,6 +44,9 @@ internal class GradleCompilationResults(
                 @Suppress("UNCHECKED_CAST")
                 icLogLines = value as? List<String>
             }
+            CompilationResultCategory.IC_METRICS.code -> {
+                log.kotlinDebug { "IC metrics: $value" }
+            }
         }
     }
 }
\ No newline at end of file
@@ -265,6 +265,9 @@ internal class GradleKotlinCompilerWork @Inject constructor(
             BuildReportMode.VERBOSE -> CompilationResultCategory.VERBOSE_BUILD_REPORT_LINES
             null -> null
         }?.let { requestedCompilationResults.add(it) }
+        if (isVerbose) {
+            requestedCompilationResults.add(CompilationResultCategory.IC_METRICS)
+        }
 
         val compilationOptions = IncrementalCompilationOptions(
             areFileChangesKnown = knownChangedFiles != null,